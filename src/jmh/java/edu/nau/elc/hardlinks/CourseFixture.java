@@ -0,0 +1,45 @@
+package edu.nau.elc.hardlinks;
+
+import edu.nau.elc.hardlinks.generator.ExportGenerator;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Makes the course exports the benchmarks run over with an {@link ExportGenerator}. The same size always gives the
+ * same export, so runs can be compared.
+ */
+public class CourseFixture {
+
+	/**
+	 * Builds an export in the temp directory. It's deleted when the JVM exits.
+	 *
+	 * @param size "small" (50 content items), "medium" (1,000) or "large" (10,000).
+	 * @return the export
+	 * @throws IOException If it can't be written.
+	 */
+	public static File build(String size) throws IOException {
+		int items;
+		switch (size) {
+			case "small":
+				items = 50;
+				break;
+			case "medium":
+				items = 1000;
+				break;
+			case "large":
+				items = 10000;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown fixture size " + size);
+		}
+
+		File zip = File.createTempFile("ExportFile_BENCH-" + size + "_", ".zip");
+		zip.deleteOnExit();
+		ExportGenerator generator = new ExportGenerator();
+		generator.setSeed(items);
+		generator.setItems(items);
+		generator.write(zip);
+		return zip;
+	}
+}
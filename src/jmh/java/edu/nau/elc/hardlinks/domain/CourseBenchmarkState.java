@@ -0,0 +1,72 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.CourseFixture;
+import edu.nau.elc.hardlinks.archive.ArchiveEntry;
+import org.apache.commons.io.IOUtils;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixture course opened and indexed the way CourseProcessor does before it analyzes any items, with every .dat and
+ * HTML file already read into memory so the benchmarks don't measure inflating them.
+ */
+class CourseBenchmarkState {
+
+	final CourseProcessor processor;
+	final ArrayList<ArchiveEntry> files = new ArrayList<>();
+	final ArrayList<byte[]> contents = new ArrayList<>();
+
+	/**
+	 * Opens a fixture course.
+	 *
+	 * @param course Which fixture course (see {@link CourseFixture#build}).
+	 * @throws IOException  If the export can't be read.
+	 * @throws SAXException If it can't be indexed.
+	 */
+	CourseBenchmarkState(String course) throws IOException, SAXException {
+		processor = new CourseProcessor(CourseFixture.build(course), message -> {
+		});
+		processor.open();
+
+		files.addAll(processor.getDatFiles());
+		files.addAll(processor.getArchive().getInventory().getFilesOfExt(".htm"));
+		files.addAll(processor.getArchive().getInventory().getFilesOfExt(".html"));
+		for (ArchiveEntry f : files) {
+			InputStream in = processor.getArchive().open(f);
+			try {
+				contents.add(IOUtils.toByteArray(in));
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * Analyzes every item, keeping all of their links. The links from the last time are dropped first.
+	 *
+	 * @return the items, in file order
+	 * @throws IOException  If a file can't be read.
+	 * @throws SAXException If a file isn't valid XML.
+	 */
+	List<CourseItem> analyze() throws IOException, SAXException {
+		processor.getLinkStore().clear();
+		ArrayList<CourseItem> items = new ArrayList<>(files.size());
+		for (int i = 0; i < files.size(); i++) {
+			items.add(new CourseItem(files.get(i), contents.get(i), processor));
+		}
+		return items;
+	}
+
+	/**
+	 * Closes the export.
+	 *
+	 * @throws IOException If it can't be closed.
+	 */
+	void close() throws IOException {
+		processor.getArchive().close();
+	}
+}
@@ -0,0 +1,45 @@
+package edu.nau.elc.hardlinks.domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyzes every content item and HTML file in a course, one at a time: parsing each file, pulling out its links,
+ * classifying them (CourseItem.findHardLinks) and looking up the xids of the hard ones. This is the bulk of the work
+ * in a course; the file contents are already in memory, so reading the export isn't counted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CourseItemBenchmark {
+
+	/**
+	 * Which fixture course to analyze (see {@link edu.nau.elc.hardlinks.CourseFixture#build}).
+	 */
+	@Param({"small", "medium", "large"})
+	public String course;
+
+	private CourseBenchmarkState state;
+
+	@Setup
+	public void setup() throws IOException, SAXException {
+		state = new CourseBenchmarkState(course);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		state.close();
+	}
+
+	@Benchmark
+	public List<CourseItem> findHardLinks() throws IOException, SAXException {
+		return state.analyze();
+	}
+}
@@ -0,0 +1,70 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.CourseFixture;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Indexes a course's imsmanifest.xml, then looks up the content area path and title of every content item in it, the
+ * way each CourseItem does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ManifestBenchmark {
+
+	/**
+	 * Which fixture course's manifest to index (see {@link CourseFixture#build}).
+	 */
+	@Param({"small", "medium", "large"})
+	public String course;
+
+	private byte[] manifest;
+	private final ArrayList<String> resources = new ArrayList<>();
+
+	@Setup
+	public void setup() throws IOException {
+		File export = CourseFixture.build(course);
+		ZipFile zip = new ZipFile(export);
+		try {
+			manifest = IOUtils.toByteArray(zip.getInputStream(zip.getEntry("imsmanifest.xml")));
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				String name = entries.nextElement().getName();
+				if (name.endsWith(".dat")) {
+					resources.add(name.substring(0, name.length() - ".dat".length()));
+				}
+			}
+		} finally {
+			zip.close();
+		}
+	}
+
+	@Benchmark
+	public ManifestIndex build() throws IOException, SAXException {
+		return new ManifestIndex(new ByteArrayInputStream(manifest));
+	}
+
+	@Benchmark
+	public void buildAndResolve(Blackhole bh) throws IOException, SAXException {
+		ManifestIndex index = new ManifestIndex(new ByteArrayInputStream(manifest));
+		for (String res : resources) {
+			bh.consume(index.getContentPath(res));
+			bh.consume(index.getTitle(res));
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package edu.nau.elc.hardlinks.domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares cleaning up link URLs and taking their filenames with a chain of String methods (what CourseItem and Link
+ * always did) with a {@link UrlNormalizer}. Run with the GC profiler to compare allocation per URL; most URLs need no
+ * changes, and the normalizer doesn't allocate anything for those.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UrlNormalizerBenchmark {
+
+	private static final int URLS = 1024;
+
+	private final String[] urls = new String[URLS];
+	private UrlNormalizer normalizer;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		// roughly what turns up in a course: mostly clean lower-case links, some from the editor that aren't
+		String[] samples = {"https://bblearn.nau.edu/bbcswebdav/xid-1234567_1",
+				"/courses/1/eng105/content/_123_1/syllabus.pdf",
+				"http://www.example.com/?a=1&amp;b=2",
+				"https://bblearn.nau.edu/bbcswebdav/courses/ENG105-SP15/Week 1/Reading.PDF",
+				"@X@EmbeddedFile.requestUrlStub@X@bbcswebdav/xid-7654321_1",
+				" https://bblearn.nau.edu/webapps/blackboard/content/listContent.jsp?course_id=_1_1 ",
+				"%20/courses/1/eng105/content/_123_1/notes.docx%0D",
+				"images/banner.jpg"};
+		for (int i = 0; i < URLS; i++) {
+			int pick = random.nextInt(samples.length * 2);
+			// half of them are the clean ones
+			urls[i] = samples[pick < samples.length ? pick : random.nextInt(3)];
+		}
+		normalizer = new UrlNormalizer();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(URLS)
+	public void chained(Blackhole bh) {
+		for (String raw : urls) {
+			String url = raw.trim();
+			url = url.replace("@X@EmbeddedFile.requestUrlStub@X@", "https://bblearn.nau.edu/").toLowerCase();
+			if (url.startsWith("%20")) url = url.replaceFirst("%20", "");
+			url = url.replace("%0d", "");
+
+			String[] splitted = url.split("/");
+			bh.consume(url);
+			bh.consume(splitted[splitted.length - 1]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(URLS)
+	public void normalizer(Blackhole bh) {
+		for (String raw : urls) {
+			String url = normalizer.normalize(raw);
+			bh.consume(url);
+			bh.consume(UrlNormalizer.filename(url));
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.report.ReportWriter;
+import edu.nau.elc.hardlinks.report.TriageReport;
+import edu.nau.elc.hardlinks.report.XlsxReportWriter;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a whole course's report, as CourseProcessor.writeResults does: every item's x-id and discarded links, then
+ * the sorted items' hard links, saved as an .xlsx (thrown away, so the disk isn't measured).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WriteResultsBenchmark {
+
+	/**
+	 * Which fixture course's report to write (see {@link edu.nau.elc.hardlinks.CourseFixture#build}).
+	 */
+	@Param({"small", "medium", "large"})
+	public String course;
+
+	/**
+	 * Threads to generate the sheets on.
+	 */
+	@Param({"1", "4"})
+	public int reportThreads;
+
+	private List<CourseItem> items;
+	private final ArrayList<CourseItem> content = new ArrayList<>();
+	private final ArrayList<CourseItem> htmlFiles = new ArrayList<>();
+	private final ArrayList<CourseItem> undeployed = new ArrayList<>();
+
+	@Setup
+	public void setup() throws IOException, SAXException {
+		CourseBenchmarkState state = new CourseBenchmarkState(course);
+		try {
+			items = state.analyze();
+		} finally {
+			state.close();
+		}
+
+		for (CourseItem i : items) {
+			if (!i.isHtmlFile()) {
+				content.add(i);
+			} else if (i.getDatFile() != null) {
+				htmlFiles.add(i);
+			} else {
+				undeployed.add(i);
+			}
+		}
+		Collections.sort(content);
+		Collections.sort(htmlFiles);
+		Collections.sort(undeployed);
+	}
+
+	@Benchmark
+	public int writeResults() throws IOException {
+		ReportWriter writer = new XlsxReportWriter(reportThreads);
+		try {
+			TriageReport report = new TriageReport(writer);
+			for (CourseItem i : items) {
+				report.addXidAndDiscardedLinks(i);
+			}
+			for (CourseItem i : content) {
+				report.addContentItem(i);
+			}
+			for (CourseItem i : htmlFiles) {
+				report.addHtmlFile(i);
+			}
+			for (CourseItem i : undeployed) {
+				report.addUndeployedFile(i);
+			}
+			writer.save(new NullOutputStream());
+			return report.getLinksWritten();
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package edu.nau.elc.hardlinks.domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the xid of every hard link in a course again (Link.findXID): finding the content collection files with
+ * the link's filename and, when the name is in more than one folder, picking the one whose path is closest. The
+ * descriptors have all been parsed by the time the benchmark starts, as they would be for all but the first link to
+ * each file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XidMatchBenchmark {
+
+	/**
+	 * Which fixture course's links to look up (see {@link edu.nau.elc.hardlinks.CourseFixture#build}).
+	 */
+	@Param({"small", "medium", "large"})
+	public String course;
+
+	private CourseBenchmarkState state;
+	private final ArrayList<String> urls = new ArrayList<>();
+
+	@Setup
+	public void setup() throws IOException, SAXException {
+		state = new CourseBenchmarkState(course);
+		for (CourseItem item : state.analyze()) {
+			for (Link l : item.getHardLinks()) {
+				urls.add(l.getUrl());
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		state.close();
+	}
+
+	@Benchmark
+	public void findXID(Blackhole bh) throws IOException, SAXException {
+		XidIndex index = state.processor.getXidIndex();
+		for (int i = 0; i < urls.size(); i++) {
+			bh.consume(Link.findXID(urls.get(i), index));
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package edu.nau.elc.hardlinks.html;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a Jsoup DOM and selecting the a/img tags (what CourseItem always did) with streaming the same HTML
+ * through a LinkTokenizer. Run with the GC profiler to compare allocation per document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LinkExtractionBenchmark {
+
+	/**
+	 * Size of the HTML document in chars.
+	 */
+	@Param({"16384", "1048576"})
+	public int htmlSize;
+
+	private String html;
+	private LinkTokenizer tokenizer;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		// roughly what the content editor produces: paragraphs, tables, formatting and a link or image every few words
+		String[] words = {"<p>", "</p>", "<strong>", "</strong>", "<br />", "the", "syllabus", "week", "reading",
+				"&nbsp;", "quiz", "<table><tr><td>", "</td></tr></table>",
+				"<a href=\"https://bblearn.nau.edu/bbcswebdav/xid-1234567_1\">Week <em>1</em> notes</a>",
+				"<a href=\"/courses/1/ENG105/content/_123_1/syllabus.pdf\">Syllabus</a>",
+				"<a href=\"http://www.example.com/?a=1&amp;b=2\" target=\"_blank\">an outside link</a>",
+				"<img src=\"@X@EmbeddedFile.requestUrlStub@X@bbcswebdav/xid-7654321_1\" alt=\"diagram\" />",
+				"<!-- saved from the editor -->"};
+
+		StringBuilder b = new StringBuilder(htmlSize + 256);
+		b.append("<html><head><title>Week 1</title><style>p { margin: 0; }</style></head><body>");
+		while (b.length() < htmlSize) {
+			b.append(words[random.nextInt(words.length)]).append(' ');
+		}
+		b.append("</body></html>");
+
+		html = b.toString();
+		tokenizer = new LinkTokenizer();
+	}
+
+	@Benchmark
+	public TreeMap<String, String> jsoup() {
+		Document doc = Jsoup.parse(html);
+		TreeMap<String, String> links = new TreeMap<>();
+
+		for (Element e : doc.select("a")) {
+			links.put("text: " + e.text(), e.attr("href"));
+		}
+
+		for (Element e : doc.select("img")) {
+			links.put("alt: " + e.attr("alt"), e.attr("src"));
+		}
+		return links;
+	}
+
+	@Benchmark
+	public TreeMap<String, String> streaming() throws IOException {
+		TreeMap<String, String> links = new TreeMap<>();
+		tokenizer.tokenize(new StringReader(html), new LinkListener() {
+			@Override
+			public void anchor(String href, String text) {
+				links.put("text: " + text, href);
+			}
+
+			@Override
+			public void image(String src, String alt) {
+				links.put("alt: " + alt, src);
+			}
+		});
+		return links;
+	}
+}
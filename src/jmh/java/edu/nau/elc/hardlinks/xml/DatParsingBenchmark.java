@@ -0,0 +1,83 @@
+package edu.nau.elc.hardlinks.xml;
+
+import edu.nau.elc.hardlinks.CourseFixture;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Parses every .dat file in a course the two ways the processor does: with a HardlinkHandler to get each content
+ * item's text (CourseItem), and with a DatHandler to find which file it deploys (CourseProcessor.indexDatFiles). The
+ * files are read into memory first, so only the parsing is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DatParsingBenchmark {
+
+	/**
+	 * Which fixture course to parse (see {@link CourseFixture#build}).
+	 */
+	@Param({"small", "medium", "large"})
+	public String course;
+
+	private ArrayList<byte[]> dats;
+
+	@Setup
+	public void setup() throws IOException {
+		File export = CourseFixture.build(course);
+		dats = new ArrayList<>();
+		ZipFile zip = new ZipFile(export);
+		try {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry e = entries.nextElement();
+				if (e.getName().endsWith(".dat")) {
+					dats.add(IOUtils.toByteArray(zip.getInputStream(e)));
+				}
+			}
+		} finally {
+			zip.close();
+		}
+	}
+
+	@Benchmark
+	public void hardlinkHandler(Blackhole bh) throws IOException, SAXException {
+		for (byte[] dat : dats) {
+			HardlinkHandler handler = new HardlinkHandler();
+			XmlParsers.getSAXParser().parse(source(dat), handler);
+			bh.consume(handler.getTitle());
+			bh.consume(handler.getTextBuffer());
+		}
+	}
+
+	@Benchmark
+	public void datHandler(Blackhole bh) throws IOException, SAXException {
+		for (byte[] dat : dats) {
+			DatHandler handler = new DatHandler();
+			XmlParsers.getSAXParser().parse(source(dat), handler);
+			bh.consume(handler.getLinkName());
+		}
+	}
+
+	private static InputSource source(byte[] dat) throws IOException {
+		InputSource is = new InputSource(new InputStreamReader(new ByteArrayInputStream(dat), "UTF-8"));
+		is.setEncoding("UTF-8");
+		return is;
+	}
+}
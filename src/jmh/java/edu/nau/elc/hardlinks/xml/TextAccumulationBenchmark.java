@@ -0,0 +1,118 @@
+package edu.nau.elc.hardlinks.xml;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old quadratic string concatenation with the buffered accumulation now used by HardlinkHandler (for
+ * .dat bodies, which SAX delivers in chunks) and CourseItem (for HTML files, which used to be read line by line).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TextAccumulationBenchmark {
+
+	/**
+	 * Size of the item body in chars.
+	 */
+	@Param({"1048576", "4194304"})
+	public int bodySize;
+
+	/**
+	 * Size of each SAX characters() chunk, and the length of each line in the HTML version.
+	 */
+	@Param({"4096"})
+	public int chunkSize;
+
+	private char[] body;
+	private String html;
+	private HardlinkHandler handler;
+	private AttributesImpl noAttributes;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		String[] words = {"<p>", "</p>", "<a href=\"https://bblearn.nau.edu/bbcswebdav/courses/x/file.pdf\">", "</a>",
+				"lorem", "ipsum", "dolor", "<img src=\"pic.jpg\" alt=\"pic\">", "sit", "amet"};
+
+		StringBuilder b = new StringBuilder(bodySize);
+		StringBuilder h = new StringBuilder(bodySize + bodySize / chunkSize);
+		int lineLength = 0;
+		while (b.length() < bodySize) {
+			String w = words[random.nextInt(words.length)] + ' ';
+			b.append(w);
+			h.append(w);
+			lineLength += w.length();
+			if (lineLength >= chunkSize) {
+				h.append('\n');
+				lineLength = 0;
+			}
+		}
+		b.setLength(bodySize);
+
+		body = b.toString().toCharArray();
+		html = h.toString();
+		handler = new HardlinkHandler();
+		noAttributes = new AttributesImpl();
+	}
+
+	@Benchmark
+	public String datLegacyConcat() {
+		String text = "";
+		for (int start = 0; start < body.length; start += chunkSize) {
+			text += new String(body, start, Math.min(chunkSize, body.length - start));
+		}
+		return text;
+	}
+
+	@Benchmark
+	public void datHardlinkHandler(Blackhole bh) throws Exception {
+		handler.startDocument();
+		handler.startElement("", "", "TEXT", noAttributes);
+		for (int start = 0; start < body.length; start += chunkSize) {
+			handler.characters(body, start, Math.min(chunkSize, body.length - start));
+		}
+		handler.endElement("", "", "TEXT");
+		bh.consume(handler.getTextBuffer().length());
+	}
+
+	@Benchmark
+	public String htmlLegacyReadLines() throws IOException {
+		BufferedReader rdr = new BufferedReader(new StringReader(html));
+		String text = "";
+		String line = rdr.readLine();
+
+		while (line != null) {
+			text += line;
+			line = rdr.readLine();
+		}
+
+		rdr.close();
+		return text;
+	}
+
+	@Benchmark
+	public StringBuilder htmlBufferedRead() throws IOException {
+		StringBuilder text = new StringBuilder(html.length());
+		char[] buffer = new char[8192];
+
+		Reader rdr = new StringReader(html);
+		int length;
+		while ((length = rdr.read(buffer)) != -1) {
+			text.append(buffer, 0, length);
+		}
+		rdr.close();
+		return text;
+	}
+}
@@ -0,0 +1,84 @@
+package edu.nau.elc.hardlinks;
+
+import edu.nau.elc.hardlinks.cache.ResultCache;
+import edu.nau.elc.hardlinks.domain.CourseProcessor;
+import edu.nau.elc.hardlinks.domain.CourseProgress;
+import edu.nau.elc.hardlinks.domain.CourseWatchdog;
+import edu.nau.elc.hardlinks.domain.ProcessorListener;
+
+import javax.swing.*;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs a {@link CourseProcessor} in the background for the GUI, passing its messages and progress back to the window
+ * on the event dispatch thread.
+ */
+class CourseWorker extends SwingWorker<Void, String> {
+
+	private final GetLinkWindow window;
+	private final File input;
+	private final CourseProcessor processor;
+
+	/**
+	 * Instantiates a new worker.
+	 *
+	 * @param input    ZIP file that's a course export.
+	 * @param cache    The result cache shared by every course, or null to analyze every file.
+	 * @param watchdog The watchdog shared by every course, which aborts it if it gets stuck.
+	 * @param window   The window that we'll print status messages to.
+	 */
+	CourseWorker(File input, ResultCache cache, CourseWatchdog watchdog, GetLinkWindow window) {
+		this.window = window;
+		this.input = input;
+		processor = new CourseProcessor(input, new ProcessorListener() {
+			@Override
+			public void message(String message) {
+				publish(message);
+			}
+
+			@Override
+			public void progress(CourseProgress progress) {
+				SwingUtilities.invokeLater(() -> window.showProgress(input, progress));
+			}
+		});
+		processor.setResultCache(cache);
+		processor.setWatchdog(watchdog);
+	}
+
+	@Override
+	protected Void doInBackground() throws Exception {
+		processor.call();
+		return null;
+	}
+
+	/**
+	 * Passes messages up to the window for printing.
+	 *
+	 * @param chunks List of messages to print.
+	 */
+	@Override
+	protected void process(List<String> chunks) {
+		for (String s : chunks) {
+			window.println(s);
+		}
+	}
+
+	/**
+	 * Tells the window the course is finished, printing why if it failed. Runs on the event dispatch thread after
+	 * every message has been printed.
+	 */
+	@Override
+	protected void done() {
+		try {
+			get();
+		} catch (ExecutionException e) {
+			window.println("ERROR: " + input.getName() + " failed: " + e.getCause().getLocalizedMessage());
+		} catch (InterruptedException e) {
+			window.println("ERROR: " + input.getName() + " was interrupted.");
+		} finally {
+			window.courseFinished(input);
+		}
+	}
+}
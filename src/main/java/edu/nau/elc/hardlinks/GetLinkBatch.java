@@ -0,0 +1,385 @@
+package edu.nau.elc.hardlinks;
+
+import edu.nau.elc.hardlinks.cache.ResultCache;
+import edu.nau.elc.hardlinks.domain.CourseProcessor;
+import edu.nau.elc.hardlinks.domain.CourseProgress;
+import edu.nau.elc.hardlinks.domain.CourseWatchdog;
+import edu.nau.elc.hardlinks.domain.ProcessorListener;
+import edu.nau.elc.hardlinks.profiling.PhaseBudgets;
+import edu.nau.elc.hardlinks.report.ReportMode;
+import edu.nau.elc.hardlinks.rules.LinkRules;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command-line entry point for processing lots of exports without a window, e.g. a whole semester's worth on a server.
+ * Several courses are processed at once on a fixed pool of threads; exports are only handed to the pool as threads
+ * free up, so nothing piles up waiting no matter how many exports there are. A summary of how long it took is printed
+ * at the end.
+ * <br><br>
+ * Usage: {@code GetLinkBatch [-o output-dir] [-j courses-at-once] [-t threads-per-course] [--extract]
+ * [--cache dir | --no-cache] [--cache-mb size] [--report-mode direct|sxssf] [--no-validate]
+ * [--budget phase=seconds]... [--no-watchdog] export.zip|dir...}
+ * <br><br>
+ * Results are cached (in {@link ResultCache#getDefaultDirectory()} unless --cache says otherwise), so running the same
+ * courses again only analyzes the files that changed.
+ * <br><br>
+ * Each export is checked for corruption before it's analyzed (unless --no-validate), and a {@link CourseWatchdog}
+ * aborts any course with a phase that goes over its budget (see {@link PhaseBudgets}; --budget changes one). A course
+ * that still hasn't stopped a while after it was aborted is given up on, so one stuck course can't hold up the batch.
+ */
+public class GetLinkBatch {
+
+	private static final String USAGE = "usage: GetLinkBatch [-o output-dir] [-j courses-at-once] "
+			+ "[-t threads-per-course] [--extract] [--cache dir | --no-cache] [--cache-mb size] "
+			+ "[--report-mode direct|sxssf] [--no-validate] [--budget phase=seconds]... [--no-watchdog] "
+			+ "export.zip|directory...";
+
+	// how often a course that's still going prints how far along it is
+	private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+	// how long an aborted course gets to stop before it's given up on
+	private static final long ABANDON_AFTER = TimeUnit.SECONDS.toNanos(30);
+
+	private final PrintStream out;
+	private File outputDirectory;
+	private int concurrency = Runtime.getRuntime().availableProcessors();
+	private int threadsPerCourse = 0; // 0 to split the cores between the courses
+	private boolean extractToDisk = false;
+	private File cacheDirectory = ResultCache.getDefaultDirectory();
+	private long cacheBytes = ResultCache.DEFAULT_MAX_BYTES;
+	private ResultCache cache;
+	private ReportMode reportMode = ReportMode.DIRECT;
+	private boolean validateExports = true;
+	private final PhaseBudgets budgets = new PhaseBudgets();
+	private boolean useWatchdog = true;
+	private CourseWatchdog watchdog;
+	// runs the courses themselves, so a course that never returns only costs a (daemon) thread, not a pool slot
+	private final ExecutorService runners = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "course runner");
+		t.setDaemon(true);
+		return t;
+	});
+	private final ArrayList<File> exports = new ArrayList<>();
+
+	private final AtomicInteger finished = new AtomicInteger();
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong linksWritten = new AtomicLong();
+	private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+	private GetLinkBatch(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * The entry point for batch mode.
+	 *
+	 * @param args Options and the exports to process (see the class description). Directories are searched (not
+	 *             recursively) for ZIP files.
+	 */
+	public static void main(String[] args) {
+		System.exit(run(args, System.out));
+	}
+
+	/**
+	 * Processes every export given on the command line and prints a summary.
+	 *
+	 * @param args The command line.
+	 * @param out  Where to print progress and the summary.
+	 * @return 0 if every course was processed, 1 if any failed, or 2 if the command line was wrong
+	 */
+	public static int run(String[] args, PrintStream out) {
+		GetLinkBatch batch = new GetLinkBatch(out);
+		try {
+			batch.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			return 2;
+		}
+
+		try {
+			batch.processAll();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			out.println("Interrupted, stopping.");
+			return 1;
+		}
+		return batch.failures.isEmpty() ? 0 : 1;
+	}
+
+	private void parseArguments(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-o":
+					outputDirectory = new File(valueOf(args, ++i));
+					break;
+				case "-j":
+					concurrency = positive(valueOf(args, ++i), "-j");
+					break;
+				case "-t":
+					threadsPerCourse = positive(valueOf(args, ++i), "-t");
+					break;
+				case "--extract":
+					extractToDisk = true;
+					break;
+				case "--cache":
+					cacheDirectory = new File(valueOf(args, ++i));
+					break;
+				case "--no-cache":
+					cacheDirectory = null;
+					break;
+				case "--cache-mb":
+					cacheBytes = positive(valueOf(args, ++i), "--cache-mb") * 1024L * 1024;
+					break;
+				case "--report-mode":
+					reportMode = reportMode(valueOf(args, ++i));
+					break;
+				case "--no-validate":
+					validateExports = false;
+					break;
+				case "--budget":
+					budgets.parse(valueOf(args, ++i));
+					break;
+				case "--no-watchdog":
+					useWatchdog = false;
+					break;
+				default:
+					if (args[i].startsWith("-")) {
+						throw new IllegalArgumentException("Unknown option " + args[i]);
+					}
+					addExports(new File(args[i]));
+			}
+		}
+
+		if (exports.isEmpty()) {
+			throw new IllegalArgumentException("No exports to process.");
+		}
+		if (outputDirectory != null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			throw new IllegalArgumentException("Can't create output directory " + outputDirectory);
+		}
+		if (threadsPerCourse == 0) {
+			threadsPerCourse = Math.max(1, Runtime.getRuntime().availableProcessors() / concurrency);
+		}
+	}
+
+	private static String valueOf(String[] args, int i) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException(args[i - 1] + " needs a value");
+		}
+		return args[i];
+	}
+
+	private static int positive(String value, String option) {
+		try {
+			int n = Integer.parseInt(value);
+			if (n > 0) {
+				return n;
+			}
+		} catch (NumberFormatException e) {
+			// fall through
+		}
+		throw new IllegalArgumentException(option + " must be a positive number, not " + value);
+	}
+
+	private static ReportMode reportMode(String value) {
+		for (ReportMode m : ReportMode.values()) {
+			if (m.name().equalsIgnoreCase(value)) {
+				return m;
+			}
+		}
+		throw new IllegalArgumentException("--report-mode must be direct or sxssf, not " + value);
+	}
+
+	private void addExports(File f) {
+		if (f.isDirectory()) {
+			File[] zips = f.listFiles((dir, name) -> name.toLowerCase().endsWith(".zip"));
+			if (zips != null) {
+				// sorted so runs over the same directory start courses in the same order
+				Arrays.sort(zips);
+				exports.addAll(Arrays.asList(zips));
+			}
+		} else if (f.isFile()) {
+			exports.add(f);
+		} else {
+			throw new IllegalArgumentException("No such file or directory: " + f);
+		}
+	}
+
+	/**
+	 * Runs every export through a processor, as many at a time as -j says, then prints the summary.
+	 *
+	 * @throws InterruptedException If the thread is interrupted while waiting for courses to finish.
+	 */
+	private void processAll() throws InterruptedException {
+		out.println("Processing " + exports.size() + " courses, " + concurrency + " at a time with "
+				+ threadsPerCourse + " threads each");
+		long start = System.nanoTime();
+
+		if (cacheDirectory != null) {
+			try {
+				cache = new ResultCache(cacheDirectory, LinkRules.getDefault().getFingerprint(), cacheBytes);
+			} catch (IOException e) {
+				out.println("WARNING: can't open the result cache, analyzing every file: " + e.getLocalizedMessage());
+			}
+		}
+
+		if (useWatchdog) {
+			watchdog = new CourseWatchdog(budgets);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+		Semaphore slots = new Semaphore(concurrency);
+		try {
+			for (File export : exports) {
+				slots.acquire();
+				pool.execute(() -> {
+					try {
+						process(export);
+					} finally {
+						slots.release();
+					}
+				});
+			}
+		} finally {
+			pool.shutdown();
+			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				// keep waiting; big courses can take a while
+			}
+			runners.shutdown();
+			if (watchdog != null) {
+				watchdog.close();
+			}
+
+			if (cache != null) {
+				try {
+					cache.close();
+				} catch (IOException e) {
+					out.println("WARNING: can't save the result cache: " + e.getLocalizedMessage());
+				}
+			}
+		}
+
+		printSummary(System.nanoTime() - start);
+	}
+
+	private void process(File export) {
+		String name = export.getName();
+		AtomicLong lastProgress = new AtomicLong(System.nanoTime());
+		CourseProcessor processor = new CourseProcessor(export, new ProcessorListener() {
+			@Override
+			public void message(String message) {
+				out.println(name + ": " + message);
+			}
+
+			@Override
+			public void progress(CourseProgress progress) {
+				// courses that take less than the interval never print any; the rest print now and then
+				long now = System.nanoTime();
+				long last = lastProgress.get();
+				if (!progress.isDone() && now - last >= PROGRESS_INTERVAL && lastProgress.compareAndSet(last, now)) {
+					out.println(name + ": " + progress);
+				}
+			}
+		});
+		processor.setOutputDirectory(outputDirectory);
+		processor.setExtractToDisk(extractToDisk);
+		processor.setAnalysisThreads(threadsPerCourse);
+		processor.setReportThreads(threadsPerCourse);
+		processor.setResultCache(cache);
+		processor.setReportMode(reportMode);
+		processor.setValidateExport(validateExports);
+		processor.setWatchdog(watchdog);
+
+		long start = System.nanoTime();
+		String error = null;
+		try {
+			run(processor);
+			if (processor.getReportFile() == null) {
+				error = "report couldn't be written";
+			}
+		} catch (ExecutionException e) {
+			error = e.getCause().toString();
+		} catch (TimeoutException e) {
+			error = e.getMessage();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			error = "interrupted";
+		}
+
+		bytesRead.addAndGet(export.length());
+		linksWritten.addAndGet(processor.getLinksWritten());
+		int done = finished.incrementAndGet();
+		String status = String.format("[%d/%d] %s: %s in %.1f s", done, exports.size(), name,
+				error == null ? "done" : "FAILED", (System.nanoTime() - start) / 1e9);
+		if (error != null) {
+			failures.add(name + ": " + error);
+			status += " (" + error + ")";
+		}
+		if (processor.getPipelineStats() != null) {
+			// shows which stage (reading the export, parsing, or writing the report) held the course up
+			status += "\n    " + processor.getPipelineStats();
+		}
+		// where the course's time went, phase by phase (-XX:StartFlightRecording records each one as an event too)
+		status += "\n    " + processor.getPhaseTimings();
+		out.println(status);
+	}
+
+	/**
+	 * Runs a course on a runner thread and waits for it to finish.
+	 *
+	 * @param processor The course.
+	 * @throws ExecutionException   If the course failed (or was aborted and stopped).
+	 * @throws TimeoutException     If it was aborted and didn't stop in time, so it was given up on.
+	 * @throws InterruptedException If the thread was interrupted while waiting.
+	 */
+	private void run(CourseProcessor processor) throws ExecutionException, TimeoutException, InterruptedException {
+		Future<Void> result = runners.submit(processor);
+		while (true) {
+			try {
+				result.get(1, TimeUnit.SECONDS);
+				return;
+			} catch (TimeoutException e) {
+				if (processor.getNanosSinceAbort() > ABANDON_AFTER) {
+					result.cancel(true);
+					throw new TimeoutException("abandoned: " + processor.getAbortReason() + ", and didn't stop within "
+							+ TimeUnit.NANOSECONDS.toSeconds(ABANDON_AFTER) + " s");
+				}
+			}
+		}
+	}
+
+	private void printSummary(long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+		int succeeded = exports.size() - failures.size();
+
+		out.println();
+		out.println(String.format("Processed %d of %d courses in %.1f s: %.1f courses/min, %.1f MB/s of exports, "
+						+ "%d links written", succeeded, exports.size(), seconds, succeeded / seconds * 60,
+				bytesRead.get() / seconds / (1024 * 1024), linksWritten.get()));
+
+		if (!failures.isEmpty()) {
+			out.println(failures.size() + " failed:");
+			ArrayList<String> sorted = new ArrayList<>(failures);
+			Collections.sort(sorted);
+			for (String f : sorted) {
+				out.println("  " + f);
+			}
+		}
+	}
+}
@@ -1,12 +1,18 @@
 package edu.nau.elc.hardlinks;
 
-import edu.nau.elc.hardlinks.domain.CourseProcessor;
+import edu.nau.elc.hardlinks.cache.ResultCache;
+import edu.nau.elc.hardlinks.domain.CourseProgress;
+import edu.nau.elc.hardlinks.domain.CourseWatchdog;
+import edu.nau.elc.hardlinks.profiling.PhaseBudgets;
+import edu.nau.elc.hardlinks.rules.LinkRules;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.text.DefaultCaret;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 
 
 /**
@@ -18,19 +24,36 @@ public class GetLinkWindow extends JFrame {
     private JButton browse;
     private JFrame frmGetTriageLinks;
     private JProgressBar progressBar;
+	private ResultCache cache;
+	// aborts a course that gets stuck, so its progress bar doesn't sit there forever
+	private final CourseWatchdog watchdog = new CourseWatchdog(new PhaseBudgets());
+
+	// progress bar steps per course
+	private static final int STEPS = 1000;
+
+	// the courses selected last time, and how far along each is; only touched on the event dispatch thread
+	private final LinkedHashMap<File, Double> courseFractions = new LinkedHashMap<>();
+	private int coursesRunning = 0;
 
     private GetLinkWindow() {
         initialize();
+        openCache();
     }
 
 	/**
 	 * The entry point of application.
 	 *
-	 * Constructs the GetLinkWindow object and waits for user input.
+	 * Constructs the GetLinkWindow object and waits for user input. If there are any arguments, no window is opened and
+	 * they're passed to {@link GetLinkBatch} instead.
 	 *
-	 * @param args Should be empty, all arguments are ignored.
+	 * @param args Empty to open the window, or batch mode's command line.
 	 */
 	public static void main(String[] args) {
+		if (args.length > 0) {
+			GetLinkBatch.main(args);
+			return;
+		}
+
         EventQueue.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager
@@ -86,6 +109,8 @@ public class GetLinkWindow extends JFrame {
         frmGetTriageLinks.getContentPane().add(scrollPane);
 
         progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
         frmGetTriageLinks.getContentPane().add(progressBar);
 
 		// define the browse button's behavior
@@ -93,6 +118,7 @@ public class GetLinkWindow extends JFrame {
 			browse.setEnabled(false);
 			browse.setText("Working...");
 			progressBar.setValue(0);
+			progressBar.setString("");
 
 			// we only want users to upload zip files
 			JFileChooser chooser = new JFileChooser();
@@ -118,8 +144,13 @@ public class GetLinkWindow extends JFrame {
 			// start processing selected files if we hit OK
 			if (returnVal == JFileChooser.APPROVE_OPTION) {
 				File[] selected = chooser.getSelectedFiles();
-				progressBar.setMaximum(selected.length);
+				courseFractions.clear();
 				for (File f : selected) {
+					courseFractions.put(f, 0.0);
+				}
+				coursesRunning = courseFractions.size();
+				progressBar.setMaximum(coursesRunning * STEPS);
+				for (File f : courseFractions.keySet()) {
 					runAnalysis(f);
 				}
 
@@ -133,8 +164,30 @@ public class GetLinkWindow extends JFrame {
     }
 
 	/**
-	 * Run once per ZIP file selected. Initiates background processing and registers a
-	 * listener for progress updates.
+	 * Opens the result cache that every course in this session shares, and saves it when the application exits. If it
+	 * can't be opened (e.g. another copy is already using it), every file is analyzed instead.
+	 */
+	private void openCache() {
+		try {
+			cache = new ResultCache(ResultCache.getDefaultDirectory(), LinkRules.getDefault().getFingerprint(),
+					ResultCache.DEFAULT_MAX_BYTES);
+		} catch (IOException e) {
+			println("Not using the result cache: " + e.getLocalizedMessage());
+			return;
+		}
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				cache.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}, "save result cache"));
+	}
+
+	/**
+	 * Run once per ZIP file selected. Initiates background processing, which reports back through
+	 * {@link #showProgress} and {@link #courseFinished}.
 	 *
 	 * @param selected The ZIP file to be processed.
 	 */
@@ -142,31 +195,57 @@ public class GetLinkWindow extends JFrame {
 		// this gets run once per file that the user selects
 
         try {
-            CourseProcessor current = new CourseProcessor(selected, this);
-
-            current.addPropertyChangeListener(e -> {
-                if ("progress".equals(e.getPropertyName())) {
-                    progressBar.setIndeterminate(false);
-					progressBar.setValue(progressBar.getValue() + 1);
-				}
-
-				// this checks to see if we've processed all of the files
-				// it's a bit fragile and a more robust "done!" tracking mechanism would be nice
-				if (progressBar.getValue() >= progressBar.getMaximum()) {
-                    progressBar.setValue(0);
-                    browse.setEnabled(true);
-                    browse.setText("Browse...");
-					textArea.append("All done!");
-				}
-			});
-
+            CourseWorker current = new CourseWorker(selected, cache, watchdog, this);
             current.execute();
 
         } catch (Exception e) {
             textArea.append(e.getLocalizedMessage());
+			courseFinished(selected);
         }
     }
 
+	/**
+	 * Moves the progress bar along for a course, and shows its items, links and time left on it. Must be called on
+	 * the event dispatch thread.
+	 *
+	 * @param course   The course's export.
+	 * @param progress How far along it is.
+	 */
+	void showProgress(File course, CourseProgress progress) {
+		// a late update from a course that's been finished (or from an earlier selection) can't move the bar back
+		Double before = courseFractions.get(course);
+		if (coursesRunning == 0 || before == null || progress.getFraction() < before) {
+			return;
+		}
+		courseFractions.put(course, progress.getFraction());
+
+		double total = 0;
+		for (double f : courseFractions.values()) {
+			total += f;
+		}
+		progressBar.setValue((int) (total * STEPS));
+		progressBar.setString(progress.isDone() ? "" : progress.getCourse() + ": " + progress);
+	}
+
+	/**
+	 * Counts a course as finished, whether it worked or not, and re-enables the Browse button once every selected
+	 * course is. Must be called on the event dispatch thread.
+	 *
+	 * @param course The course's export.
+	 */
+	void courseFinished(File course) {
+		courseFractions.put(course, 1.0);
+		if (--coursesRunning > 0) {
+			return;
+		}
+
+		progressBar.setValue(0);
+		progressBar.setString("");
+		browse.setEnabled(true);
+		browse.setText("Browse...");
+		textArea.append("All done!\n");
+	}
+
 	/**
 	 * Prints a message to the window's text area log.
 	 *
@@ -0,0 +1,122 @@
+package edu.nau.elc.hardlinks.archive;
+
+import java.util.regex.Matcher;
+
+/**
+ * A single file in a course export, independent of whether it's read straight out of the ZIP or from an extracted
+ * copy on disk.
+ */
+public class ArchiveEntry {
+
+	private final String path;
+	private final String physicalPath;
+	private final String xid;
+	private final long size;
+	private final long crc;
+
+	/**
+	 * Instantiates a new entry.
+	 *
+	 * @param path         The entry's path within the export, with xid suffixes removed and '/' as the separator.
+	 * @param physicalPath The path the entry is actually stored under (in the ZIP or in the extracted directory).
+	 * @param xid          The xid suffix that was removed from the filename (without "__xid-"), or null if it had none.
+	 * @param size         Uncompressed size in bytes, or -1 if unknown.
+	 * @param crc          CRC-32 of the uncompressed contents, or -1 if unknown.
+	 */
+	public ArchiveEntry(String path, String physicalPath, String xid, long size, long crc) {
+		this.path = path;
+		this.physicalPath = physicalPath;
+		this.xid = xid;
+		this.size = size;
+		this.crc = crc;
+	}
+
+	/**
+	 * Creates an entry for a file stored under a path that may contain xid suffixes. The suffixes are stripped from
+	 * every segment of the path, and the one on the filename itself is kept.
+	 *
+	 * @param physicalPath The path the entry is stored under in the ZIP, '/' separated.
+	 * @param size         Uncompressed size in bytes, or -1 if unknown.
+	 * @param crc          CRC-32 of the uncompressed contents, or -1 if unknown.
+	 * @return the new entry
+	 */
+	public static ArchiveEntry fromPhysicalPath(String physicalPath, long size, long crc) {
+		if (physicalPath.indexOf("__xid-") == -1) {
+			return new ArchiveEntry(physicalPath, physicalPath, null, size, crc);
+		}
+
+		int nameStart = physicalPath.lastIndexOf('/') + 1;
+		String xid = null;
+		Matcher m = CourseArchive.XID_PATTERN.matcher(physicalPath);
+		StringBuffer path = new StringBuffer(physicalPath.length());
+		while (m.find()) {
+			if (m.start() >= nameStart) {
+				xid = physicalPath.substring(m.start() + "__xid-".length(), m.end());
+			}
+			m.appendReplacement(path, "");
+		}
+		m.appendTail(path);
+
+		return new ArchiveEntry(path.toString(), physicalPath, xid, size, crc);
+	}
+
+	/**
+	 * Gets the entry's path within the export (xid suffixes removed, '/' separated, no leading slash).
+	 *
+	 * @return the path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the path the entry is stored under.
+	 *
+	 * @return the physical path
+	 */
+	public String getPhysicalPath() {
+		return physicalPath;
+	}
+
+	/**
+	 * Gets the filename (last segment of the path).
+	 *
+	 * @return the filename
+	 */
+	public String getName() {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * Gets the xid that was stripped from the filename, if there was one. This is the same xid the CMS uses to link
+	 * to the file.
+	 *
+	 * @return the xid (e.g. "1234567_1"), or null
+	 */
+	public String getXid() {
+		return xid;
+	}
+
+	/**
+	 * Gets the uncompressed size.
+	 *
+	 * @return the size in bytes, or -1 if unknown
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the CRC-32 of the uncompressed contents.
+	 *
+	 * @return the CRC, or -1 if unknown
+	 */
+	public long getCrc() {
+		return crc;
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+}
@@ -0,0 +1,31 @@
+package edu.nau.elc.hardlinks.archive;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an export is too broken to analyze: it isn't a ZIP, its central directory doesn't add up, or the files
+ * that every course needs don't inflate to what the directory says they should.
+ */
+public class CorruptExportException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Instantiates a new exception.
+	 *
+	 * @param message What's wrong with the export.
+	 */
+	public CorruptExportException(String message) {
+		super(message);
+	}
+
+	/**
+	 * Instantiates a new exception caused by another one.
+	 *
+	 * @param message What's wrong with the export.
+	 * @param cause   The error that showed it.
+	 */
+	public CorruptExportException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,55 @@
+package edu.nau.elc.hardlinks.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Read access to the files in a course export (ExportFile_...zip). Implementations either read the entries in place
+ * from the ZIP or extract them to a temp directory first.
+ */
+public interface CourseArchive extends Closeable {
+
+	/**
+	 * Content collection filenames have "__xid-NNNNNNN_N" appended to their names (and folder names) in the export.
+	 */
+	Pattern XID_PATTERN = Pattern.compile("__xid-[0-9]{6,8}_[0-9]");
+
+	/**
+	 * Gets the inventory of every file (not directory) in the export, built while the entries were listed.
+	 * Names are mapped to their xid-stripped form in memory; nothing is renamed on disk.
+	 *
+	 * @return the inventory
+	 */
+	ExportInventory getInventory();
+
+	/**
+	 * Gets every file (not directory) in the export.
+	 *
+	 * @return all entries, in the order the archive lists them
+	 */
+	default List<ArchiveEntry> getEntries() {
+		return getInventory().getEntries();
+	}
+
+	/**
+	 * Gets an entry by its (xid-stripped) path. If two entries strip to the same path, the first one wins.
+	 *
+	 * @param path The entry's path within the export, '/' separated.
+	 * @return the entry, or null if there isn't one
+	 */
+	default ArchiveEntry getEntry(String path) {
+		return getInventory().getEntry(path);
+	}
+
+	/**
+	 * Opens an entry for reading. The caller must close the stream.
+	 *
+	 * @param entry The entry to read.
+	 * @return the uncompressed contents of the entry
+	 * @throws IOException If the entry can't be read.
+	 */
+	InputStream open(ArchiveEntry entry) throws IOException;
+}
@@ -0,0 +1,113 @@
+package edu.nau.elc.hardlinks.archive;
+
+import java.util.*;
+
+/**
+ * Every file in a course export, bucketed by extension as the entries are listed (from the ZIP's central directory,
+ * or while extracting). All later "give me every .dat file" style queries are answered from the buckets, so the
+ * export is only ever enumerated once no matter how many files it has.
+ */
+public class ExportInventory {
+
+	private final ArrayList<ArchiveEntry> entries = new ArrayList<>();
+	private final HashMap<String, ArchiveEntry> entriesByPath = new HashMap<>();
+	private final HashMap<String, ArrayList<ArchiveEntry>> entriesByExt = new HashMap<>();
+	private long totalSize = 0;
+
+	/**
+	 * Gets a file's extension the way this tool always has: everything from the last '.', as long as the '.' isn't
+	 * one of the first two characters of the name, case-sensitive.
+	 *
+	 * @param filename The filename (not the whole path).
+	 * @return the extension including the '.', or an empty string if there isn't one
+	 */
+	public static String getExtension(String filename) {
+		int extStart = filename.lastIndexOf('.');
+		if (extStart > 1) {
+			return filename.substring(extStart);
+		}
+		return "";
+	}
+
+	/**
+	 * Adds an entry to the inventory. If another entry already has the same (xid-stripped) path, it stays the one
+	 * returned by {@link #getEntry(String)}.
+	 *
+	 * @param entry The entry to add.
+	 */
+	void add(ArchiveEntry entry) {
+		entries.add(entry);
+		entriesByPath.putIfAbsent(entry.getPath(), entry);
+		entriesByExt.computeIfAbsent(getExtension(entry.getName()), k -> new ArrayList<>()).add(entry);
+		if (entry.getSize() > 0) {
+			totalSize += entry.getSize();
+		}
+	}
+
+	/**
+	 * Gets every file in the export.
+	 *
+	 * @return all entries, in the order the archive lists them
+	 */
+	public List<ArchiveEntry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Gets an entry by its (xid-stripped) path.
+	 *
+	 * @param path The entry's path within the export, '/' separated.
+	 * @return the entry, or null if there isn't one
+	 */
+	public ArchiveEntry getEntry(String path) {
+		return entriesByPath.get(path);
+	}
+
+	/**
+	 * Gets all files with a given extension.
+	 *
+	 * @param ext The extension, including the '.' (e.g. ".dat").
+	 * @return the matching entries in archive order, empty if there are none
+	 */
+	public List<ArchiveEntry> getFilesOfExt(String ext) {
+		ArrayList<ArchiveEntry> found = entriesByExt.get(ext);
+		if (found == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(found);
+	}
+
+	/**
+	 * Gets the total size of all files with a given extension.
+	 *
+	 * @param ext The extension, including the '.' (e.g. ".dat").
+	 * @return the uncompressed size in bytes of all matching entries whose size is known
+	 */
+	public long getTotalSize(String ext) {
+		long size = 0;
+		for (ArchiveEntry e : getFilesOfExt(ext)) {
+			if (e.getSize() > 0) {
+				size += e.getSize();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Gets the total uncompressed size of the export.
+	 *
+	 * @return the size in bytes of all entries whose size is known
+	 */
+	public long getTotalSize() {
+		return totalSize;
+	}
+
+	/**
+	 * Gets the number of files in the export.
+	 *
+	 * @return the file count
+	 */
+	public int getFileCount() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,169 @@
+package edu.nau.elc.hardlinks.archive;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Checks an export before anything else reads it, so a broken one fails in seconds instead of part of the way through
+ * (or, for some kinds of corruption, after running for half an hour). Every entry in the central directory has to
+ * have sizes that make sense for the file they're in, imsmanifest.xml has to be there, and the manifest and a sample
+ * of .dat files spread through the export are inflated and checked against their CRCs.
+ * <br><br>
+ * This doesn't prove every file is intact; a damaged file that isn't in the sample is still only found when it's
+ * read. It catches truncated and mangled exports, which are the ones that cause trouble.
+ */
+public class ExportValidator {
+
+	/**
+	 * How many .dat files are checked by default.
+	 */
+	public static final int DEFAULT_SPOT_CHECKS = 32;
+
+	/**
+	 * How many bytes of .dat files are inflated at most, by default.
+	 */
+	public static final long DEFAULT_MAX_CHECKED_BYTES = 32L * 1024 * 1024;
+
+	private int spotChecks = DEFAULT_SPOT_CHECKS;
+	private long maxCheckedBytes = DEFAULT_MAX_CHECKED_BYTES;
+
+	/**
+	 * Sets how many .dat files are inflated and checked, besides the manifest.
+	 *
+	 * @param spotChecks The number of files, or 0 to only check the manifest.
+	 */
+	public void setSpotChecks(int spotChecks) {
+		this.spotChecks = spotChecks;
+	}
+
+	/**
+	 * Sets how many bytes of .dat files are inflated at most, so exports with huge .dat files are still checked
+	 * quickly.
+	 *
+	 * @param maxCheckedBytes Uncompressed bytes.
+	 */
+	public void setMaxCheckedBytes(long maxCheckedBytes) {
+		this.maxCheckedBytes = maxCheckedBytes;
+	}
+
+	/**
+	 * Checks an export.
+	 *
+	 * @param export The ExportFile_...zip.
+	 * @throws CorruptExportException If it's broken.
+	 * @throws IOException            If it can't be read at all (e.g. it doesn't exist).
+	 */
+	public void validate(File export) throws IOException {
+		if (!export.isFile()) {
+			throw new IOException("No such file: " + export);
+		}
+		long length = export.length();
+
+		ZipFile zip;
+		try {
+			zip = new ZipFile(export);
+		} catch (ZipException e) {
+			throw new CorruptExportException(export.getName() + " isn't a readable ZIP file: " + e.getMessage(), e);
+		}
+
+		try {
+			ZipEntry manifest = null;
+			ArrayList<ZipEntry> datFiles = new ArrayList<>();
+			int entries = 0;
+
+			Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+			while (zipEntries.hasMoreElements()) {
+				ZipEntry ze = zipEntries.nextElement();
+				entries++;
+				checkSizes(export, ze, length);
+				if (ze.isDirectory()) {
+					continue;
+				}
+
+				if (ze.getName().equals("imsmanifest.xml")) {
+					manifest = ze;
+				} else if (ze.getName().endsWith(".dat")) {
+					datFiles.add(ze);
+				}
+			}
+
+			if (entries == 0) {
+				throw new CorruptExportException(export.getName() + " is an empty ZIP file");
+			}
+			if (manifest == null) {
+				throw new CorruptExportException("imsmanifest.xml is missing from " + export.getName());
+			}
+
+			byte[] buffer = new byte[64 * 1024];
+			checkCrc(export, zip, manifest, buffer);
+
+			// the first and last, and evenly spaced ones in between, so a truncated end is caught as well as a bad start
+			int checks = Math.min(spotChecks, datFiles.size());
+			long checked = 0;
+			for (int i = 0; i < checks; i++) {
+				int pick = checks == 1 ? 0 : (int) ((long) i * (datFiles.size() - 1) / (checks - 1));
+				ZipEntry ze = datFiles.get(pick);
+				if (checked + ze.getSize() > maxCheckedBytes) {
+					continue;
+				}
+				checkCrc(export, zip, ze, buffer);
+				checked += ze.getSize();
+			}
+		} finally {
+			zip.close();
+		}
+	}
+
+	private static void checkSizes(File export, ZipEntry ze, long length) throws CorruptExportException {
+		long size = ze.getSize();
+		long compressed = ze.getCompressedSize();
+		if (size < 0 || compressed < 0) {
+			throw new CorruptExportException(ze.getName() + " in " + export.getName()
+					+ " has no size in the central directory");
+		}
+		if (compressed > length) {
+			throw new CorruptExportException(ze.getName() + " in " + export.getName() + " says it's " + compressed
+					+ " bytes compressed, but the whole export is only " + length);
+		}
+		if (ze.getMethod() == ZipEntry.STORED && size != compressed) {
+			throw new CorruptExportException(ze.getName() + " in " + export.getName()
+					+ " is stored uncompressed, but its sizes don't match");
+		}
+	}
+
+	private static void checkCrc(File export, ZipFile zip, ZipEntry ze, byte[] buffer) throws IOException {
+		CRC32 crc = new CRC32();
+		long size = 0;
+		try {
+			InputStream in = zip.getInputStream(ze);
+			try {
+				int n;
+				while ((n = in.read(buffer)) != -1) {
+					crc.update(buffer, 0, n);
+					size += n;
+				}
+			} finally {
+				in.close();
+			}
+		} catch (ZipException | EOFException e) {
+			throw new CorruptExportException(ze.getName() + " in " + export.getName() + " can't be inflated: "
+					+ e.getMessage(), e);
+		}
+
+		if (size != ze.getSize()) {
+			throw new CorruptExportException(ze.getName() + " in " + export.getName() + " inflates to " + size
+					+ " bytes, but the central directory says " + ze.getSize());
+		}
+		if (ze.getCrc() != -1 && crc.getValue() != ze.getCrc()) {
+			throw new CorruptExportException(ze.getName() + " in " + export.getName() + " fails its CRC check");
+		}
+	}
+}
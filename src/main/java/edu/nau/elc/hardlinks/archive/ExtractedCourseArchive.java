@@ -0,0 +1,126 @@
+package edu.nau.elc.hardlinks.archive;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Extracts a course export to a temp directory and reads the files from there. This is how the tool always used to
+ * work; it's kept for exports that can only be read sequentially. Files keep their real (xid-suffixed) names on disk,
+ * and the entries are recorded while extracting, so the directory is never walked or renamed. The temp directory is
+ * deleted on close.
+ */
+public class ExtractedCourseArchive implements CourseArchive {
+
+	private final File outFolder;
+	private final ExportInventory inventory = new ExportInventory();
+
+	/**
+	 * Extracts an export to a new temp directory. If it can't all be extracted, the directory is deleted again.
+	 *
+	 * @param export The ExportFile_...zip.
+	 * @throws IOException If the ZIP can't be read or the temp directory can't be written.
+	 */
+	public ExtractedCourseArchive(File export) throws IOException {
+		String timeStamp = new SimpleDateFormat("yyyyMMddHHmmss").format(new java.util.Date());
+		outFolder = Files.createTempDirectory("restructure_" + timeStamp).toFile();
+
+		try {
+			extractAllFiles(export.getAbsolutePath(), outFolder.getAbsolutePath());
+		} catch (IOException | RuntimeException e) {
+			// nothing can close an archive that was never made, so whatever was extracted has to go now
+			deleteDirectory(outFolder);
+			throw e;
+		}
+	}
+
+	@Override
+	public ExportInventory getInventory() {
+		return inventory;
+	}
+
+	@Override
+	public InputStream open(ArchiveEntry entry) throws IOException {
+		return new BufferedInputStream(new FileInputStream(
+				new File(outFolder, entry.getPhysicalPath().replace('/', File.separatorChar))));
+	}
+
+	@Override
+	public void close() {
+		deleteDirectory(outFolder);
+	}
+
+	/**
+	 * Extract's all ZIP files to a directory, preserving the internal structure of the archive, and records an entry
+	 * for each file.
+	 * @param file ZIP file to extract.
+	 * @param outputDir Directory to output to.
+	 * @throws IOException
+	 */
+	private void extractAllFiles(String file, String outputDir)
+			throws IOException {
+		byte[] buffer = new byte[4096];
+
+		File outFolder = new File(outputDir);
+		if (!outFolder.exists()) outFolder.mkdir();
+
+		// closed even when extraction fails part of the way through, so the files can be deleted
+		ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(file));
+		try {
+			ZipEntry entry = zipInputStream.getNextEntry();
+
+			while (entry != null) {
+				String filename = entry.getName();
+				File extracted = new File(outFolder.getAbsolutePath() + File.separatorChar + filename);
+				if (entry.isDirectory()) {
+					extracted.mkdirs();
+					entry = zipInputStream.getNextEntry();
+					continue;
+				}
+				extracted.getParentFile().mkdirs();
+
+				FileOutputStream outputStream = new FileOutputStream(extracted);
+				try {
+					int length;
+					while ((length = zipInputStream.read(buffer)) > 0) {
+						outputStream.write(buffer, 0, length);
+					}
+
+					outputStream.flush();
+				} finally {
+					outputStream.close();
+				}
+
+				zipInputStream.closeEntry();
+
+				// the size and CRC are only known once the entry has been read if the ZIP uses data descriptors
+				ArchiveEntry archiveEntry = ArchiveEntry.fromPhysicalPath(filename, entry.getSize(), entry.getCrc());
+				inventory.add(archiveEntry);
+
+				entry = zipInputStream.getNextEntry();
+			}
+		} finally {
+			zipInputStream.close();
+		}
+	}
+
+	/**
+	 * Delete directory and all contained files and subdirectories (recursive, will StackOverflow on <b>very</b> deep
+	 * trees.
+	 * @param dir Directory to delete.
+	 */
+	private void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    deleteDirectory(f);
+                }
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+}
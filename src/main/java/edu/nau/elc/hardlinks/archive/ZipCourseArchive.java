@@ -0,0 +1,59 @@
+package edu.nau.elc.hardlinks.archive;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads a course export in place. The entry list comes from the ZIP's central directory, and each entry is inflated
+ * only when it's opened, so nothing is ever written to disk.
+ */
+public class ZipCourseArchive implements CourseArchive {
+
+	private final ZipFile zip;
+	private final ExportInventory inventory = new ExportInventory();
+
+	/**
+	 * Opens an export for reading.
+	 *
+	 * @param export The ExportFile_...zip.
+	 * @throws IOException If the ZIP can't be opened or its central directory can't be read.
+	 */
+	public ZipCourseArchive(File export) throws IOException {
+		zip = new ZipFile(export);
+
+		Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+		while (zipEntries.hasMoreElements()) {
+			ZipEntry ze = zipEntries.nextElement();
+			if (ze.isDirectory()) {
+				continue;
+			}
+
+			ArchiveEntry entry = ArchiveEntry.fromPhysicalPath(ze.getName(), ze.getSize(), ze.getCrc());
+			inventory.add(entry);
+		}
+	}
+
+	@Override
+	public ExportInventory getInventory() {
+		return inventory;
+	}
+
+	@Override
+	public InputStream open(ArchiveEntry entry) throws IOException {
+		ZipEntry ze = zip.getEntry(entry.getPhysicalPath());
+		if (ze == null) {
+			throw new IOException("No such entry in " + zip.getName() + ": " + entry.getPhysicalPath());
+		}
+		return new BufferedInputStream(zip.getInputStream(ze));
+	}
+
+	@Override
+	public void close() throws IOException {
+		zip.close();
+	}
+}
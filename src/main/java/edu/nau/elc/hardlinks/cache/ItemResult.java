@@ -0,0 +1,160 @@
+package edu.nau.elc.hardlinks.cache;
+
+import edu.nau.elc.hardlinks.rules.LinkCategory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What analyzing one file found, kept so the same file doesn't have to be analyzed again: the links pulled out of it
+ * and how each was classified, plus the title and content area a content item's XML gave it. Only things that depend
+ * on nothing but the file (and the rules) are kept; xids and course paths are still looked up for every course.
+ */
+public class ItemResult {
+
+	/**
+	 * A link and the category the rules put it in.
+	 */
+	public static class ClassifiedLink {
+		private final LinkCategory category;
+		private final String url;
+		private final String text;
+
+		/**
+		 * Instantiates a new classified link.
+		 *
+		 * @param category The category the rules put the link in.
+		 * @param url      The cleaned-up URL.
+		 * @param text     The link text or alt text (prefixed with "text: " or "alt: ").
+		 */
+		public ClassifiedLink(LinkCategory category, String url, String text) {
+			this.category = category;
+			this.url = url;
+			this.text = text;
+		}
+
+		/**
+		 * Gets the category the rules put the link in.
+		 *
+		 * @return the category
+		 */
+		public LinkCategory getCategory() {
+			return category;
+		}
+
+		/**
+		 * Gets the cleaned-up URL.
+		 *
+		 * @return the URL
+		 */
+		public String getUrl() {
+			return url;
+		}
+
+		/**
+		 * Gets the link text or alt text.
+		 *
+		 * @return the text
+		 */
+		public String getText() {
+			return text;
+		}
+	}
+
+	private final String name;
+	private final String contentPath;
+	private final List<ClassifiedLink> links;
+
+	/**
+	 * Instantiates a new result.
+	 *
+	 * @param name        The item's title, or null if it comes from the filename rather than the file.
+	 * @param contentPath The content area the file says it's in, or an empty string if it doesn't say.
+	 * @param links       Every link found, in the order they were found.
+	 */
+	public ItemResult(String name, String contentPath, List<ClassifiedLink> links) {
+		this.name = name;
+		this.contentPath = contentPath;
+		this.links = Collections.unmodifiableList(links);
+	}
+
+	/**
+	 * Gets the item's title.
+	 *
+	 * @return the title, or null if it comes from the filename
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the content area the file says it's in.
+	 *
+	 * @return the content area, or an empty string
+	 */
+	public String getContentPath() {
+		return contentPath;
+	}
+
+	/**
+	 * Gets every link found in the file.
+	 *
+	 * @return the links, in the order they were found
+	 */
+	public List<ClassifiedLink> getLinks() {
+		return links;
+	}
+
+	byte[] toBytes() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + links.size() * 96);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeBoolean(name != null);
+		if (name != null) {
+			writeString(out, name);
+		}
+		writeString(out, contentPath);
+		out.writeInt(links.size());
+		for (ClassifiedLink l : links) {
+			// by name, so reordering the enum can't mix up categories
+			out.writeUTF(l.category.name());
+			writeString(out, l.url);
+			writeString(out, l.text);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	static ItemResult fromBytes(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		String name = in.readBoolean() ? readString(in) : null;
+		String contentPath = readString(in);
+		int count = in.readInt();
+		ArrayList<ClassifiedLink> links = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			LinkCategory category;
+			try {
+				category = LinkCategory.valueOf(in.readUTF());
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Unknown link category in cache", e);
+			}
+			links.add(new ClassifiedLink(category, readString(in), readString(in)));
+		}
+		return new ItemResult(name, contentPath, links);
+	}
+
+	// writeUTF() can't hold more than 64 KB, and link text can be longer than that
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(utf8.length);
+		out.write(utf8);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] utf8 = new byte[in.readInt()];
+		in.readFully(utf8);
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+}
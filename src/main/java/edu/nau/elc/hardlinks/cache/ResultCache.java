@@ -0,0 +1,405 @@
+package edu.nau.elc.hardlinks.cache;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers what analyzing each .dat and HTML file found, across runs, so a course that's exported again only has its
+ * changed files analyzed. Files are recognized by the CRC-32 and size in the export's central directory, so an
+ * unchanged file doesn't even have to be inflated.
+ * <br><br>
+ * Results are appended to one file in the cache directory as they come in, and an index of where each one is lives in
+ * memory. Once the results add up to more than the size cap, the least recently used ones are dropped, and the file is
+ * rewritten without them (oldest first, so the order survives to the next run) when the cache is closed. The file
+ * also records the fingerprint of the rules the links were classified with; opening the cache with different rules
+ * throws everything away and starts over.
+ * <br><br>
+ * Safe to share between processors running at the same time. Only one process can have a cache directory open.
+ */
+public class ResultCache implements Closeable {
+
+	/**
+	 * The size cap used if none is given, in bytes.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	/**
+	 * Gets the directory the cache is kept in unless another one is given: ".nau-link-analyzer/cache" in the user's
+	 * home directory.
+	 *
+	 * @return the default cache directory
+	 */
+	public static File getDefaultDirectory() {
+		return new File(new File(System.getProperty("user.home"), ".nau-link-analyzer"), "cache");
+	}
+
+	/**
+	 * What was analyzed, and how. The same file gives different results as a content item or as an HTML file, and the
+	 * HTML in either is parsed differently by the streaming tokenizer and by Jsoup.
+	 */
+	public enum Kind {
+		CONTENT_ITEM_STREAMING, CONTENT_ITEM_JSOUP, HTML_STREAMING, HTML_JSOUP
+	}
+
+	private static final String DATA_FILE = "results.bin";
+	private static final String LOCK_FILE = "results.lock";
+
+	// changes whenever the file format does, so old files are thrown away rather than misread
+	private static final int MAGIC = 0x484c5232;
+
+	// every record: int body length, int CRC-32 of the body, then the body: long crc, long size, byte kind, payload
+	private static final int RECORD_HEADER = 8;
+	private static final int KEY_LENGTH = 17;
+
+	private static final class Key {
+		private final long crc;
+		private final long size;
+		private final Kind kind;
+
+		Key(long crc, long size, Kind kind) {
+			this.crc = crc;
+			this.size = size;
+			this.kind = kind;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) o;
+			return crc == k.crc && size == k.size && kind == k.kind;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (crc ^ (crc >>> 32)) * 31 + (int) (size ^ (size >>> 32)) * 7 + kind.ordinal();
+		}
+	}
+
+	private static final class Slot {
+		private final long offset;
+		private final int length;
+
+		Slot(long offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	private final Path dataFile;
+	private final String fingerprint;
+	private final long maxBytes;
+	private final FileChannel lockChannel;
+	private final FileLock lock;
+	private FileChannel channel;
+
+	// least recently used first
+	private final LinkedHashMap<Key, Slot> index = new LinkedHashMap<>(1024, 0.75f, true);
+	private long liveBytes = 0;
+	private long headerLength;
+	private long end;
+	private boolean reordered = false;
+
+	/**
+	 * Opens (or creates) the cache in a directory.
+	 *
+	 * @param directory   The directory to keep the cache in. Is created if it doesn't exist.
+	 * @param fingerprint The fingerprint of the rules links are classified with (see
+	 *                    {@link edu.nau.elc.hardlinks.rules.LinkRules#getFingerprint()}). If the cache was built with
+	 *                    different rules, it's emptied.
+	 * @param maxBytes    How big the results are allowed to get, in bytes.
+	 * @throws IOException If the directory can't be used, or another process has the cache open.
+	 */
+	public ResultCache(File directory, String fingerprint, long maxBytes) throws IOException {
+		this.fingerprint = fingerprint;
+		this.maxBytes = maxBytes;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Can't create cache directory " + directory);
+		}
+		dataFile = new File(directory, DATA_FILE).toPath();
+
+		lockChannel = FileChannel.open(new File(directory, LOCK_FILE).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE);
+		lock = lockChannel.tryLock();
+		if (lock == null) {
+			lockChannel.close();
+			throw new IOException("Cache " + directory + " is in use by another process");
+		}
+
+		try {
+			channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			load();
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the fingerprint of the rules the cached links were classified with.
+	 *
+	 * @return the rules fingerprint
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Looks up what a file was found to contain last time.
+	 *
+	 * @param crc  The file's CRC-32.
+	 * @param size The file's uncompressed size.
+	 * @param kind How the file is analyzed.
+	 * @return the cached result, or null if there isn't one
+	 * @throws IOException If the cache can't be read.
+	 */
+	public ItemResult get(long crc, long size, Kind kind) throws IOException {
+		Key key = new Key(crc, size, kind);
+		ByteBuffer record;
+		synchronized (this) {
+			Slot slot = index.get(key);
+			if (slot == null) {
+				return null;
+			}
+			reordered = true;
+			record = read(slot);
+		}
+
+		int length = record.getInt();
+		int checksum = record.getInt();
+		byte[] body = new byte[length];
+		record.get(body);
+		ItemResult result = null;
+		if (checksum(body) == checksum && length >= KEY_LENGTH) {
+			try {
+				result = ItemResult.fromBytes(Arrays.copyOfRange(body, KEY_LENGTH, body.length));
+			} catch (IOException | RuntimeException e) {
+				// damaged; dropped below
+			}
+		}
+		if (result == null) {
+			synchronized (this) {
+				Slot removed = index.remove(key);
+				if (removed != null) {
+					liveBytes -= removed.length;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Checks whether there's a result for a file without reading it, e.g. to decide whether to inflate the file.
+	 *
+	 * @param crc  The file's CRC-32.
+	 * @param size The file's uncompressed size.
+	 * @param kind How the file is analyzed.
+	 * @return true if {@link #get} will probably find it
+	 */
+	public synchronized boolean contains(long crc, long size, Kind kind) {
+		return index.containsKey(new Key(crc, size, kind));
+	}
+
+	/**
+	 * Saves what a file was found to contain, replacing anything already saved for it. If the cache is over its size
+	 * cap afterwards, the least recently used results are dropped.
+	 *
+	 * @param crc    The file's CRC-32.
+	 * @param size   The file's uncompressed size.
+	 * @param kind   How the file was analyzed.
+	 * @param result What was found.
+	 * @throws IOException If the cache can't be written.
+	 */
+	public void put(long crc, long size, Kind kind, ItemResult result) throws IOException {
+		byte[] payload = result.toBytes();
+		ByteBuffer body = ByteBuffer.allocate(KEY_LENGTH + payload.length);
+		body.putLong(crc).putLong(size).put((byte) kind.ordinal()).put(payload);
+
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + body.capacity());
+		record.putInt(body.capacity()).putInt(checksum(body.array())).put(body.array());
+		record.flip();
+
+		synchronized (this) {
+			long offset = end;
+			while (record.hasRemaining()) {
+				end += channel.write(record, end);
+			}
+
+			Slot old = index.put(new Key(crc, size, kind), new Slot(offset, record.capacity()));
+			if (old != null) {
+				liveBytes -= old.length;
+			}
+			liveBytes += record.capacity();
+			reordered = true;
+
+			// drop down to 3/4 of the cap, so it's not dropping something every time something's added
+			if (liveBytes > maxBytes) {
+				Iterator<Map.Entry<Key, Slot>> eldest = index.entrySet().iterator();
+				while (liveBytes > maxBytes * 3 / 4 && eldest.hasNext()) {
+					liveBytes -= eldest.next().getValue().length;
+					eldest.remove();
+				}
+			}
+
+			// don't let the dropped results pile up in the file during a long run
+			if (end - headerLength > maxBytes * 2) {
+				compact();
+			}
+		}
+	}
+
+	/**
+	 * Writes out the cache without the results that have been dropped, in least recently used order, and releases the
+	 * directory.
+	 *
+	 * @throws IOException If the cache can't be written.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			if (channel != null && channel.isOpen() && (reordered || end - headerLength > liveBytes)) {
+				compact();
+			}
+		} finally {
+			if (channel != null) {
+				channel.close();
+			}
+			lock.release();
+			lockChannel.close();
+		}
+	}
+
+	/**
+	 * Reads the index out of the file, or starts the file over if it was written with other rules or another format.
+	 * Anything after the last complete record (e.g. if a run was killed while writing) is cut off.
+	 */
+	private void load() throws IOException {
+		byte[] header = header();
+		headerLength = header.length;
+		long size = channel.size();
+
+		ByteBuffer existing = ByteBuffer.allocate(header.length);
+		while (existing.hasRemaining() && channel.read(existing, existing.position()) > 0) {
+			// keep reading
+		}
+		if (existing.hasRemaining() || !Arrays.equals(existing.array(), header)) {
+			channel.truncate(0);
+			channel.write(ByteBuffer.wrap(header), 0);
+			end = headerLength;
+			return;
+		}
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				Channels.newInputStream(channel.position(headerLength)), 65536));
+		long offset = headerLength;
+		while (offset + RECORD_HEADER + KEY_LENGTH <= size) {
+			int length = in.readInt();
+			in.readInt(); // checksum, checked when the record's read
+			if (length < KEY_LENGTH || offset + RECORD_HEADER + length > size) {
+				break;
+			}
+			long crc = in.readLong();
+			long entrySize = in.readLong();
+			int kind = in.readUnsignedByte();
+			if (kind >= Kind.values().length) {
+				break;
+			}
+			in.skipBytes(length - KEY_LENGTH);
+
+			int recordLength = RECORD_HEADER + length;
+			Slot old = index.put(new Key(crc, entrySize, Kind.values()[kind]), new Slot(offset, recordLength));
+			if (old != null) {
+				liveBytes -= old.length;
+			}
+			liveBytes += recordLength;
+			offset += recordLength;
+		}
+
+		end = offset;
+		if (end < size) {
+			channel.truncate(end);
+		}
+	}
+
+	private byte[] header() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(bytes);
+		header.writeInt(MAGIC);
+		header.writeUTF(fingerprint);
+		header.flush();
+		return bytes.toByteArray();
+	}
+
+	private ByteBuffer read(Slot slot) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(slot.length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, slot.offset + buffer.position()) < 0) {
+				throw new EOFException("Cache file is shorter than its index");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Rewrites the file with only the results still in the index, least recently used first, and swaps it in.
+	 */
+	private void compact() throws IOException {
+		Path temp = dataFile.resolveSibling(DATA_FILE + ".tmp");
+		LinkedHashMap<Key, Slot> moved = new LinkedHashMap<>(index.size() * 2, 0.75f, true);
+
+		FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		try {
+			out.write(ByteBuffer.wrap(header()), 0);
+			long position = headerLength;
+			for (Map.Entry<Key, Slot> e : index.entrySet()) {
+				Slot slot = e.getValue();
+				long copied = 0;
+				while (copied < slot.length) {
+					copied += channel.transferTo(slot.offset + copied, slot.length - copied, out.position(position + copied));
+				}
+				moved.put(e.getKey(), new Slot(position, slot.length));
+				position += slot.length;
+			}
+			out.force(true);
+			end = position;
+		} finally {
+			out.close();
+		}
+
+		// the old file has to be closed before it can be replaced on Windows
+		channel.close();
+		try {
+			Files.move(temp, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, dataFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+		channel = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		index.clear();
+		index.putAll(moved);
+		reordered = false;
+	}
+
+	private static int checksum(byte[] body) {
+		CRC32 crc = new CRC32();
+		crc.update(body, 0, body.length);
+		return (int) crc.getValue();
+	}
+}
@@ -0,0 +1,31 @@
+package edu.nau.elc.hardlinks.domain;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link CourseProcessor#call()} when the course was aborted part of the way through, e.g. by a
+ * {@link CourseWatchdog} because a phase took too long.
+ */
+public class CourseAbortedException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Instantiates a new exception.
+	 *
+	 * @param reason Why the course was aborted.
+	 */
+	public CourseAbortedException(String reason) {
+		super(reason);
+	}
+
+	/**
+	 * Instantiates a new exception for an error the abort caused (like reading from the export after it was closed).
+	 *
+	 * @param reason Why the course was aborted.
+	 * @param cause  The error.
+	 */
+	public CourseAbortedException(String reason, Throwable cause) {
+		super(reason, cause);
+	}
+}
@@ -1,40 +1,53 @@
 package edu.nau.elc.hardlinks.domain;
 
-import edu.nau.elc.hardlinks.xml.DatHandler;
+import edu.nau.elc.hardlinks.archive.ArchiveEntry;
+import edu.nau.elc.hardlinks.cache.ItemResult;
+import edu.nau.elc.hardlinks.html.HtmlMode;
+import edu.nau.elc.hardlinks.html.LinkListener;
+import edu.nau.elc.hardlinks.html.LinkTokenizer;
+import edu.nau.elc.hardlinks.profiling.Phase;
+import edu.nau.elc.hardlinks.profiling.PhaseSpan;
+import edu.nau.elc.hardlinks.rules.LinkCategory;
 import edu.nau.elc.hardlinks.xml.HardlinkHandler;
+import edu.nau.elc.hardlinks.xml.XmlParsers;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.input.CharSequenceReader;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
-import javax.xml.parsers.*;
 import java.io.*;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 /**
- * Represents a single item in the course (Item, Assignment, Test, Blank Page, etc.), and contains
- * all Links that come from that item.
+ * Represents a single item in the course (Item, Assignment, Test, Blank Page, etc.), and knows where all Links that
+ * come from that item are in the course's {@link LinkStore}.
  */
 public class CourseItem implements Comparable<CourseItem> {
-	private static DocumentBuilder documentBuilder;
-	private static SAXParserFactory factory = SAXParserFactory.newInstance();
-	private static SAXParser saxParser;
+	// tokenizers keep state between calls, so each thread analyzing items gets its own
+	private static final ThreadLocal<LinkTokenizer> tokenizers = ThreadLocal.withInitial(LinkTokenizer::new);
+	// and so do URL normalizers
+	private static final ThreadLocal<UrlNormalizer> normalizers = ThreadLocal.withInitial(UrlNormalizer::new);
 
-	private final ArrayList<Link> discardedURLs = new ArrayList<>();
 	private final String extension;
-	private final ArrayList<Link> foundLinks = new ArrayList<>();
-	private final ArrayList<Link> xidLinks = new ArrayList<>();
 	private final CourseProcessor parent;
+	// the item's links are consecutive rows in the store: hard, then x-id, then discarded
+	private int firstLink;
+	private int hardLinkCount;
+	private int xidLinkCount;
+	private int discardedCount;
 	private String collectionPath = "";
 	private String contentPath = "";
-	private File datFile;
+	private ArchiveEntry datFile;
 	private String name;
+	private byte[] content;
+	private ArrayList<ItemResult.ClassifiedLink> classified = new ArrayList<>();
 
 	/**
 	 * Instantiates a new Course item.
@@ -44,46 +57,77 @@ public class CourseItem implements Comparable<CourseItem> {
 	 * @throws IOException
 	 * @throws SAXException
 	 */
-	public CourseItem(File in, CourseProcessor parent) throws IOException, SAXException {
-		if (saxParser == null) {
-			try {
-				saxParser = factory.newSAXParser();
-			} catch (ParserConfigurationException pce) {
-				throw new SAXException(pce);
-			}
-		}
-
-		if (documentBuilder == null) {
-			try {
-				documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-			} catch (ParserConfigurationException pce) {
-				throw new SAXException(pce);
-			}
-		}
+	public CourseItem(ArchiveEntry in, CourseProcessor parent) throws IOException, SAXException {
+		this(in, null, parent);
+	}
 
+	/**
+	 * Instantiates a new Course item from a file that's already been read out of the export.
+	 *
+	 * @param in the XML or HTML file that the instance represents
+	 * @param content the file's contents, or null to read them from the export
+	 * @param parent the parent GetLinks instance (multiple may be running if multiple files selected)
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	CourseItem(ArchiveEntry in, byte[] content, CourseProcessor parent) throws IOException, SAXException {
+		parent.checkAborted();
 		this.parent = parent;
+		this.content = content;
 		extension = FilenameUtils.getExtension(in.getName());
 
+		// if the same file has been analyzed before (in this export or an earlier one), its links are already known
+		ItemResult cached = parent.getCachedResult(in);
+
 		// there are two types of course items we deal with, either XML (.dat) or HTML (.htm/.html)
 		// the files need to be parsed separately before their text content is passed to the same link parsing logic
 		if (extension.equals("dat")) {
 			datFile = in;
-			findXMLHardLinks(in);
+			if (cached != null) {
+				name = cached.getName();
+				contentPath = cached.getContentPath();
+				addLinks(cached.getLinks());
+			} else {
+				PhaseSpan span = parent.getPhaseTimings().start(Phase.PARSE_DAT, in.getPath());
+				try {
+					findXMLHardLinks(in);
+				} finally {
+					span.end(Math.max(0, in.getSize()), classified.size());
+				}
+				parent.cacheResult(in, new ItemResult(name, contentPath, classified));
+				addLinks(classified);
+			}
 
 		} else if (extension.equals("htm") || extension.equals("html")) {
 			findAndSetDatFile(in); // find the dat file that corresponds to this content collection item
 
-			findHTMLHardLinks(in);
+			if (cached != null) {
+				name = in.getName();
+				addLinks(cached.getLinks());
+			} else {
+				PhaseSpan span = parent.getPhaseTimings().start(Phase.PARSE_HTML, in.getPath());
+				try {
+					findHTMLHardLinks(in);
+				} finally {
+					span.end(Math.max(0, in.getSize()), classified.size());
+				}
+				parent.cacheResult(in, new ItemResult(null, "", classified));
+				addLinks(classified);
+			}
 
-			collectionPath = in.getAbsolutePath().replace(
-					parent.getCCDir().getAbsolutePath(), "");
+			// paths in the report use the platform's separator, as they did when we read from an extracted copy
+			collectionPath = in.getPath().replace(CourseProcessor.CC_BASE_DIR, "")
+					.replace('/', File.separatorChar);
 		}
 
 		findAndSetContentPath();
+		this.content = null;
+		classified = null;
+		parent.itemAnalyzed(in, hardLinkCount + xidLinkCount + discardedCount);
 	}
 
 	public int compareTo(CourseItem other) {
-		return other.foundLinks.size() - foundLinks.size();
+		return other.hardLinkCount - hardLinkCount;
 	}
 
 	/**
@@ -109,29 +153,32 @@ public class CourseItem implements Comparable<CourseItem> {
 	 *
 	 * @return the corresponding XML file
 	 */
-	public File getDatFile() {
+	public ArchiveEntry getDatFile() {
 		return datFile;
 	}
 
-	private void findAndSetDatFile(File in) throws IOException, SAXException {
-		// brute force our way through all of the course's XML files
-		// this would be really slow using DOM, so we'll use the clunky SAX parser
-		for (File f : parent.getDatFiles()) {
-			DatHandler handler = new DatHandler();
-
-			InputStream inputStream = new FileInputStream(f);
-			Reader reader = new InputStreamReader(inputStream, "UTF-8");
-
-			InputSource is = new InputSource(reader);
-			is.setEncoding("UTF-8");
-
-			saxParser.parse(is, handler);
+	/**
+	 * Whether the item is an HTML file from the content collection, rather than a content item.
+	 *
+	 * @return true for .htm/.html files
+	 */
+	public boolean isHtmlFile() {
+		return extension.equals("htm") || extension.equals("html");
+	}
 
-			if (in.getName().equals(handler.getLinkName())) {
-				datFile = f;
-				break; // forgot this before, nice speed-up from busting out of the loop when we have what we want
-			}
+	/**
+	 * Opens the item's own file, from memory if it was read ahead of time.
+	 */
+	private InputStream open(ArchiveEntry file) throws IOException {
+		if (content != null) {
+			return new ByteArrayInputStream(content);
 		}
+		return parent.getArchive().open(file);
+	}
+
+	private void findAndSetDatFile(ArchiveEntry in) {
+		// the course processor has already parsed every .dat file once, so this is just a lookup
+		datFile = parent.getDatFileForLinkName(in.getName());
 	}
 
 	/**
@@ -139,8 +186,8 @@ public class CourseItem implements Comparable<CourseItem> {
 	 *
 	 * @return the discarded URLs (probably not bad links)
 	 */
-	public ArrayList<Link> getDiscardedURLs() {
-		return discardedURLs;
+	public List<Link> getDiscardedURLs() {
+		return links(firstLink + hardLinkCount + xidLinkCount, discardedCount);
 	}
 
 	/**
@@ -148,8 +195,8 @@ public class CourseItem implements Comparable<CourseItem> {
 	 *
 	 * @return the found links
 	 */
-	public ArrayList<Link> getHardLinks() {
-		return foundLinks;
+	public List<Link> getHardLinks() {
+		return links(firstLink, hardLinkCount);
 	}
 
 	/**
@@ -157,17 +204,36 @@ public class CourseItem implements Comparable<CourseItem> {
 	 *
 	 * @return the XID links
 	 */
-	public ArrayList<Link> getXIDLinks() {
-		return xidLinks;
+	public List<Link> getXIDLinks() {
+		return links(firstLink + hardLinkCount, xidLinkCount);
 	}
 
-	private void findHardLinks(String htmlContent) throws IOException, SAXException {
-		// this is the main event, check some HTML for bad links
-		Document doc = Jsoup.parse(htmlContent);
+	// a list of views of some consecutive rows in the store
+	private List<Link> links(int from, int count) {
+		LinkStore store = parent.getLinkStore();
+		return new AbstractList<Link>() {
+			@Override
+			public Link get(int index) {
+				if (index < 0 || index >= count) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+				}
+				return new Link(store, from + index);
+			}
+
+			@Override
+			public int size() {
+				return count;
+			}
+		};
+	}
+
+	/**
+	 * Gets all of the a tags and img tags from some html, sorted by their text/alt text, by building a Jsoup DOM.
+	 */
+	private static TreeMap<String, String> selectLinks(CharSequence htmlContent) {
+		Document doc = Jsoup.parse(htmlContent.toString());
 		TreeMap<String, String> links = new TreeMap<>();
 
-		// get all of the a tags and img tags from the html
-		// add them to a sorted map
 		for (Element e : doc.select("a")) {
 			links.put("text: " + e.text(), e.attr("href"));
 		}
@@ -175,113 +241,132 @@ public class CourseItem implements Comparable<CourseItem> {
 		for (Element e : doc.select("img")) {
 			links.put("alt: " + e.attr("alt"), e.attr("src"));
 		}
+		return links;
+	}
 
-
-		for (Map.Entry<String, String> link : links.entrySet()) {
-			String url = link.getValue().trim();
-			String urlText = link.getKey().trim();
-			if (url.length() == 0) {
-				continue;
+	/**
+	 * Gets all of the a tags and img tags from some html, sorted by their text/alt text, without building a DOM.
+	 */
+	private static TreeMap<String, String> tokenizeLinks(Reader html) throws IOException {
+		TreeMap<String, String> links = new TreeMap<>();
+		tokenizers.get().tokenize(html, new LinkListener() {
+			@Override
+			public void anchor(String href, String text) {
+				links.put("text: " + text, href);
 			}
 
-			// this custom JSP parameter just stands for our URL
-			// this can be changed to any base URL, and should probably be made configurable if we ever change URL
-			url = url.replace("@X@EmbeddedFile.requestUrlStub@X@", "https://bblearn.nau.edu/").toLowerCase();
-
-			if (url.startsWith("%20")) url = url.replaceFirst("%20", "");
-			url = url.replace("%0d", "");
-
-			// OWA redirect links are bad since students can't log in to OWA
-			if (url.contains("iris.nau.edu/owa/redir.aspx")) {
-				foundLinks.add(new Link(url, urlText, this, false));
-
-			} else if ((url.contains("ppg/") && contentPath.equals("Tests, Surveys & Pools")) ||
-					url.equalsIgnoreCase("about:blank") ||
-					url.contains("@X@EmbeddedFile.location@X@")) {
-				// if it's a pearson test image, or it's an embedded image, or it's javascript (blech), then we can ignore it
-
-				this.discardedURLs.add(new Link(url, urlText, this, false));
-
-			} else if (url.contains("xid") && url.contains("bbcswebdav")) {
-				// if it points to WebDAV and has xid in it, we can assume it's using the CMS properly (most of the time)
-				this.xidLinks.add(new Link(url, urlText, this, true));
-
-			} else if ((url.startsWith("http://") || url.startsWith("https://") || url.startsWith("www"))
-					&& !url.contains("bblearn") && !url.contains("vista")) {
-				// if it doesn't match these criteria, we can be pretty sure it points outside of bblearn
-				this.discardedURLs.add(new Link(url, urlText, this, true));
-
-			} else if (url.contains("/images/ci/")) {
-				// these are images embedded by the TinyMCE/VTBE content editor
-				this.discardedURLs.add(new Link(url, urlText, this, true));
-
-			} else if (
-					(url.contains("courses") || url.contains("webapp") || url.contains("bbcswebdav") || url.contains("webct") || url.contains("vista"))
-							&& !url.contains("/institution/")
-							&& !url.contains("execute/viewdocumentation?")
-							&& !url.contains("wvms-bb-bblearn")
-							&& !url.contains("bb-collaborate-bblearn")
-							&& !url.contains("webapps/vtbe-tinymce/tiny_mce")
-							&& !url.contains("webapps/login")
-							&& !url.contains("webapps/portal")
-							&& !url.contains("bbgs-nbc-content-integration-bblearn")
-							&& !url.contains("bb-selfpear-bblearn")) {
-
-				// if it definitely points to bb learn (wasn't filtered out above
-				// and it doesn't also point to a bunch of areas that have their links managed by B2s or content items
-				// then it's probably a copypasta link done by the instructor. BAD!
-
-				foundLinks.add(new Link(url, urlText, this, false));
-
-
-			} else if (!url.startsWith("https://") && !url.startsWith("http://")
-					&& !url.startsWith("javascript:")
-					&& !url.startsWith("mailto:") && !url.startsWith("#")
-					&& !url.contains("webapp")
-					&& !url.startsWith("data:image/")
-					&& !url.contains(".com")
-					&& !url.contains(".net")
-					&& !url.contains(".edu")
-					&& !url.contains(".org")
-					&& !url.contains("//cdn.slidesharecdn.com/")) {
+			@Override
+			public void image(String src, String alt) {
+				links.put("alt: " + alt, src);
+			}
+		});
+		return links;
+	}
 
-				// if it doesn't point outside of bblearn, and it doesn't explicitly point to bb learn,
-				// then it's a relative link (shame on you, instructor!), so we'll flag it as it will cause
-				// permissions issues
+	private void findHardLinks(CharSequence htmlContent) throws IOException, SAXException {
+		TreeMap<String, String> links;
+		switch (parent.getHtmlMode()) {
+			case JSOUP:
+				links = selectLinks(htmlContent);
+				break;
+			case VERIFY:
+				links = selectLinks(htmlContent);
+				verifyLinks(links, tokenizeLinks(new CharSequenceReader(htmlContent)));
+				break;
+			default:
+				links = tokenizeLinks(new CharSequenceReader(htmlContent));
+		}
+		findHardLinks(links);
+	}
 
-				foundLinks.add(new Link(url, urlText, this, false));
+	private void verifyLinks(TreeMap<String, String> expected, TreeMap<String, String> streamed) {
+		if (!expected.equals(streamed)) {
+			parent.log("WARNING: streaming HTML parser disagrees with Jsoup on " + name
+					+ "\n  jsoup:     " + expected + "\n  streaming: " + streamed);
+		}
+	}
 
+	private void findHardLinks(TreeMap<String, String> links) throws IOException, SAXException {
+		// this is the main event, check some HTML for bad links
+		UrlNormalizer normalizer = normalizers.get();
+		for (Map.Entry<String, String> link : links.entrySet()) {
+			// only a blank URL is skipped; one that's nothing but %20 or %0d is empty once it's tidied up, but it's
+			// still a link
+			if (link.getValue().trim().isEmpty()) {
+				continue;
+			}
+			// the custom JSP parameter for our URL is swapped for it, and the URL is lower-cased and tidied up
+			String url = normalizer.normalize(link.getValue());
+			String urlText = link.getKey().trim();
 
-			} else {
-				// this catch all doesn't seem to be used often, but we want to make sure we are capturing all
-				// found links just in case the detection logic has a hole in it that's not yet discovered
+			// the rules are checked in order, and the first one that matches decides where the link goes
+			classified.add(new ItemResult.ClassifiedLink(parent.getLinkClassifier().classify(url, contentPath), url,
+					urlText));
+		}
+	}
 
-				this.discardedURLs.add(new Link(url, urlText, this, true));
+	/**
+	 * Looks up the xids of the classified links that need it, and adds them all to the course's link store, sorted
+	 * into hard, x-id or discarded.
+	 */
+	private void addLinks(List<ItemResult.ClassifiedLink> links) throws IOException, SAXException {
+		PhaseSpan span = parent.getPhaseTimings().start(Phase.RESOLVE_XIDS, datFile != null ? datFile.getPath() : "");
+		try {
+			String[] xids = new String[links.size()];
+			for (int i = 0; i < links.size(); i++) {
+				ItemResult.ClassifiedLink link = links.get(i);
+				LinkCategory category = link.getCategory();
+				if (category.isLookUpXid()) {
+					// a fuzzy match can take a while, so a course that's been aborted stops between links
+					parent.checkAborted();
+					xids[i] = Link.findXID(link.getUrl(), parent.getXidIndex());
+				}
+				if (category == LinkCategory.HARD) {
+					hardLinkCount++;
+				} else if (category == LinkCategory.XID) {
+					xidLinkCount++;
+				} else {
+					discardedCount++;
+				}
 			}
+			firstLink = parent.getLinkStore().addItem(links, xids);
+		} finally {
+			span.end(0, hardLinkCount);
 		}
-
 	}
 
-	private void findHTMLHardLinks(File html) throws SAXException, IOException {
+	private void findHTMLHardLinks(ArchiveEntry html) throws SAXException, IOException {
 		// we want to capture a little bit of metadata about the html file
-		// then read it into memory and have JSoup parse it
+		// then check its links
 
 		name = html.getName();
-		int xidIndex = name.lastIndexOf("__xid");
-		if (xidIndex > -1) {
-			name = name.substring(0, xidIndex);
+
+		if (parent.getHtmlMode() == HtmlMode.STREAMING) {
+			// the tokenizer reads through its own buffer, so the file never needs to be in memory all at once
+			Reader rdr = new InputStreamReader(open(html));
+			try {
+				findHardLinks(tokenizeLinks(rdr));
+			} finally {
+				rdr.close();
+			}
+			return;
 		}
 
-		BufferedReader rdr = new BufferedReader(new FileReader(html));
-		String text = "";
-		String line = rdr.readLine();
+		// otherwise read the whole file in one buffer (newlines included), sized up front when we know how big it is
+		long size = html.getSize();
+		StringBuilder text = new StringBuilder(size > 0 && size < Integer.MAX_VALUE ? (int) size : 8192);
+		char[] buffer = new char[8192];
 
-		while (line != null) {
-			text += line;
-			line = rdr.readLine();
+		Reader rdr = new InputStreamReader(open(html));
+		try {
+			int length;
+			while ((length = rdr.read(buffer)) != -1) {
+				text.append(buffer, 0, length);
+			}
+		} finally {
+			rdr.close();
 		}
 
-		rdr.close();
 		findHardLinks(text);
 	}
 
@@ -303,47 +388,29 @@ public class CourseItem implements Comparable<CourseItem> {
 		return name;
 	}
 
-	private String getNodeTitle(org.w3c.dom.Element item) {
-		return item.getElementsByTagName("title").item(0).getTextContent();
-	}
-
-	private String getPathToNode(org.w3c.dom.Element e) {
-		StringBuilder build = new StringBuilder();
-
-		org.w3c.dom.Element parent = (org.w3c.dom.Element) e.getParentNode();
-		while (parent.getTagName().equals("item")) {
-			String nodeTitle = getNodeTitle(parent);
-			if (!nodeTitle.equals("--TOP--")) {
-				build.insert(0, nodeTitle);
-				build.insert(0, '\\');
-			}
-			parent = (org.w3c.dom.Element) parent.getParentNode();
-		}
-
-		build.append('\\');
-
-		return build.toString();
-	}
-
-	private void findXMLHardLinks(File dat) throws IOException, SAXException {
+	private void findXMLHardLinks(ArchiveEntry dat) throws IOException, SAXException {
 		// here we need to parse the content item's XML file before
 		// we check the text for links
 
 		HardlinkHandler handler = new HardlinkHandler();
-		InputStream inputStream = new FileInputStream(dat);
+		InputStream inputStream = open(dat);
 		Reader reader = new InputStreamReader(inputStream, "UTF-8");
 
 		InputSource is = new InputSource(reader);
 		is.setEncoding("UTF-8");
 
-		saxParser.parse(is, handler);
+		try {
+			XmlParsers.getSAXParser().parse(is, handler);
+		} finally {
+			reader.close();
+		}
 
 		name = handler.getTitle();
 		contentPath = handler.getType();
 		if (contentPath.equalsIgnoreCase("Tests, Surveys & Pools")) {
 			name = handler.getAssessType() + ": " + name;
 		}
-		findHardLinks(handler.getText());
+		findHardLinks(handler.getTextBuffer());
 	}
 
 	private void findAndSetContentPath() {
@@ -357,23 +424,10 @@ public class CourseItem implements Comparable<CourseItem> {
 		String datString = datFile.getName();
 		datString = datString.substring(0, datString.lastIndexOf('.'));
 
-		NodeList nl = parent.getDOM();
-
-		for (int i = 0; i < nl.getLength(); i++) {
-			Node curr = nl.item(i);
-			if (curr instanceof org.w3c.dom.Element) {
-				org.w3c.dom.Element e = (org.w3c.dom.Element) curr;
-
-				String datRef = e.getAttribute("identifierref");
-
-				if (datRef.equalsIgnoreCase(datString)) {
-					contentPath = getPathToNode(e);
-					if (extension.equals("htm") || extension.equals("html")) {
-						name = getNodeTitle(e);
-					}
-					break;
-				}
-			}
+		ManifestIndex manifest = parent.getManifest();
+		contentPath = manifest.getContentPath(datString);
+		if (contentPath != null && (extension.equals("htm") || extension.equals("html"))) {
+			name = manifest.getTitle(datString);
 		}
 
 		if (contentPath == null) {
@@ -1,596 +1,805 @@
 package edu.nau.elc.hardlinks.domain;
 
-import edu.nau.elc.hardlinks.GetLinkWindow;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
+import edu.nau.elc.hardlinks.archive.ArchiveEntry;
+import edu.nau.elc.hardlinks.archive.CourseArchive;
+import edu.nau.elc.hardlinks.archive.ExportInventory;
+import edu.nau.elc.hardlinks.archive.ExportValidator;
+import edu.nau.elc.hardlinks.archive.ExtractedCourseArchive;
+import edu.nau.elc.hardlinks.archive.ZipCourseArchive;
+import edu.nau.elc.hardlinks.cache.ItemResult;
+import edu.nau.elc.hardlinks.cache.ResultCache;
+import edu.nau.elc.hardlinks.html.HtmlMode;
+import edu.nau.elc.hardlinks.profiling.Phase;
+import edu.nau.elc.hardlinks.profiling.PhaseSpan;
+import edu.nau.elc.hardlinks.profiling.PhaseTimings;
+import edu.nau.elc.hardlinks.report.ReportMode;
+import edu.nau.elc.hardlinks.report.ReportWriter;
+import edu.nau.elc.hardlinks.report.TriageReport;
+import edu.nau.elc.hardlinks.rules.LinkClassifier;
+import edu.nau.elc.hardlinks.rules.LinkRules;
+import edu.nau.elc.hardlinks.xml.DatHandler;
+import edu.nau.elc.hardlinks.xml.XmlParsers;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
-import javax.swing.*;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * One instance of GetLinks is constructed for each export file to process. It begins processing when doInBackground()
- * is called.
+ * One instance of GetLinks is constructed for each export file to process. It begins processing when call() is called,
+ * on whatever thread calls it; the GUI runs it in a SwingWorker, and the batch mode runs several at once on a pool.
  */
-public class CourseProcessor extends SwingWorker<Void, String> {
+public class CourseProcessor implements Callable<Void> {
+
+    /**
+     * Path of the content collection root within the export.
+     */
+    public static final String CC_BASE_DIR = "csfiles/home_dir";
+
+    private static final LinkClassifier DEFAULT_CLASSIFIER = LinkRules.getDefault().compile();
 
-    private static final String xidString = "__xid-[0-9]{6,8}_[0-9]";
-    private static final Pattern xidPattern = Pattern.compile(xidString);
     private final File in;
-    private final GetLinkWindow parent;
-    private File ccBaseDir;
-    private ArrayList<File> datFiles = new ArrayList<>();
-    private NodeList manifestNodes;
-    private ArrayList<File> xmlFiles = new ArrayList<>();
+    private final ProcessorListener listener;
+    private File outputDirectory;
+    private File reportFile;
+    private int linksWritten = 0;
+    private volatile CourseArchive archive;
+    private boolean extractToDisk = false;
+    private boolean validateExport = true;
+    private CourseWatchdog watchdog;
+    private final AtomicReference<String> abortReason = new AtomicReference<>();
+    private volatile Long abortedAt; // null until the call that aborted has set it
+    private HtmlMode htmlMode = HtmlMode.JSOUP;
+    private ReportMode reportMode = ReportMode.DIRECT;
+    private LinkClassifier linkClassifier = DEFAULT_CLASSIFIER;
+    private int reportThreads = Runtime.getRuntime().availableProcessors();
+    private int analysisThreads = Runtime.getRuntime().availableProcessors();
+    private List<ArchiveEntry> datFiles = Collections.emptyList();
+    private final HashMap<String, ArchiveEntry> datFilesByLinkName = new HashMap<>();
+    private ManifestIndex manifest;
+    private List<ArchiveEntry> xmlFiles = Collections.emptyList();
+    private XidIndex xidIndex;
+    private final LinkStore linkStore = new LinkStore();
+    private PipelineStats pipelineStats;
+    private ResultCache resultCache;
+    private volatile boolean cacheFailed = false;
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final PhaseTimings phaseTimings;
+    private final ProgressTracker progress;
 
 	/**
 	 * Instantiates a new GetLinks object, ready for processing.
 	 *
 	 * @param input  ZIP file that's a course export.
-	 * @param window The parent window that we'll print status messages to.
+	 * @param listener Where to send status messages.
 	 */
-	public CourseProcessor(File input, GetLinkWindow window) {
+	public CourseProcessor(File input, ProcessorListener listener) {
 		in = input;
-        parent = window;
+        this.listener = listener;
+		phaseTimings = new PhaseTimings(input.getName());
+		progress = new ProgressTracker(input.getName(), listener);
 	}
 
 	/**
-	 * This takes a bb-manifest.xml and gives us a DOM of the course content structure.
+	 * Sets whether the export is checked for corruption (see {@link ExportValidator}) before it's opened. It is by
+	 * default. Must be called before the processor is executed.
 	 *
-	 * @param manifest bb-manifest.xml file we want to parse.
-	 * @throws IOException                  If the manifest file can't be read.
-	 * @throws SAXException                 If it's not valid XML.
-	 * @throws ParserConfigurationException Ask the JDK why this gets thrown.
+	 * @param validateExport false to skip the check
 	 */
-	private void buildDOM(File manifest) throws IOException, SAXException, ParserConfigurationException {
-		DocumentBuilderFactory builderFactory = DocumentBuilderFactory
-                .newInstance();
-        DocumentBuilder builder = builderFactory.newDocumentBuilder();
-        Document document = builder.parse(new FileInputStream(manifest));
-        manifestNodes = document.getDocumentElement().getElementsByTagName(
-				"item");
+	public void setValidateExport(boolean validateExport) {
+		this.validateExport = validateExport;
 	}
 
 	/**
-	 * Begins background processing of the ZIP export.
-	 * @return Nothing.
-	 * @throws IOException If a file in the ZIP can't be read.
-	 * @throws SAXException If we encounter invalid XML that SAX can't parse at all.
-	 * @throws ParserConfigurationException If for some bizarre reason we can't configure the parser.
+	 * Sets the watchdog that aborts the course if one of its phases takes too long. Must be called before the
+	 * processor is executed.
+	 *
+	 * @param watchdog The watchdog, or null for none.
 	 */
-	@Override
-	public Void doInBackground() throws IOException, SAXException, ParserConfigurationException {
-		String path = in.getAbsolutePath().replace(in.getName(), "");
+	public void setWatchdog(CourseWatchdog watchdog) {
+		this.watchdog = watchdog;
+	}
 
-        //String className = in.getName().replaceAll("ExportFile_", "");
-        //className = className.substring(0, className.lastIndexOf("_"));
+	/**
+	 * Sets the directory to write the report to, instead of the directory the export is in. Must be called before the
+	 * processor is executed.
+	 *
+	 * @param outputDirectory The directory, which must already exist.
+	 */
+	public void setOutputDirectory(File outputDirectory) {
+		this.outputDirectory = outputDirectory;
+	}
 
-        String timeStamp = new SimpleDateFormat("yyyyMMddHHmmss").format(new java.util.Date());
-		File outFolder = Files.createTempDirectory("restructure_" + timeStamp).toFile();
+	/**
+	 * Chooses whether to extract the export to a temp directory before analyzing it (the old behavior), rather than
+	 * reading entries straight out of the ZIP. Must be called before the processor is executed.
+	 *
+	 * @param extractToDisk true to extract to a temp directory first, false (the default) to read in place
+	 */
+	public void setExtractToDisk(boolean extractToDisk) {
+		this.extractToDisk = extractToDisk;
+	}
 
-		//publish("\nExtracting files...");
-		extractAllFiles(in.getAbsolutePath(), outFolder.getAbsolutePath());
+	/**
+	 * Chooses how links are pulled out of HTML content. Must be called before the processor is executed.
+	 *
+	 * @param htmlMode JSOUP (the default) to build a DOM for every item, STREAMING to use the streaming tokenizer
+	 *                 instead, or VERIFY to do both and report any differences
+	 */
+	public void setHtmlMode(HtmlMode htmlMode) {
+		this.htmlMode = htmlMode;
+	}
 
-        ccBaseDir = new File(outFolder.getAbsolutePath() + File.separatorChar
-                + "csfiles" + File.separatorChar + "home_dir");
+	/**
+	 * Gets how links are pulled out of HTML content.
+	 *
+	 * @return the HTML mode
+	 */
+	public HtmlMode getHtmlMode() {
+		return htmlMode;
+	}
 
-        sanitizeXIDFilenames(outFolder);
-        xmlFiles = getFilesOfExt(outFolder.listFiles(), ".xml");
-        datFiles = getFilesOfExt(outFolder.listFiles(), ".dat");
+	/**
+	 * Chooses which writer writes the report. Must be called before the processor is executed.
+	 *
+	 * @param reportMode DIRECT (the default) to write the .xlsx directly with sheets generated in parallel, or SXSSF to
+	 *                   write it with POI's streaming workbook
+	 */
+	public void setReportMode(ReportMode reportMode) {
+		this.reportMode = reportMode;
+	}
 
-        File manifest = new File(outFolder.getAbsolutePath()
-                + File.separatorChar + "imsmanifest.xml");
+	/**
+	 * Replaces the rules used to sort links into hard, xid and discarded links (e.g. to add an institution's own
+	 * exclusions with {@link LinkRules#prepend}). Must be called before the processor is executed.
+	 *
+	 * @param linkRules The rule table to use instead of {@link LinkRules#getDefault()}.
+	 */
+	public void setLinkRules(LinkRules linkRules) {
+		this.linkClassifier = linkRules.compile();
+	}
 
-		//publish("Analyzing course structure & building model...");
-		buildDOM(manifest);
+	/**
+	 * Sets how many of the report's sheets are generated at once when it's saved. The report is the same whatever this
+	 * is set to. Must be called before the processor is executed.
+	 *
+	 * @param reportThreads The number of threads, or 1 to write every sheet on the processor's own thread.
+	 */
+	public void setReportThreads(int reportThreads) {
+		this.reportThreads = reportThreads;
+	}
 
-		//publish("Searching content items for bad links...");
-		ArrayList<CourseItem> dats = getDats(outFolder.listFiles());
-		Collections.sort(dats);
+	/**
+	 * Sets how many items in the course are analyzed at once. Items go through an {@link ItemPipeline}, which parses
+	 * them on a fork/join pool of this many threads while the next files are read out of the export, but their rows
+	 * are added to the report in the same order as they would be one at a time, so the report is the same whatever
+	 * this is set to. Must be called before the processor is executed.
+	 *
+	 * @param analysisThreads The number of threads, or 1 to analyze every item on the processor's own thread.
+	 */
+	public void setAnalysisThreads(int analysisThreads) {
+		this.analysisThreads = analysisThreads;
+	}
 
-		//publish("Searching for HTML files and their bad links...");
-		ArrayList<CourseItem> htmls = getHTMLFiles(outFolder.listFiles());
+	/**
+	 * Sets the cache of results from earlier runs, so files that haven't changed since then aren't analyzed again. The
+	 * cache can be shared with other processors. It's only used if it was opened with the same rules as this
+	 * processor's (see {@link #setLinkRules}), and not in VERIFY mode, which has to parse everything. Must be called
+	 * before the processor is executed.
+	 *
+	 * @param resultCache The cache, or null (the default) to analyze every file.
+	 */
+	public void setResultCache(ResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
 
+	/**
+	 * Gets the compiled rules used to sort links.
+	 *
+	 * @return the link classifier
+	 */
+	public LinkClassifier getLinkClassifier() {
+		return linkClassifier;
+	}
 
-        Collections.sort(htmls);
-        ArrayList<CourseItem> notDeployed = new ArrayList<>();
+	/**
+	 * This takes a bb-manifest.xml and indexes the course content structure. The manifest is streamed, so no DOM of it
+	 * is kept in memory.
+	 *
+	 * @param manifestFile bb-manifest.xml entry we want to parse.
+	 * @throws IOException                  If the manifest file can't be read.
+	 * @throws SAXException                 If it's not valid XML.
+	 */
+	private void buildManifest(ArchiveEntry manifestFile) throws IOException, SAXException {
+		if (manifestFile == null) {
+			throw new FileNotFoundException("imsmanifest.xml is missing from " + in.getName());
+		}
 
-        Iterator<CourseItem> iter = htmls.iterator();
-        while (iter.hasNext()) {
-            CourseItem i = iter.next();
-            if (i.getDatFile() == null) {
-                iter.remove();
-                notDeployed.add(i);
-            }
-        }
+		PhaseSpan span = phaseTimings.start(Phase.BUILD_MANIFEST, manifestFile.getPath());
+		try {
+			InputStream inputStream = archive.open(manifestFile);
+			try {
+				manifest = new ManifestIndex(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		} finally {
+			span.end(Math.max(0, manifestFile.getSize()), 0);
+		}
+	}
 
-        String reportPath = path + in.getName().
-                substring(0, in.getName().lastIndexOf('_'))
-                .replace("ExportFile", "triage") + ".xlsx";
+	/**
+	 * Processes the ZIP export and writes its report.
+	 * @return Nothing.
+	 * @throws IOException If a file in the ZIP can't be read.
+	 * @throws SAXException If we encounter invalid XML that SAX can't parse at all.
+	 */
+	@Override
+	public Void call() throws IOException, SAXException {
+		String path;
+		if (outputDirectory != null) {
+			path = outputDirectory.getAbsolutePath() + File.separator;
+		} else {
+			path = in.getAbsolutePath().replace(in.getName(), "");
+		}
 
-		//publish("Writing report to:\n" + reportPath + "\n");
-		writeResults(reportPath, dats, htmls, notDeployed);
+        //String className = in.getName().replaceAll("ExportFile_", "");
+        //className = className.substring(0, className.lastIndexOf("_"));
 
-        deleteDirectory(outFolder);
+		//publish("\nExtracting files...");
+		if (watchdog != null) {
+			watchdog.watch(this);
+		}
+		try {
+			open();
+			try {
+				analyze(path);
+			} finally {
+				archive.close();
+			}
+		} catch (IOException | SAXException | RuntimeException e) {
+			// whatever went wrong after an abort (like the export being closed underneath a read) was caused by it
+			String reason = abortReason.get();
+			if (reason != null && !(e instanceof CourseAbortedException)) {
+				throw new CourseAbortedException(reason, e);
+			}
+			throw e;
+		} finally {
+			if (watchdog != null) {
+				watchdog.unwatch(this);
+			}
+			progress.finish();
+		}
 
 		//Desktop.getDesktop().open(new File(reportPath));
-		setProgress(1);
-
 		return null;
 	}
 
 	/**
-	 * Writes our results to an Excel sheet. Is a bit of a beast because POI doesn't have the most concise
-	 * syntax. Fairly tightly coupled to the CourseItem and Link implementations, but can definitely be tweaked
-	 * if need be. All styling and formatting is handled in code, rather than configuration, since this is only
-	 * used a few dozen times a semester.
+	 * Opens the export and indexes its files and navigation structure, ready for its items to be analyzed. The
+	 * archive ({@link #getArchive()}) has to be closed afterwards.
 	 *
-	 * @param outPath The path to write the report to (usually is the path of the export file as well).
-	 * @param content A list of all content items found in the course.
-	 * @param htmlFiles A list of all HTML files found in the content collection which are deployed in the course.
-	 * @param undeployed A list of all HTML files found in the content collection which are <b>not</b> deployed.
+	 * @throws IOException If a file in the ZIP can't be read.
+	 * @throws SAXException If we encounter invalid XML that SAX can't parse at all.
 	 */
-	private void writeResults(String outPath, ArrayList<CourseItem> content,
-							  ArrayList<CourseItem> htmlFiles, ArrayList<CourseItem> undeployed) {
-
-		// all work is done in memory before writing to a file
-		Workbook wb = new XSSFWorkbook();
-
-		// first we'll create the sheets
-		Sheet contentSheet = wb.createSheet("Content Items");
-        Sheet htmlSheet = wb.createSheet("HTML Files");
-        Sheet undeployedSheet = wb.createSheet("Undeployed HTML Files");
-        Sheet xidSheet = wb.createSheet("x-id Links");
-		Sheet discardSheet = wb.createSheet("Discarded links");
-
-		// we'll define shared headers, although this is clunky in retrospect
-		String[] tops = {
-                "Course Location",            //0
-                "Content Collection Path",    //1
-                "Item Name",                //2
-                "Link/Alt Text",            //3
-                "Link Address",                //4
-				"x-id"};                    //5
-
-		// let's set some default styling across the board
-		Font headerFont = wb.createFont();
-		headerFont.setFontHeightInPoints((short) 11);
-        headerFont.setFontName("Arial");
-        headerFont.setUnderline(Font.U_SINGLE);
-
-        CellStyle headerStyle = wb.createCellStyle();
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.LIGHT_GREEN.getIndex());
-        headerStyle.setFillPattern(CellStyle.SOLID_FOREGROUND);
-
-        Row contentHeaderRow = contentSheet.createRow(0);
-		contentHeaderRow.createCell(0).setCellValue(tops[2]);
-		contentHeaderRow.createCell(1).setCellValue(tops[4]);
-		contentHeaderRow.createCell(2).setCellValue(tops[5]);
-		contentHeaderRow.createCell(3).setCellValue(tops[3]);
-		contentHeaderRow.createCell(4).setCellValue(tops[0]);
-		for (Cell c : contentHeaderRow) {
-            c.setCellStyle(headerStyle);
-        }
-
-        Row htmlHeaderRow = htmlSheet.createRow(0);
-        htmlHeaderRow.setRowStyle(headerStyle);
-		htmlHeaderRow.createCell(0).setCellValue(tops[2]);
-		htmlHeaderRow.createCell(1).setCellValue(tops[4]);
-		htmlHeaderRow.createCell(2).setCellValue(tops[5]);
-		htmlHeaderRow.createCell(3).setCellValue(tops[3]);
-		htmlHeaderRow.createCell(4).setCellValue(tops[0]);
-		htmlHeaderRow.createCell(5).setCellValue(tops[1]);
-		for (Cell c : htmlHeaderRow) {
-            c.setCellStyle(headerStyle);
-        }
-
-        Row undeployedHeaderRow = undeployedSheet.createRow(0);
-        undeployedHeaderRow.setRowStyle(headerStyle);
-        undeployedHeaderRow.createCell(0).setCellValue(tops[1]);
-        undeployedHeaderRow.createCell(1).setCellValue(tops[2]);
-        undeployedHeaderRow.createCell(2).setCellValue(tops[3]);
-        undeployedHeaderRow.createCell(3).setCellValue(tops[4]);
-        undeployedHeaderRow.createCell(4).setCellValue(tops[5]);
-        for (Cell c : undeployedHeaderRow) {
-            c.setCellStyle(headerStyle);
-        }
+	void open() throws IOException, SAXException {
+		if (validateExport) {
+			PhaseSpan span = phaseTimings.start(Phase.VALIDATE_EXPORT, in.getPath());
+			try {
+				new ExportValidator().validate(in);
+			} finally {
+				span.end(in.length(), 0);
+			}
+		}
+		checkAborted();
+
+		PhaseSpan span = phaseTimings.start(Phase.OPEN_EXPORT, in.getPath());
+		try {
+			if (extractToDisk) {
+				archive = new ExtractedCourseArchive(in);
+			} else {
+				archive = new ZipCourseArchive(in);
+			}
+		} finally {
+			span.end(in.length(), 0);
+		}
 
-        Row xidHeaderRow = xidSheet.createRow(0);
-        xidHeaderRow.setRowStyle(headerStyle);
-        xidHeaderRow.createCell(0).setCellValue(tops[0]);
-        xidHeaderRow.createCell(1).setCellValue(tops[1]);
-        xidHeaderRow.createCell(2).setCellValue(tops[2]);
-        xidHeaderRow.createCell(3).setCellValue(tops[3]);
-        xidHeaderRow.createCell(4).setCellValue(tops[4]);
-        for (Cell c : xidHeaderRow) {
-            c.setCellStyle(headerStyle);
-        }
+		linkStore.clear();
+		try {
+			// the inventory was built while the archive was opened, so none of these queries touch the export again
+			ExportInventory inventory = archive.getInventory();
+			xmlFiles = inventory.getFilesOfExt(".xml");
+			xidIndex = new XidIndex(xmlFiles, archive);
+			datFiles = inventory.getFilesOfExt(".dat");
+			span = phaseTimings.start(Phase.INDEX_DAT_FILES, "");
+			try {
+				indexDatFiles();
+			} finally {
+				span.end(inventory.getTotalSize(".dat"), 0);
+			}
 
-        Row discardHeaderRow = discardSheet.createRow(0);
-        discardHeaderRow.setRowStyle(headerStyle);
-        discardHeaderRow.createCell(0).setCellValue(tops[0]);
-        discardHeaderRow.createCell(1).setCellValue(tops[1]);
-        discardHeaderRow.createCell(2).setCellValue(tops[2]);
-		discardHeaderRow.createCell(3).setCellValue(tops[4]);
-		discardHeaderRow.createCell(4).setCellValue(tops[3]);
-		for (Cell c : discardHeaderRow) {
-			c.setCellStyle(headerStyle);
+			//publish("Analyzing course structure & building model...");
+			buildManifest(archive.getEntry("imsmanifest.xml"));
+		} catch (IOException | SAXException | RuntimeException e) {
+			archive.close();
+			throw e;
 		}
+	}
 
-		//that's just for the header rows...ugh
-		//i'm sure there's a better way to do this (how I long for pandas DataFrames in Java...)
-		//now we can start writing the actual results
+	/**
+	 * Analyzes the opened export and writes the report.
+	 *
+	 * @param path The directory to write the report to, ending in a separator.
+	 * @throws IOException If a file in the ZIP can't be read.
+	 * @throws SAXException If we encounter invalid XML that SAX can't parse at all.
+	 */
+	private void analyze(String path) throws IOException, SAXException {
+        // ExportFile_ENG105_1.zip -> triage_ENG105.xlsx
+        String baseName = in.getName();
+        int cut = baseName.lastIndexOf('_');
+        if (cut == -1) {
+            cut = baseName.lastIndexOf('.');
+        }
+        if (cut != -1) {
+            baseName = baseName.substring(0, cut);
+        }
+        String reportPath = path + baseName.replace("ExportFile", "triage") + ".xlsx";
+
+		ReportWriter writer = reportMode.newWriter(reportThreads);
+		ForkJoinPool pool = analysisThreads > 1 ? new ForkJoinPool(analysisThreads) : null;
+		try {
+			TriageReport report = new TriageReport(writer);
+
+			//publish("Searching content items for bad links...");
+			//publish("Searching for HTML files and their bad links...");
+			// content items and HTML files go through in one run, so there's no lull between them
+			ArrayList<ArchiveEntry> files = new ArrayList<>(datFiles);
+			files.addAll(getHTMLFiles());
+			long totalBytes = 0;
+			for (ArchiveEntry f : files) {
+				totalBytes += Math.max(0, f.getSize());
+			}
+			progress.start(files.size(), totalBytes);
 
-		// we need to track the current "cursor" index for all worksheets separately
-		// so we know where to write each result
-		int contentCurrentRow = 1;
-        int discardCurrentRow = 1;
-		int xidCurrentRow = 1;
+			ArrayList<CourseItem> items = analyzeItems(files, report, pool);
+			if (resultCache != null && cacheHits.get() > 0) {
+				log("Reused " + cacheHits.get() + " of " + files.size() + " unchanged files from the cache");
+			}
 
-		for (CourseItem i : content) {
-			// first we'll process the actual hardlinks
-			for (Link l : i.getHardLinks()) {
-                Row r = contentSheet.createRow(contentCurrentRow);
-				r.createCell(0).setCellValue(i.getName());
-				r.createCell(1).setCellValue(l.getUrl());
-				r.createCell(2).setCellValue(l.getXid());
-				r.createCell(3).setCellValue(l.getLinkText());
-				r.createCell(4).setCellValue(i.getContentPath());
-				contentCurrentRow++;
+			ArrayList<CourseItem> dats = new ArrayList<>(items.subList(0, datFiles.size()));
+			Collections.sort(dats);
 
-            }
+			ArrayList<CourseItem> htmls = new ArrayList<>(items.subList(datFiles.size(), items.size()));
+			Collections.sort(htmls);
+			ArrayList<CourseItem> notDeployed = new ArrayList<>();
 
-			// then we'll process the discards
-			for (Link l : i.getDiscardedURLs()) {
-                Row r = discardSheet.createRow(discardCurrentRow);
-                r.createCell(0).setCellValue(i.getContentPath());
-                r.createCell(1).setCellValue(i.getCollectionPath());
-				r.createCell(2).setCellValue(i.getName());
-				r.createCell(3).setCellValue(l.getUrl());
-				r.createCell(4).setCellValue(l.getLinkText());
-				discardCurrentRow++;
-            }
+			Iterator<CourseItem> iter = htmls.iterator();
+			while (iter.hasNext()) {
+				CourseItem i = iter.next();
+				if (i.getDatFile() == null) {
+					iter.remove();
+					notDeployed.add(i);
+				}
+			}
 
-			// then we'll process the probably-legit xid links
-			for (Link l : i.getXIDLinks()) {
-                Row r = xidSheet.createRow(xidCurrentRow);
-                r.createCell(0).setCellValue(i.getContentPath());
-                r.createCell(1).setCellValue(i.getCollectionPath());
-                r.createCell(2).setCellValue(i.getName());
-				r.createCell(3).setCellValue(l.getLinkText());
-				r.createCell(4).setCellValue(l.getUrl());
-				xidCurrentRow++;
+			//publish("Writing report to:\n" + reportPath + "\n");
+			PhaseSpan span = phaseTimings.start(Phase.WRITE_REPORT, reportPath);
+			try {
+				writeResults(reportPath, report, writer, dats, htmls, notDeployed);
+			} finally {
+				span.end(reportFile != null ? reportFile.length() : 0, linksWritten);
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
 			}
+			writer.close();
 		}
+	}
 
-		// rinse and repeat for the deployed and undeployed HTML files
+	/**
+	 * Writes the hard links to the report, which already has every x-id and discarded link in it, and saves it to an
+	 * Excel sheet. Rows are streamed out as they're added, so this takes the same amount of memory for any course.
+	 *
+	 * @param outPath The path to write the report to (usually is the path of the export file as well).
+	 * @param report The report to add the hard links to.
+	 * @param writer The report's writer.
+	 * @param content A list of all content items found in the course.
+	 * @param htmlFiles A list of all HTML files found in the content collection which are deployed in the course.
+	 * @param undeployed A list of all HTML files found in the content collection which are <b>not</b> deployed.
+	 * @throws IOException If the rows can't be buffered.
+	 */
+	private void writeResults(String outPath, TriageReport report, ReportWriter writer, ArrayList<CourseItem> content,
+							  ArrayList<CourseItem> htmlFiles, ArrayList<CourseItem> undeployed) throws IOException {
+		for (CourseItem i : content) {
+			checkAborted();
+			report.addContentItem(i);
+		}
 
-        int htmlCurrentRow = 1;
-        for (CourseItem i : htmlFiles) {
-            Matcher m = Pattern.compile("(DVD|VT)[0-9]{1,6}_").matcher(i.getName());
-			if (m.find()) {
-				continue;
-            }
+		for (CourseItem i : htmlFiles) {
+			checkAborted();
+			report.addHtmlFile(i);
+		}
 
-            if (i.getHardLinks().size() == 0) {
-				Row r = htmlSheet.createRow(htmlCurrentRow);
-				r.createCell(0).setCellValue(i.getName());
-				r.createCell(1).setCellValue("NO BAD LINKS FOUND, CONVERT TO BLANK PG?");
-				r.createCell(2);
-				r.createCell(3);
-				r.createCell(4).setCellValue(i.getContentPath());
-				r.createCell(5).setCellValue(i.getCollectionPath());
-				htmlCurrentRow++;
-            }
+		for (CourseItem i : undeployed) {
+			checkAborted();
+			report.addUndeployedFile(i);
+		}
 
-            for (Link l : i.getHardLinks()) {
-				Row r = htmlSheet.createRow(htmlCurrentRow);
-				r.createCell(0).setCellValue(i.getName());
-				r.createCell(1).setCellValue(l.getUrl());
-				r.createCell(2).setCellValue(l.getXid());
-				r.createCell(3).setCellValue(l.getLinkText());
-				r.createCell(4).setCellValue(i.getContentPath());
-				r.createCell(5).setCellValue(i.getCollectionPath());
-				htmlCurrentRow++;
+        try {
+            FileOutputStream out = new FileOutputStream(outPath);
+            try {
+                writer.save(out);
+            } finally {
+                out.close();
             }
 
-            for (Link l : i.getDiscardedURLs()) {
-                Row r = discardSheet.createRow(discardCurrentRow);
-				r.createCell(0).setCellValue(i.getContentPath());
-				r.createCell(1).setCellValue(i.getCollectionPath());
-				r.createCell(2).setCellValue(i.getName());
-				r.createCell(3).setCellValue(l.getUrl());
-				r.createCell(4).setCellValue(l.getLinkText());
-				discardCurrentRow++;
-            }
+			reportFile = new File(outPath);
+			linksWritten = report.getLinksWritten();
+			log("Wrote " + linksWritten + " links to " + outPath);
+		} catch (IOException e) {
+            log("ERROR: cannot write report file.");
+			log(e.getLocalizedMessage());
+		}
+	}
 
-            for (Link l : i.getXIDLinks()) {
-                Row r = xidSheet.createRow(xidCurrentRow);
-                r.createCell(0).setCellValue(i.getContentPath());
-                r.createCell(1).setCellValue(i.getCollectionPath());
-                r.createCell(2).setCellValue(i.getName());
-				r.createCell(3).setCellValue(l.getLinkText());
-				r.createCell(4).setCellValue(l.getUrl());
-                xidCurrentRow++;
-            }
-        }
+	/**
+	 * Gets the export being analyzed.
+	 *
+	 * @return the course archive
+	 */
+	public CourseArchive getArchive() {
+		return archive;
+	}
 
-        int undeployedCurrentRow = 1;
-        for (CourseItem i : undeployed) {
-            Matcher m = Pattern.compile("(DVD|VT)[0-9]{1,6}_").matcher(i.getName());
-			if (m.find()) {
-				continue;
-            }
+	/**
+	 * Gets all .dat files in the export
+	 *
+	 * @return the dat files
+	 */
+	public List<ArchiveEntry> getDatFiles() {
+		return datFiles;
+	}
 
-            if (i.getHardLinks().size() == 0) {
-				Row r = undeployedSheet.createRow(undeployedCurrentRow);
-                r.createCell(0).setCellValue(i.getCollectionPath());
-                r.createCell(1).setCellValue(i.getName());
-                r.createCell(2).setCellValue("NO BAD LINKS FOUND, CONSIDER DELETE");
-				undeployedCurrentRow++;
-            }
+	/**
+	 * Gets the .dat file which deploys a given content collection file.
+	 *
+	 * @param linkName The (xid-stripped) filename of the content collection file.
+	 * @return the .dat file whose linkname matches, or null if the file isn't deployed anywhere
+	 */
+	public ArchiveEntry getDatFileForLinkName(String linkName) {
+		return datFilesByLinkName.get(linkName);
+	}
 
-            for (Link l : i.getHardLinks()) {
-				Row r = undeployedSheet.createRow(undeployedCurrentRow);
-                r.createCell(0).setCellValue(i.getCollectionPath());
-                r.createCell(1).setCellValue(i.getName());
-				r.createCell(2).setCellValue(l.getLinkText());
-				r.createCell(3).setCellValue(l.getUrl());
-                r.createCell(4).setCellValue(l.getXid());
-                htmlCurrentRow++;
-            }
+	/**
+	 * Parses every .dat file once and maps its linkname (if it deploys a content collection file) to the .dat file.
+	 * If more than one .dat file deploys the same filename, the first one found wins and the rest are reported.
+	 *
+	 * @throws IOException If a .dat file can't be read.
+	 * @throws SAXException If a .dat file isn't valid XML.
+	 */
+	private void indexDatFiles() throws IOException, SAXException {
+		for (ArchiveEntry f : datFiles) {
+			checkAborted();
+			DatHandler handler = new DatHandler();
 
-            for (Link l : i.getDiscardedURLs()) {
-                Row r = discardSheet.createRow(discardCurrentRow);
-                r.createCell(0).setCellValue(i.getContentPath());
-                r.createCell(1).setCellValue(i.getCollectionPath());
-                r.createCell(2).setCellValue(i.getName());
-				r.createCell(3).setCellValue(l.getLinkText());
-				r.createCell(4).setCellValue(l.getUrl());
-                discardCurrentRow++;
-            }
+			InputStream inputStream = archive.open(f);
+			Reader reader = new InputStreamReader(inputStream, "UTF-8");
 
-            for (Link l : i.getXIDLinks()) {
-                Row r = xidSheet.createRow(xidCurrentRow);
-                r.createCell(0).setCellValue(i.getContentPath());
-                r.createCell(1).setCellValue(i.getCollectionPath());
-                r.createCell(2).setCellValue(i.getName());
-				r.createCell(3).setCellValue(l.getLinkText());
-				r.createCell(4).setCellValue(l.getUrl());
-				xidCurrentRow++;
-			}
-        }
+			InputSource is = new InputSource(reader);
+			is.setEncoding("UTF-8");
 
-		// now we'll autosize all of the columns so it reads OK
-		for (int i = 0; i < 5; i++) {
-            contentSheet.autoSizeColumn(i);
-            htmlSheet.autoSizeColumn(i);
-            undeployedSheet.autoSizeColumn(i);
-            xidSheet.autoSizeColumn(i);
-            discardSheet.autoSizeColumn(i);
-        }
-        int totalWritten = contentCurrentRow + htmlCurrentRow + undeployedCurrentRow - 3;
+			try {
+				XmlParsers.getSAXParser().parse(is, handler);
+			} finally {
+				reader.close();
+			}
 
-        try {
-            FileOutputStream out = new FileOutputStream(outPath);
-            wb.write(out);
+			String linkName = handler.getLinkName();
+			if (linkName == null) {
+				continue;
+			}
 
-			publish("Wrote " + totalWritten + " links to " + outPath);
-			out.close();
-		} catch (IOException e) {
-            publish("ERROR: cannot write report file.");
-			publish(e.getLocalizedMessage());
+			ArchiveEntry existing = datFilesByLinkName.putIfAbsent(linkName, f);
+			if (existing != null) {
+				log("WARNING: " + linkName + " is deployed by both " + existing.getName() + " and "
+						+ f.getName() + ", using " + existing.getName());
+			}
 		}
 	}
 
 	/**
-	 * Extract's all ZIP files to a directory, preserving the internal structure of the archive.
-	 * @param file ZIP file to extract.
-	 * @param outputDir Directory to output to.
-	 * @throws IOException
+	 * Analyzes items and writes their x-id and discarded links to the report as soon as they're done. Only their hard
+	 * links are kept after that, since they can't be written until every item has been sorted.
+	 * <br><br>
+	 * With a pool, the items go through an {@link ItemPipeline}: files are read, parsed and reported on different
+	 * threads at the same time, and rows are still written in the order the files are listed, so the report comes out
+	 * the same as when the items are analyzed one at a time.
+	 *
+	 * @param files The .dat and HTML files.
+	 * @param report The report to write to.
+	 * @param pool The pool to analyze the items on, or null to analyze them on this thread.
+	 * @return the analyzed items, in the same order as the files
+	 * @throws IOException If a file can't be read.
+	 * @throws SAXException If a file isn't valid XML.
 	 */
-	private void extractAllFiles(String file, String outputDir)
-			throws IOException {
-		byte[] buffer = new byte[4096];
-
-		File outFolder = new File(outputDir);
-		if (!outFolder.exists()) outFolder.mkdir();
-
-		ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(file));
-
-		ZipEntry entry = zipInputStream.getNextEntry();
+	private ArrayList<CourseItem> analyzeItems(List<ArchiveEntry> files, TriageReport report, ForkJoinPool pool)
+			throws IOException, SAXException {
+		if (pool != null) {
+			ItemPipeline pipeline = new ItemPipeline(this, pool, files);
+			pipelineStats = pipeline.getStats();
+			return pipeline.run(report);
+		}
 
-		while (entry != null) {
-			String filename = entry.getName();
-			File extracted = new File(outFolder.getAbsolutePath() + File.separatorChar + filename);
-			extracted.getParentFile().mkdirs();
+		ArrayList<CourseItem> items = new ArrayList<>(files.size());
+		for (ArchiveEntry f : files) {
+			CourseItem item = new CourseItem(f, this);
+			report.addXidAndDiscardedLinks(item);
+			items.add(item);
+		}
+		return items;
+	}
 
-			FileOutputStream outputStream = new FileOutputStream(extracted);
+	/**
+	 * Counts an item as analyzed, for the progress sent to the listener.
+	 *
+	 * @param f     The item's file.
+	 * @param links How many links it had.
+	 */
+	void itemAnalyzed(ArchiveEntry f, int links) {
+		progress.itemDone(Math.max(0, f.getSize()), links);
+	}
 
-			int length;
-			while ((length = zipInputStream.read(buffer)) > 0) {
-				outputStream.write(buffer, 0, length);
-			}
+	/**
+	 * Gets the index of the whole course navigation structure.
+	 *
+	 * @return the manifest index
+	 */
+	public ManifestIndex getManifest() {
+		return manifest;
+	}
 
-			outputStream.flush();
-			outputStream.close();
+	/**
+	 * Get a flat list of all HTML files in the course export.
+	 *
+	 * @return a list of all files ending in .html or .htm in the course export
+	 */
+	private List<ArchiveEntry> getHTMLFiles() {
+		ArrayList<ArchiveEntry> files = new ArrayList<>(archive.getInventory().getFilesOfExt(".htm"));
+		files.addAll(archive.getInventory().getFilesOfExt(".html"));
+		return files;
+	}
 
-			zipInputStream.closeEntry();
-			entry = zipInputStream.getNextEntry();
-		}
+	/**
+	 * Gets XML files in the course export.
+	 *
+	 * @return a list of all of the XML files in the export
+	 */
+	public List<ArchiveEntry> getXMLFiles() {
+		return xmlFiles;
+	}
 
-		zipInputStream.close();
+	/**
+	 * Gets the index of content collection identifiers, keyed by filename.
+	 *
+	 * @return the xid index for this course
+	 */
+	public XidIndex getXidIndex() {
+		return xidIndex;
 	}
 
 	/**
-	 * Gets the content collection directory.
+	 * Gets the report once it's been written.
 	 *
-	 * @return the content collection directory
+	 * @return the report file, or null if the processor hasn't finished or the report couldn't be written
 	 */
-	public File getCCDir() {
-		return ccBaseDir;
+	public File getReportFile() {
+		return reportFile;
 	}
 
 	/**
-	 * Gets all XML files in the export
+	 * Gets the number of hard links written to the report.
 	 *
-	 * @return the xml files
+	 * @return the number of links written, or 0 if the report hasn't been written
 	 */
-	public ArrayList<File> getDatFiles() {
-		return datFiles;
+	public int getLinksWritten() {
+		return linksWritten;
 	}
 
 	/**
-	 * Finds all files in the course export that end in ".dat".
+	 * Works out what a file is cached under, if it can be cached at all.
 	 *
-	 * @param files Array of files at the root of the export.
-	 * @return A flat list of XML files.
-	 * @throws IOException
-	 * @throws SAXException
+	 * @param f The .dat or HTML file.
+	 * @return how the file is analyzed, or null if its result can't be cached
 	 */
-	private ArrayList<CourseItem> getDats(File[] files) throws IOException, SAXException {
-		ArrayList<CourseItem> datItems = new ArrayList<>();
-        for (File f : getFilesOfExt(files, ".dat")) {
-			datItems.add(new CourseItem(f, this));
+	private ResultCache.Kind getCacheKind(ArchiveEntry f) {
+		// VERIFY has to parse everything, .dat files included, since their text is HTML too
+		if (resultCache == null || cacheFailed || htmlMode == HtmlMode.VERIFY || f.getCrc() == -1
+				|| f.getSize() == -1 || !resultCache.getFingerprint().equals(linkClassifier.getRules().getFingerprint())) {
+			return null;
+		}
+		boolean dat = f.getName().endsWith(".dat");
+		if (htmlMode == HtmlMode.STREAMING) {
+			return dat ? ResultCache.Kind.CONTENT_ITEM_STREAMING : ResultCache.Kind.HTML_STREAMING;
 		}
-		return datItems;
+		return dat ? ResultCache.Kind.CONTENT_ITEM_JSOUP : ResultCache.Kind.HTML_JSOUP;
 	}
 
 	/**
-	 * Gets the DOM for the whole course navigation structure.
+	 * Whether a file's result is in the cache, so it doesn't need to be read ahead of time.
 	 *
-	 * @return the DOM
+	 * @param f The .dat or HTML file.
+	 * @return true if the file will probably be found in the cache
 	 */
-	public NodeList getDOM() {
-		return manifestNodes;
+	boolean hasCachedResult(ArchiveEntry f) {
+		ResultCache.Kind kind = getCacheKind(f);
+		return kind != null && resultCache.contains(f.getCrc(), f.getSize(), kind);
 	}
 
 	/**
-	 * Generic function to get a flat list of all files of a given extension.
-	 * @param files Array of files at the root of the course export.
-	 * @param ext Extension we're searching for.
-	 * @return a flat list of all files matching that extension
+	 * Gets what a file was found to contain the last time it was analyzed.
+	 *
+	 * @param f The .dat or HTML file.
+	 * @return the cached result, or null if it has to be analyzed
 	 */
-	private ArrayList<File> getFilesOfExt(File[] files, String ext) {
-        ArrayList<File> foundFiles = new ArrayList<>();
-        for (File f : files) {
-            String fn = f.getName();
-            int extStart = fn.lastIndexOf('.');
-            String extension = "";
-            if (extStart > 1) {
-                extension = fn.substring(extStart, fn.length());
-            }
-
-            if (f.isDirectory()) {
-                foundFiles.addAll(getFilesOfExt(f.listFiles(), ext));
-            } else if (extension.equals(ext)) {
-				foundFiles.add(f);
+	ItemResult getCachedResult(ArchiveEntry f) {
+		ResultCache.Kind kind = getCacheKind(f);
+		if (kind == null) {
+			return null;
+		}
+		try {
+			ItemResult result = resultCache.get(f.getCrc(), f.getSize(), kind);
+			if (result != null) {
+				cacheHits.incrementAndGet();
 			}
+			return result;
+		} catch (IOException e) {
+			cacheUnusable(e);
+			return null;
 		}
-		return foundFiles;
 	}
 
 	/**
-	 * Get a flat list of all HTML files from an array of files at the root of an unzipped course export.
+	 * Saves what a file was found to contain, so it isn't analyzed again while it's unchanged.
 	 *
-	 * @param files Array listing all files at the root of the course export.
-	 * @return a list of all files ending in .html or .htm in the course export
-	 * @throws IOException
-	 * @throws SAXException
+	 * @param f      The .dat or HTML file.
+	 * @param result What was found.
 	 */
-	private ArrayList<CourseItem> getHTMLFiles(File[] files) throws IOException, SAXException {
-		ArrayList<CourseItem> htmlFiles = new ArrayList<>();
-
-		for (File f : getFilesOfExt(files, ".htm")) {
-			htmlFiles.add(new CourseItem(f, this));
+	void cacheResult(ArchiveEntry f, ItemResult result) {
+		ResultCache.Kind kind = getCacheKind(f);
+		if (kind == null) {
+			return;
+		}
+		try {
+			resultCache.put(f.getCrc(), f.getSize(), kind, result);
+		} catch (IOException e) {
+			cacheUnusable(e);
 		}
+	}
 
-		for (File f : getFilesOfExt(files, ".html")) {
-			htmlFiles.add(new CourseItem(f, this));
+	private void cacheUnusable(IOException e) {
+		// the cache only saves time, so the course carries on without it
+		if (!cacheFailed) {
+			cacheFailed = true;
+			log("WARNING: result cache can't be used, analyzing every file: " + e.getLocalizedMessage());
 		}
+	}
 
-		return htmlFiles;
+	/**
+	 * Gets how busy each stage of the item pipeline was, to see which one held the course up.
+	 *
+	 * @return the stats, or null if the items were analyzed one at a time (or haven't been analyzed yet)
+	 */
+	public PipelineStats getPipelineStats() {
+		return pipelineStats;
 	}
 
 	/**
-	 * Gets XML files in the course export.
+	 * Gets every link found in the course so far.
 	 *
-	 * @return a list of all of the XML files in the export
+	 * @return the course's links
 	 */
-	public ArrayList<File> getXMLFiles() {
-		return xmlFiles;
+	public LinkStore getLinkStore() {
+		return linkStore;
 	}
 
 	/**
-	 * Processes messages and passes them up to the parent GUI for printing.
-	 * @param chunks List of messages to print.
+	 * Gets how long the course spent in each phase, so far.
+	 *
+	 * @return the timings
 	 */
-	@Override
-    protected void process(List<String> chunks) {
-		for (String s : chunks) {
-			parent.println(s);
+	public PhaseTimings getPhaseTimings() {
+		return phaseTimings;
+	}
+
+	/**
+	 * Gets the export being processed.
+	 *
+	 * @return the export ZIP
+	 */
+	public File getExportFile() {
+		return in;
+	}
+
+	/**
+	 * Aborts the course: it stops at the next item or file it gets to, and {@link #call()} throws a
+	 * {@link CourseAbortedException}. The export is closed straight away, so anything still reading it fails rather
+	 * than carrying on. May be called from any thread; only the first reason is kept.
+	 *
+	 * @param reason Why, e.g. which phase took too long.
+	 */
+	public void abort(String reason) {
+		// only the call that sets the reason goes on to time it and close the export
+		if (!abortReason.compareAndSet(null, reason)) {
+			return;
+		}
+		abortedAt = System.nanoTime();
+		log("ERROR: aborting: " + reason);
+
+		CourseArchive opened = archive;
+		if (opened != null) {
+			try {
+				opened.close();
+			} catch (IOException e) {
+				// it's being given up on anyway
+			}
 		}
 	}
 
 	/**
-	 * Remove xid strings from all content collection filenames. Makes getting the xid a little trickier,
-	 * but simplifies seraching filesnames. Recursive, so may StackOverflow if used on an incredibly deep hierarchy.
-	 * @param dir The directory to sanitize, usually the content collection root in the export.
+	 * Whether the course has been aborted.
+	 *
+	 * @return true once {@link #abort} has been called
 	 */
-	private void sanitizeXIDFilenames(File dir) {
-        if (dir != null) {
-            File[] files = dir.listFiles();
-			if (files != null && files.length > 0) {
-				for (File f : files) {
+	public boolean isAborted() {
+		return abortReason.get() != null;
+	}
 
-					String newFilename = xidPattern.matcher(f.getName()).replaceAll("");
-					String newPath = f.getAbsolutePath().replace(f.getName(), "") + newFilename;
+	/**
+	 * Gets why the course was aborted.
+	 *
+	 * @return the reason given to {@link #abort}, or null if it hasn't been
+	 */
+	public String getAbortReason() {
+		return abortReason.get();
+	}
 
-                    File f2 = new File(newPath);
-                    f.renameTo(f2);
+	/**
+	 * Gets how long ago the course was aborted.
+	 *
+	 * @return nanoseconds, or -1 if it hasn't been
+	 */
+	public long getNanosSinceAbort() {
+		if (abortReason.get() == null) {
+			return -1;
+		}
+		// the reason is set a moment before the time
+		Long at = abortedAt;
+		return at != null ? System.nanoTime() - at : 0;
+	}
 
-                    if (f2.isDirectory()) {
-						sanitizeXIDFilenames(f2);
-					}
-				}
-			}
+	/**
+	 * Stops the course if it's been aborted. Called between items, files and report rows.
+	 *
+	 * @throws CourseAbortedException If it has been.
+	 */
+	void checkAborted() throws CourseAbortedException {
+		String reason = abortReason.get();
+		if (reason != null) {
+			throw new CourseAbortedException(reason);
 		}
 	}
 
 	/**
-	 * Delete directory and all contained files and subdirectories (recursive, will StackOverflow on <b>very</b> deep
-	 * trees.
-	 * @param dir Directory to delete.
+	 * Sends a status message to the listener.
+	 *
+	 * @param message The message to print.
 	 */
-	private void deleteDirectory(File dir) {
-        File[] files = dir.listFiles();
-        if (files != null) {
-            for (File f : files) {
-                if (f.isDirectory()) {
-                    deleteDirectory(f);
-                }
-                f.delete();
-            }
-            dir.delete();
-        }
-    }
+	void log(String message) {
+		listener.message(message);
+	}
 }
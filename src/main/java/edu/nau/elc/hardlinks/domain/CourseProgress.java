@@ -0,0 +1,148 @@
+package edu.nau.elc.hardlinks.domain;
+
+/**
+ * How far along a course is, as of when it was sent to the {@link ProcessorListener}. The counts only ever go up, and
+ * the last one sent for a course is always {@link #isDone() done}, whether the course worked or not.
+ */
+public class CourseProgress {
+
+	private final String course;
+	private final long bytesDone;
+	private final long bytesTotal;
+	private final int itemsDone;
+	private final int itemsTotal;
+	private final long linksResolved;
+	private final long elapsedNanos;
+	private final long remainingNanos;
+	private final boolean done;
+
+	CourseProgress(String course, long bytesDone, long bytesTotal, int itemsDone, int itemsTotal, long linksResolved,
+				   long elapsedNanos, long remainingNanos, boolean done) {
+		this.course = course;
+		this.bytesDone = bytesDone;
+		this.bytesTotal = bytesTotal;
+		this.itemsDone = itemsDone;
+		this.itemsTotal = itemsTotal;
+		this.linksResolved = linksResolved;
+		this.elapsedNanos = elapsedNanos;
+		this.remainingNanos = remainingNanos;
+		this.done = done;
+	}
+
+	/**
+	 * Gets the course's name.
+	 *
+	 * @return the export's filename
+	 */
+	public String getCourse() {
+		return course;
+	}
+
+	/**
+	 * Gets how much of the course's items' files has been inflated and analyzed.
+	 *
+	 * @return uncompressed bytes
+	 */
+	public long getBytesDone() {
+		return bytesDone;
+	}
+
+	/**
+	 * Gets the size of every item's file put together.
+	 *
+	 * @return uncompressed bytes, or 0 if the items haven't been found yet
+	 */
+	public long getBytesTotal() {
+		return bytesTotal;
+	}
+
+	/**
+	 * Gets how many items (.dat and HTML files) have been analyzed.
+	 *
+	 * @return the count
+	 */
+	public int getItemsDone() {
+		return itemsDone;
+	}
+
+	/**
+	 * Gets how many items the course has.
+	 *
+	 * @return the count, or 0 if the items haven't been found yet
+	 */
+	public int getItemsTotal() {
+		return itemsTotal;
+	}
+
+	/**
+	 * Gets how many links have been classified and sorted (hard, x-id or discarded) so far.
+	 *
+	 * @return the count
+	 */
+	public long getLinksResolved() {
+		return linksResolved;
+	}
+
+	/**
+	 * Gets how long the items have been analyzed for.
+	 *
+	 * @return nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Gets about how long the rest of the items will take, at the rate they've gone so far. Writing out the report
+	 * once they're done isn't included.
+	 *
+	 * @return nanoseconds, or -1 if it's too early to tell
+	 */
+	public long getRemainingNanos() {
+		return remainingNanos;
+	}
+
+	/**
+	 * Checks whether the processor is finished with the course, one way or the other.
+	 *
+	 * @return true if this is the last update for the course
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Gets how much of the course is done, by bytes (since big files take longer), or by items if their sizes aren't
+	 * known.
+	 *
+	 * @return 0 to 1
+	 */
+	public double getFraction() {
+		if (done) {
+			return 1;
+		} else if (bytesTotal > 0) {
+			return Math.min(1, (double) bytesDone / bytesTotal);
+		} else if (itemsTotal > 0) {
+			return (double) itemsDone / itemsTotal;
+		}
+		return 0;
+	}
+
+	/**
+	 * Sums up the progress on one line, e.g. "450 of 1000 items (45%), 12.3 of 30.0 MB, 5210 links, about 20 s left".
+	 *
+	 * @return the summary
+	 */
+	@Override
+	public String toString() {
+		if (done) {
+			return String.format("%d items, %d links in %.1f s", itemsDone, linksResolved, elapsedNanos / 1e9);
+		}
+		String s = String.format("%d of %d items (%.0f%%), %.1f of %.1f MB, %d links", itemsDone, itemsTotal,
+				getFraction() * 100, bytesDone / 1048576.0, bytesTotal / 1048576.0, linksResolved);
+		if (remainingNanos >= 0) {
+			s += String.format(", about %.0f s left", Math.ceil(remainingNanos / 1e9));
+		}
+		return s;
+	}
+}
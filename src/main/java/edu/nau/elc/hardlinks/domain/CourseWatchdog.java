@@ -0,0 +1,87 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.profiling.PhaseBudgets;
+import edu.nau.elc.hardlinks.profiling.PhaseSpan;
+
+import java.io.Closeable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps an eye on the courses being processed, and aborts any course with a phase that's gone over its
+ * {@link PhaseBudgets budget}. One watchdog (and its one thread) is shared by every course in a run; each processor
+ * given to it with {@link CourseProcessor#setWatchdog} is watched while it runs.
+ * <br><br>
+ * Aborting is cooperative: the course stops at the next item or file it gets to, and its export is closed so anything
+ * reading it fails straight away. Code that's stuck without reading anything won't notice, so a batch shouldn't wait
+ * for an aborted course forever.
+ */
+public class CourseWatchdog implements Closeable {
+
+	// how often the courses are checked
+	private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+	private final PhaseBudgets budgets;
+	private final Set<CourseProcessor> courses = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService timer;
+
+	/**
+	 * Instantiates a new watchdog, and starts its thread.
+	 *
+	 * @param budgets How long each phase may take.
+	 */
+	public CourseWatchdog(PhaseBudgets budgets) {
+		this.budgets = budgets;
+		timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "course watchdog");
+			t.setDaemon(true);
+			return t;
+		});
+		timer.scheduleWithFixedDelay(this::check, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	void watch(CourseProcessor course) {
+		courses.add(course);
+	}
+
+	void unwatch(CourseProcessor course) {
+		courses.remove(course);
+	}
+
+	private void check() {
+		for (CourseProcessor course : courses) {
+			// an exception would stop the schedule, and with it every later check
+			try {
+				check(course);
+			} catch (RuntimeException e) {
+				course.log("ERROR: the watchdog can't check " + course.getExportFile().getName() + ": " + e);
+			}
+		}
+	}
+
+	private void check(CourseProcessor course) {
+		if (course.isAborted()) {
+			return;
+		}
+		for (PhaseSpan span : course.getPhaseTimings().getActiveSpans()) {
+			long budget = budgets.getBudgetNanos(span.getPhase());
+			if (budget > 0 && span.getElapsedNanos() > budget) {
+				course.abort(String.format("%s took over %d s%s", span.getPhase().getLabel(),
+						TimeUnit.NANOSECONDS.toSeconds(budget),
+						span.getPath().isEmpty() ? "" : " on " + span.getPath()));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Stops the watchdog's thread. Courses still running aren't watched any more.
+	 */
+	@Override
+	public void close() {
+		timer.shutdownNow();
+	}
+}
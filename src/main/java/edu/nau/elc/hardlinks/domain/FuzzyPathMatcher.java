@@ -0,0 +1,125 @@
+package edu.nau.elc.hardlinks.domain;
+
+import java.util.regex.Pattern;
+
+/**
+ * Picks which of several content collection files with the same name a link most likely points to, by the edit
+ * distance between the link and each file's path. Made once per link and reused for every candidate, so the working
+ * rows are only allocated once, and each distance is only worked out as far as it takes to know it can't beat the
+ * best one so far.
+ */
+class FuzzyPathMatcher {
+
+	// the course's own folder at the start of a content collection path, which the links don't have
+	private static final Pattern COURSE_FOLDER = Pattern.compile("/courses/[0-9]{4}-NAU[0-9]{2}-[A-Z]{2,4}-"
+			+ "[0-9]{3}[A-Z]{0,2}-SEC[0-9A-Z]{1,4}-[0-9]{2,5}.NAU-PSSIS/");
+
+	private final String target;
+	private int[] cost;
+	private int[] newcost;
+	private int best = Integer.MAX_VALUE;
+
+	/**
+	 * Instantiates a new matcher.
+	 *
+	 * @param url The link's URL.
+	 */
+	FuzzyPathMatcher(String url) {
+		target = url.replace(" ", "%20");
+		cost = new int[target.length() + 1];
+		newcost = new int[target.length() + 1];
+	}
+
+	/**
+	 * Checks whether a file is a closer match than any before it. Ties go to the earlier file.
+	 *
+	 * @param path The file's path in the content collection (starting with /courses/...).
+	 * @return true if it's the closest match so far
+	 */
+	boolean offer(String path) {
+		int dist = levDist(COURSE_FOLDER.matcher(path).replaceAll(""), best - 1);
+		if (dist < best) {
+			best = dist;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the Levenshtein Distance between the link and a path, based on the version from
+	 * <a href="http://en.wikibooks.org/wiki/Algorithm_Implementation/Strings/Levenshtein_distance#Java">WikiBooks</a>.
+	 * <br><br>
+	 * Only the cells within {@code limit} of the diagonal are filled in, since any path through the others costs
+	 * more than that, and it gives up as soon as a whole row is over the limit. Because non-ASCII characters are
+	 * handled differently in the XML than they are in the ZIP file entities, we just want to find the closest match,
+	 * rather than an exact one.
+	 *
+	 * @param s1    The path.
+	 * @param limit The largest distance that matters.
+	 * @return The "edit distance" between the two, or something bigger than {@code limit} if it's bigger than that.
+	 */
+	int levDist(String s1, int limit) {
+		int len0 = target.length() + 1;
+		int len1 = s1.length() + 1;
+		if (Math.abs(len0 - len1) > limit) {
+			return limit + 1;
+		}
+
+		// the distance can't be more than the longer string's length, so neither can the band
+		int band = Math.min(limit, Math.max(len0, len1));
+		// past the band is out of reach; anything over the band will do to mark it
+		int out = band + 1;
+
+		// initial cost of skipping prefix in the link
+		for (int i = 0; i < len0; i++) {
+			cost[i] = i <= band ? i : out;
+		}
+
+		// transformation cost for each letter in the path
+		for (int j = 1; j < len1; j++) {
+			int from = Math.max(1, j - band);
+			int to = Math.min(len0 - 1, j + band);
+
+			// initial cost of skipping prefix in the path
+			newcost[0] = j <= band ? j : out;
+			if (from > 1) {
+				newcost[from - 1] = out;
+			}
+			int rowMin = newcost[0];
+
+			// transformation cost for each letter in the link, within the band
+			char c1 = s1.charAt(j - 1);
+			for (int i = from; i <= to; i++) {
+				int match = (target.charAt(i - 1) == c1) ? 0 : 1;
+
+				// computing cost for each transformation; saturating, so "out" never wraps around
+				int cost_replace = Math.min(cost[i - 1] + match, out);
+				int cost_insert = Math.min(cost[i] + 1, out);
+				int cost_delete = Math.min(newcost[i - 1] + 1, out);
+
+				// keep minimum cost
+				int c = Math.min(Math.min(cost_insert, cost_delete), cost_replace);
+				newcost[i] = c;
+				if (c < rowMin) {
+					rowMin = c;
+				}
+			}
+			if (to < len0 - 1) {
+				newcost[to + 1] = out;
+			}
+
+			// every way through this row already costs too much
+			if (rowMin > band) {
+				return limit + 1;
+			}
+
+			// swap cost/newcost arrays
+			int[] swap = cost;
+			cost = newcost;
+			newcost = swap;
+		}
+
+		// the distance is the cost for transforming all letters in both strings
+		return cost[len0 - 1] > band ? limit + 1 : cost[len0 - 1];
+	}
+}
@@ -0,0 +1,309 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.archive.ArchiveEntry;
+import edu.nau.elc.hardlinks.report.TriageReport;
+import org.apache.commons.io.IOUtils;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Analyzes a course's items in three stages that all run at once, with a bounded queue between each:
+ * <ol>
+ * <li>read: one thread inflates each item's file out of the export, in order;</li>
+ * <li>parse: the pool's threads parse and classify each item as soon as its file has been read;</li>
+ * <li>report: the calling thread writes each item's x-id and discarded links to the report as soon as it and every
+ * item before it are done, so rows come out in the same order as the files.</li>
+ * </ol>
+ * Only so many items (and so many bytes of file content) are allowed between the read stage and the report at once, so
+ * a stage that falls behind holds up the ones before it instead of letting work pile up in memory. How long each stage
+ * spent working or waiting is kept in the {@link PipelineStats}.
+ */
+class ItemPipeline {
+
+	// items between the read stage and the report, per parse thread
+	private static final int ITEMS_PER_THREAD = 64;
+
+	// files read ahead of the parse stage, per parse thread
+	private static final int READ_AHEAD_PER_THREAD = 4;
+
+	// file content held in the read queue; files bigger than MAX_READ_AHEAD are left for the parse stage to stream
+	private static final int BUFFER_KB = 64 * 1024;
+	private static final long MAX_READ_AHEAD = 8L * 1024 * 1024;
+
+	/**
+	 * One item on its way through the pipeline.
+	 */
+	private static class Work {
+		private final int index;
+		private final ArchiveEntry file;
+		private final int kb;
+		private byte[] content;
+		private CourseItem item;
+		private Throwable error;
+
+		Work(int index, ArchiveEntry file, int kb) {
+			this.index = index;
+			this.file = file;
+			this.kb = kb;
+		}
+	}
+
+	// tells a parse thread there's nothing left to read
+	private static final Work END = new Work(-1, null, 0);
+
+	private final CourseProcessor processor;
+	private final ForkJoinPool pool;
+	private final List<ArchiveEntry> files;
+	private final int parseThreads;
+	private final BlockingQueue<Work> readQueue;
+	private final BlockingQueue<Work> resultQueue;
+	private final Semaphore inFlight;
+	private final Semaphore bufferedKb = new Semaphore(BUFFER_KB);
+	private final CountDownLatch parseDone;
+	private final PipelineStats stats;
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Instantiates a new pipeline.
+	 *
+	 * @param processor The course the items are in.
+	 * @param pool      The pool to parse the items on. The pipeline keeps every one of its threads busy until it's done.
+	 * @param files     The .dat and HTML files to analyze.
+	 */
+	ItemPipeline(CourseProcessor processor, ForkJoinPool pool, List<ArchiveEntry> files) {
+		this.processor = processor;
+		this.pool = pool;
+		this.files = files;
+		parseThreads = pool.getParallelism();
+
+		int window = parseThreads * ITEMS_PER_THREAD;
+		int readAhead = parseThreads * READ_AHEAD_PER_THREAD;
+		inFlight = new Semaphore(window);
+		readQueue = new ArrayBlockingQueue<>(readAhead + parseThreads); // with room for an END per thread
+		resultQueue = new ArrayBlockingQueue<>(window);
+		parseDone = new CountDownLatch(parseThreads);
+		stats = new PipelineStats(parseThreads, readAhead + parseThreads, window);
+	}
+
+	/**
+	 * Gets how busy each stage was. Only complete once {@link #run} has returned.
+	 *
+	 * @return the stats
+	 */
+	PipelineStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Analyzes every item and writes its x-id and discarded links to the report. Their hard links can't be written
+	 * until every item has been sorted, so they stay in the course's {@link LinkStore} till then. If an item fails,
+	 * the rest of the pipeline is stopped and the first one to fail (in file order) is the one thrown.
+	 *
+	 * @param report The report to write to.
+	 * @return the analyzed items, in the same order as the files
+	 * @throws IOException  If a file can't be read.
+	 * @throws SAXException If a file isn't valid XML.
+	 */
+	ArrayList<CourseItem> run(TriageReport report) throws IOException, SAXException {
+		long start = System.nanoTime();
+		Thread reader = new Thread(this::read, "read " + processor.getExportFile().getName());
+		reader.setDaemon(true);
+		reader.start();
+		for (int i = 0; i < parseThreads; i++) {
+			pool.execute(this::parse);
+		}
+
+		ArrayList<CourseItem> items = new ArrayList<>(files.size());
+		HashMap<Integer, Work> outOfOrder = new HashMap<>();
+		try {
+			for (int next = 0; next < files.size(); next++) {
+				long waitStart = System.nanoTime();
+				Work w = outOfOrder.remove(next);
+				while (w == null) {
+					Work done = resultQueue.take();
+					if (done.index == next) {
+						w = done;
+					} else {
+						outOfOrder.put(done.index, done);
+					}
+				}
+				long workStart = System.nanoTime();
+				stats.getReport().starved(workStart - waitStart);
+
+				rethrow(w.error);
+				report.addXidAndDiscardedLinks(w.item);
+				items.add(w.item);
+				inFlight.release();
+				stats.getReport().busy(System.nanoTime() - workStart);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while analyzing items");
+		} finally {
+			// on the way out after a failure, stop reading and let the parse threads skip what's left; either way,
+			// nothing may still be reading the export once this returns
+			cancelled = true;
+			reader.interrupt();
+			awaitUninterruptibly(parseDone);
+			stats.setWallNanos(System.nanoTime() - start);
+		}
+		return items;
+	}
+
+	/**
+	 * The read stage. Reads each file into memory (unless it's too big, in which case it's left for the parse stage to
+	 * stream, or its result is cached, in which case it isn't needed) as long as there's room in the window, then hands
+	 * it to the parse stage.
+	 */
+	private void read() {
+		PipelineStats.Stage stage = stats.getRead();
+		try {
+			for (int i = 0; i < files.size() && !cancelled; i++) {
+				ArchiveEntry f = files.get(i);
+				long size = f.getSize();
+				boolean readAhead = size >= 0 && size <= MAX_READ_AHEAD && !processor.hasCachedResult(f);
+				Work w = new Work(i, f, readAhead ? (int) ((size + 1023) / 1024) : 0);
+
+				long waitStart = System.nanoTime();
+				inFlight.acquire();
+				bufferedKb.acquire(w.kb);
+				long readStart = System.nanoTime();
+				stage.blocked(readStart - waitStart);
+
+				if (readAhead) {
+					try {
+						InputStream in = processor.getArchive().open(f);
+						try {
+							w.content = IOUtils.toByteArray(in);
+						} finally {
+							in.close();
+						}
+					} catch (IOException e) {
+						w.error = e;
+					}
+				}
+
+				long putStart = System.nanoTime();
+				stage.busy(putStart - readStart);
+				readQueue.put(w);
+				stats.getReadQueue().sample(readQueue.size());
+				stage.blocked(System.nanoTime() - putStart);
+			}
+		} catch (InterruptedException e) {
+			// cancelled
+		} finally {
+			for (int i = 0; i < parseThreads; i++) {
+				putUninterruptibly(readQueue, END);
+			}
+		}
+	}
+
+	/**
+	 * The parse stage, run on every thread in the pool. Builds a course item for each file read until the read stage
+	 * says there are no more.
+	 */
+	private void parse() {
+		PipelineStats.Stage stage = stats.getParse();
+		try {
+			while (true) {
+				long waitStart = System.nanoTime();
+				Work w = takeUninterruptibly(readQueue);
+				long workStart = System.nanoTime();
+				stage.starved(workStart - waitStart);
+				if (w == END) {
+					return;
+				}
+
+				if (!cancelled && w.error == null) {
+					try {
+						w.item = new CourseItem(w.file, w.content, processor);
+					} catch (Throwable t) {
+						w.error = t;
+					}
+				}
+				w.content = null;
+				bufferedKb.release(w.kb);
+				stage.busy(System.nanoTime() - workStart);
+
+				// never blocks: there are never more items in flight than the queue has room for
+				putUninterruptibly(resultQueue, w);
+				stats.getResultQueue().sample(resultQueue.size());
+			}
+		} finally {
+			parseDone.countDown();
+		}
+	}
+
+	private static void rethrow(Throwable error) throws IOException, SAXException {
+		if (error == null) {
+			return;
+		}
+		if (error instanceof IOException) {
+			throw (IOException) error;
+		} else if (error instanceof SAXException) {
+			throw (SAXException) error;
+		} else if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		}
+		throw (Error) error;
+	}
+
+	private static void putUninterruptibly(BlockingQueue<Work> queue, Work w) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				queue.put(w);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// no ForkJoinPool.managedBlock here: the pool only runs the parse tasks, so a spare thread would have nothing to do
+	private static Work takeUninterruptibly(BlockingQueue<Work> queue) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return queue.take();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
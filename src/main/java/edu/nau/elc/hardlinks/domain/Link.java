@@ -1,123 +1,28 @@
 package edu.nau.elc.hardlinks.domain;
 
-import org.w3c.dom.Document;
+import edu.nau.elc.hardlinks.rules.LinkCategory;
 import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.File;
 import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
- * Represents a single link (a or img tag) found in HTML anywhere in the course.
+ * Represents a single link (a or img tag) found in HTML anywhere in the course. The link itself is a row in the
+ * course's {@link LinkStore}; this is just a view of it, made when it's asked for.
  */
 public class Link {
-	private static DocumentBuilder documentBuilder;
-
-	private final CourseItem parent;
-	private final String url;
-	private final String linkText;
-	private String xid = "";
-
-	/**
-	 * Instantiates a new Link.
-	 *
-	 * @param url        the URL
-	 * @param text       the text/alt
-	 * @param courseItem the parent course item
-	 * @param discarded  if it isn't a "hardlink," it's discarded
-	 * @throws IOException  If unable to read from the relevant files.
-	 * @throws SAXException If unable to parse (severely malformed XML, usually).
-	 */
-	public Link(String url, String text, CourseItem courseItem, boolean discarded)
-			throws IOException, SAXException {
-
-		if (documentBuilder == null) {
-			try {
-				documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-			} catch (ParserConfigurationException pce) {
-				throw new SAXException(pce);
-			}
-		}
-
-		parent = courseItem;
-		this.url = url;
-		linkText = text;
-		if (!discarded) {
-			findXID();
-		}
-	}
+	private final LinkStore store;
+	private final int row;
 
 	/**
-	 * Get the ID from a given XML file. Used for retreiving a content item's XID.
+	 * Instantiates a view of a link.
 	 *
-	 * @param f The file to parse.
-	 * @return The "identifier" from the XML file.
-	 * @throws IOException
-	 * @throws SAXException
+	 * @param store The course's links.
+	 * @param row   The link's row.
 	 */
-	private static String getIdentifier(File f) throws IOException, SAXException {
-		Document doc = documentBuilder.parse(f);
-		return doc.getElementsByTagName("identifier").item(0).getTextContent();
-	}
-
-	/**
-	 * Gets the Levenshtein Distance between two strings. Copied from
-	 * <a href="http://en.wikibooks.org/wiki/Algorithm_Implementation/Strings/Levenshtein_distance#Java">WikiBooks</a>.
-	 * <br><br>
-	 * This is used to find likely candidates for a filename match in the exported Content Collection. Because
-	 * non-ASCII characters are handled differently in the XML than they are in the ZIP file entities, we just want
-	 * to find the closest match, rather than an exact one.
-	 *
-	 * @param s0 The first string.
-	 * @param s1 The second string.
-	 * @return The "edit distance" between the two (see WikiBooks link for more information).
-	 */
-	private static int levDist(String s0, String s1) {
-		int len0 = s0.length() + 1;
-		int len1 = s1.length() + 1;
-
-		// the array of distances
-		int[] cost = new int[len0];
-		int[] newcost = new int[len0];
-
-		// initial cost of skipping prefix in String s0
-		for (int i = 0; i < len0; i++)
-			cost[i] = i;
-
-		// dynamicaly computing the array of distances
-
-		// transformation cost for each letter in s1
-		for (int j = 1; j < len1; j++) {
-			// initial cost of skipping prefix in String s1
-			newcost[0] = j;
-
-			// transformation cost for each letter in s0
-			for (int i = 1; i < len0; i++) {
-				// matching current letters in both strings
-				int match = (s0.charAt(i - 1) == s1.charAt(j - 1)) ? 0 : 1;
-
-				// computing cost for each transformation
-				int cost_replace = cost[i - 1] + match;
-				int cost_insert = cost[i] + 1;
-				int cost_delete = newcost[i - 1] + 1;
-
-				// keep minimum cost
-				newcost[i] = Math.min(Math.min(cost_insert, cost_delete),
-						cost_replace);
-			}
-
-			// swap cost/newcost arrays
-			int[] swap = cost;
-			cost = newcost;
-			newcost = swap;
-		}
-
-		// the distance is the cost for transforming all letters in both strings
-		return cost[len0 - 1];
+	Link(LinkStore store, int row) {
+		this.store = store;
+		this.row = row;
 	}
 
 	/**
@@ -140,24 +45,25 @@ public class Link {
 	}
 
 	/**
-	 * If this links to a file in the Content Collection, the findXID method tries to match it up to a particular
+	 * If a URL links to a file in the Content Collection, the findXID method tries to match it up to a particular
 	 * CMS id, rather than the absolute link.
 	 *
+	 * @param url   The link's URL.
+	 * @param index The course's content collection files.
+	 * @return the xid URL, or why there isn't one
 	 * @throws IOException
 	 * @throws SAXException
 	 */
-	private void findXID() throws IOException, SAXException {
-		List<File> candidates;
-		String[] splitted = url.split("/");
-		String filename = splitted[splitted.length - 1];
-		String xmlFilename = filename + ".xml";
+	static String findXID(String url, XidIndex index) throws IOException, SAXException {
+		String filename = UrlNormalizer.filename(url);
 
-		candidates = parent.getCourse()
-				.getXMLFiles().stream()
-				.filter(x -> x.getName().equals(xmlFilename))
-				.collect(Collectors.toList());
+		List<XidIndex.Identifier> candidates = index.lookup(filename);
+		if (candidates.isEmpty() && !isAllASCII(filename)) {
+			// accents may be decomposed in the link but not in the export, or the other way round
+			candidates = index.lookupNormalized(filename);
+		}
 
-		String prefix = "https://bblearn.nau.edu/bbcswebdav/xid-";
+		String xid = "";
 		if (candidates.size() == 0) {
 			if (isAllASCII(url)) {
 				xid = "NOT FOUND IN COLLECTION";
@@ -165,23 +71,17 @@ public class Link {
 				xid = "NON-ASCII CHARS IN LINK"; //rarely happens
 			}
 		} else if (candidates.size() == 1) {
-			xid = prefix + getIdentifier(candidates.get(0)).split("#")[0];
+			xid = candidates.get(0).getUrl();
 		} else {
-			String regex = "/courses/[0-9]{4}-NAU[0-9]{2}-[A-Z]{2,4}-"
-					+ "[0-9]{3}[A-Z]{0,2}-SEC[0-9A-Z]{1,4}-[0-9]{2,5}.NAU-PSSIS/";
-
-			int minVal = 10000000; //absurdly high levenshtein distance, shouldn't really happen
-			for (File f : candidates) {
-				String[] idents = getIdentifier(f).split("#");
-				String identPath = idents[1].replaceAll(regex, "");
-				int currVal = levDist(url.replaceAll(" ", "%20"), identPath);
-				if (currVal < minVal) {
-					xid = prefix + idents[0];
-					minVal = currVal;
+			// the same filename is in several folders; go with the one whose path is closest to the link
+			FuzzyPathMatcher matcher = new FuzzyPathMatcher(url);
+			for (XidIndex.Identifier ident : candidates) {
+				if (matcher.offer(ident.getPath())) {
+					xid = ident.getUrl();
 				}
 			}
 		}
-
+		return xid;
 	}
 
 	/**
@@ -190,7 +90,7 @@ public class Link {
 	 * @return the url/URL
 	 */
 	public String getUrl() {
-		return url;
+		return store.getUrl(row);
 	}
 
 	/**
@@ -199,7 +99,7 @@ public class Link {
 	 * @return the link text/image alt text
 	 */
 	public String getLinkText() {
-		return linkText;
+		return store.getText(row);
 	}
 
 	/**
@@ -208,6 +108,15 @@ public class Link {
 	 * @return the xid
 	 */
 	public String getXid() {
-		return xid;
+		return store.getXid(row);
+	}
+
+	/**
+	 * Gets the category the rules put the link in.
+	 *
+	 * @return the category
+	 */
+	public LinkCategory getCategory() {
+		return store.getCategory(row);
 	}
 }
@@ -0,0 +1,172 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.cache.ItemResult;
+import edu.nau.elc.hardlinks.rules.LinkCategory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every link found in a course, one row per link, kept in columns (parallel arrays) rather than as an object per link.
+ * Each row has the item it came from, its category, and the ids of its URL, text and xid in a {@link StringPool}, so a
+ * URL that turns up a thousand times is only kept once. A row takes 17 bytes, plus whatever strings are new.
+ * <br><br>
+ * Each item's links are added all at once, hard links first, then x-id links, then the rest, so every item's links of
+ * each kind are in consecutive rows. {@link Link} is a view of one row.
+ * <br><br>
+ * Items are analyzed on several threads, so every method locks the store; each item only takes the lock once to add
+ * its links.
+ */
+public class LinkStore {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final LinkCategory[] CATEGORIES = LinkCategory.values();
+
+	private StringPool strings;
+	private int[] items;
+	private byte[] categories;
+	private int[] urls;
+	private int[] texts;
+	private int[] xids;
+	private int size;
+	private int itemCount;
+
+	/**
+	 * Instantiates an empty store.
+	 */
+	public LinkStore() {
+		clear();
+	}
+
+	/**
+	 * Adds an item's links.
+	 *
+	 * @param links  The item's links, in the order they were found.
+	 * @param xidsOf The xid of each link (in the same order), or null for the ones that weren't looked up.
+	 * @return the row of the item's first link; its hard links, then its x-id links, then the rest follow in order
+	 */
+	synchronized int addItem(List<ItemResult.ClassifiedLink> links, String[] xidsOf) {
+		int item = itemCount++;
+		int first = size;
+		ensureCapacity(size + links.size());
+
+		add(item, links, xidsOf, LinkCategory.HARD);
+		add(item, links, xidsOf, LinkCategory.XID);
+		add(item, links, xidsOf, null);
+		return first;
+	}
+
+	// adds the links in one category, or (for null) the ones that aren't hard or x-id links
+	private void add(int item, List<ItemResult.ClassifiedLink> links, String[] xidsOf, LinkCategory only) {
+		for (int i = 0; i < links.size(); i++) {
+			ItemResult.ClassifiedLink link = links.get(i);
+			LinkCategory category = link.getCategory();
+			boolean matches = only != null ? category == only
+					: category != LinkCategory.HARD && category != LinkCategory.XID;
+			if (!matches) {
+				continue;
+			}
+
+			items[size] = item;
+			categories[size] = (byte) category.ordinal();
+			urls[size] = strings.intern(link.getUrl());
+			texts[size] = strings.intern(link.getText());
+			xids[size] = strings.intern(xidsOf[i] != null ? xidsOf[i] : "");
+			size++;
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= urls.length) {
+			return;
+		}
+		int grown = Math.max(capacity, urls.length + (urls.length >> 1));
+		items = Arrays.copyOf(items, grown);
+		categories = Arrays.copyOf(categories, grown);
+		urls = Arrays.copyOf(urls, grown);
+		texts = Arrays.copyOf(texts, grown);
+		xids = Arrays.copyOf(xids, grown);
+	}
+
+	/**
+	 * Removes every link, e.g. to analyze the course again.
+	 */
+	synchronized void clear() {
+		strings = new StringPool();
+		items = new int[INITIAL_CAPACITY];
+		categories = new byte[INITIAL_CAPACITY];
+		urls = new int[INITIAL_CAPACITY];
+		texts = new int[INITIAL_CAPACITY];
+		xids = new int[INITIAL_CAPACITY];
+		size = 0;
+		itemCount = 0;
+	}
+
+	/**
+	 * Gets how many links there are.
+	 *
+	 * @return the number of rows
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Gets how many different URLs, texts and xids there are between all of the links.
+	 *
+	 * @return the number of strings kept
+	 */
+	public synchronized int getDistinctStrings() {
+		return strings.size();
+	}
+
+	/**
+	 * Gets which item a link came from.
+	 *
+	 * @param row The link's row.
+	 * @return the item's id, counting from 0 in the order the items were added
+	 */
+	public synchronized int getItem(int row) {
+		return items[row];
+	}
+
+	/**
+	 * Gets a link's category.
+	 *
+	 * @param row The link's row.
+	 * @return the category its rule gave it
+	 */
+	public synchronized LinkCategory getCategory(int row) {
+		return CATEGORIES[categories[row]];
+	}
+
+	/**
+	 * Gets a link's URL.
+	 *
+	 * @param row The link's row.
+	 * @return the URL
+	 */
+	public synchronized String getUrl(int row) {
+		return strings.get(urls[row]);
+	}
+
+	/**
+	 * Gets a link's text (or an image's alt text).
+	 *
+	 * @param row The link's row.
+	 * @return the text
+	 */
+	public synchronized String getText(int row) {
+		return strings.get(texts[row]);
+	}
+
+	/**
+	 * Gets a link's xid.
+	 *
+	 * @param row The link's row.
+	 * @return the xid, or an empty string if it wasn't looked up
+	 */
+	public synchronized String getXid(int row) {
+		return strings.get(xids[row]);
+	}
+}
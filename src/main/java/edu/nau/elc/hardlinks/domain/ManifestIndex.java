@@ -0,0 +1,179 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.xml.XmlParsers;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Compact index of the course navigation structure in imsmanifest.xml. The manifest is streamed once with StAX and
+ * only the parts we need are kept: for every "item" element, the index of its parent item and its title (as an index
+ * into a de-duplicated string table), plus a hash from identifierref (the name of the .dat file the item deploys) to
+ * the item. No DOM is kept alive after parsing.
+ * <br><br>
+ * Breadcrumb paths are computed once per folder and shared by every item in it.
+ */
+public class ManifestIndex {
+
+	private final ArrayList<String> strings = new ArrayList<>();
+	private final HashMap<String, Integer> itemsByRef = new HashMap<>();
+	private int[] parents = new int[256];
+	private int[] titles = new int[256];
+	private String[] folderPaths;
+	private int size = 0;
+
+	/**
+	 * Instantiates a new index by streaming through a manifest.
+	 *
+	 * @param manifest The contents of imsmanifest.xml. Is not closed.
+	 * @throws IOException  If the manifest can't be read.
+	 * @throws SAXException If the manifest isn't valid XML.
+	 */
+	public ManifestIndex(InputStream manifest) throws IOException, SAXException {
+		this(XmlParsers.newStreamReader(manifest));
+	}
+
+	/**
+	 * Instantiates a new index by streaming through a manifest with a reader that's already open.
+	 *
+	 * @param reader A reader over imsmanifest.xml. Is closed once the manifest has been read.
+	 * @throws SAXException If the manifest isn't valid XML.
+	 */
+	ManifestIndex(XMLStreamReader reader) throws SAXException {
+		HashMap<String, Integer> stringIds = new HashMap<>();
+
+		// for every open element, the index of the item it is (or -1 if it isn't an item)
+		int[] openItems = new int[64];
+		int depth = 0;
+		int titleOf = -1; // item whose title we're reading, if any
+		StringBuilder text = new StringBuilder();
+
+		try {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						int parentItem = depth > 0 ? openItems[depth - 1] : -1;
+						int thisItem = -1;
+						String tag = reader.getLocalName();
+
+						// some StAX implementations give a null prefix rather than an empty one
+						String prefix = reader.getPrefix();
+						if (tag.equals("item") && (prefix == null || prefix.isEmpty())) {
+							thisItem = addItem(parentItem);
+							String ref = reader.getAttributeValue(null, "identifierref");
+							// refs are matched case-insensitively, and the first item in the manifest wins
+							if (ref != null && !ref.isEmpty()) {
+								itemsByRef.putIfAbsent(ref.toLowerCase(), thisItem);
+							}
+						} else if (tag.equals("title") && parentItem > -1 && titles[parentItem] == -1) {
+							titleOf = parentItem;
+							text.setLength(0);
+						}
+
+						if (depth == openItems.length) {
+							openItems = Arrays.copyOf(openItems, depth * 2);
+						}
+						openItems[depth++] = thisItem;
+						break;
+
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						if (titleOf > -1) {
+							text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						}
+						break;
+
+					case XMLStreamConstants.END_ELEMENT:
+						depth--;
+						if (titleOf > -1 && depth > 0 && openItems[depth] == -1 && openItems[depth - 1] == titleOf) {
+							String title = text.toString();
+							Integer id = stringIds.get(title);
+							if (id == null) {
+								id = strings.size();
+								strings.add(title);
+								stringIds.put(title, id);
+							}
+							titles[titleOf] = id;
+							titleOf = -1;
+						}
+						break;
+				}
+			}
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new SAXException(e);
+		}
+
+		parents = Arrays.copyOf(parents, size);
+		titles = Arrays.copyOf(titles, size);
+		folderPaths = new String[size];
+	}
+
+	private int addItem(int parent) {
+		if (size == parents.length) {
+			parents = Arrays.copyOf(parents, size * 2);
+			titles = Arrays.copyOf(titles, size * 2);
+		}
+		parents[size] = parent;
+		titles[size] = -1;
+		return size++;
+	}
+
+	/**
+	 * Gets the path to an item within the course structure.
+	 *
+	 * @param identifierRef The item's identifierref (its .dat filename without the extension).
+	 * @return the content path (starting from left-hand navigation menu), or null if no item deploys it
+	 */
+	public String getContentPath(String identifierRef) {
+		Integer item = itemsByRef.get(identifierRef.toLowerCase());
+		if (item == null) {
+			return null;
+		}
+		return getFolderPath(parents[item]) + '\\';
+	}
+
+	/**
+	 * Gets the title of an item in the course structure.
+	 *
+	 * @param identifierRef The item's identifierref (its .dat filename without the extension).
+	 * @return the item's title, or null if no item deploys it
+	 */
+	public String getTitle(String identifierRef) {
+		Integer item = itemsByRef.get(identifierRef.toLowerCase());
+		if (item == null) {
+			return null;
+		}
+		return getNodeTitle(item);
+	}
+
+	private String getFolderPath(int folder) {
+		if (folder == -1) {
+			return "";
+		}
+
+		// items on different threads may both fill in the same folder's path, but they'll fill in the same string
+		String path = folderPaths[folder];
+		if (path == null) {
+			String nodeTitle = getNodeTitle(folder);
+			path = getFolderPath(parents[folder]);
+			if (!nodeTitle.equals("--TOP--")) {
+				path = path + '\\' + nodeTitle;
+			}
+			folderPaths[folder] = path;
+		}
+		return path;
+	}
+
+	private String getNodeTitle(int item) {
+		return titles[item] == -1 ? "" : strings.get(titles[item]);
+	}
+}
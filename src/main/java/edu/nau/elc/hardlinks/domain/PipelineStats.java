@@ -0,0 +1,201 @@
+package edu.nau.elc.hardlinks.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How busy each stage of a course's item pipeline was, and how full the queues between them were. The stage that's
+ * busy nearly all the time while the others wait on it is the bottleneck.
+ */
+public class PipelineStats {
+
+	/**
+	 * Time spent by one stage of the pipeline, added up over all of its threads.
+	 */
+	public static class Stage {
+		private final String name;
+		private final int threads;
+		private final AtomicLong busyNanos = new AtomicLong();
+		private final AtomicLong starvedNanos = new AtomicLong();
+		private final AtomicLong blockedNanos = new AtomicLong();
+
+		Stage(String name, int threads) {
+			this.name = name;
+			this.threads = threads;
+		}
+
+		void busy(long nanos) {
+			busyNanos.addAndGet(nanos);
+		}
+
+		void starved(long nanos) {
+			starvedNanos.addAndGet(nanos);
+		}
+
+		void blocked(long nanos) {
+			blockedNanos.addAndGet(nanos);
+		}
+
+		/**
+		 * Gets the time spent working.
+		 *
+		 * @return nanoseconds, over all of the stage's threads
+		 */
+		public long getBusyNanos() {
+			return busyNanos.get();
+		}
+
+		/**
+		 * Gets the time spent waiting for the stage before it.
+		 *
+		 * @return nanoseconds, over all of the stage's threads
+		 */
+		public long getStarvedNanos() {
+			return starvedNanos.get();
+		}
+
+		/**
+		 * Gets the time spent waiting for room in the queue after it (or for the items in flight to go down).
+		 *
+		 * @return nanoseconds, over all of the stage's threads
+		 */
+		public long getBlockedNanos() {
+			return blockedNanos.get();
+		}
+
+		private String describe(long wallNanos) {
+			double total = Math.max(1, wallNanos) * (double) threads;
+			return String.format("%s%s %.0f%% busy, %.0f%% starved, %.0f%% blocked", name,
+					threads > 1 ? " (" + threads + " threads)" : "", 100 * busyNanos.get() / total,
+					100 * starvedNanos.get() / total, 100 * blockedNanos.get() / total);
+		}
+	}
+
+	/**
+	 * How full a queue between two stages was, sampled every time something was added to it.
+	 */
+	public static class Queue {
+		private final String name;
+		private final int capacity;
+		private final AtomicLong samples = new AtomicLong();
+		private final AtomicLong total = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		Queue(String name, int capacity) {
+			this.name = name;
+			this.capacity = capacity;
+		}
+
+		void sample(int size) {
+			samples.incrementAndGet();
+			total.addAndGet(size);
+			max.accumulateAndGet(size, Math::max);
+		}
+
+		/**
+		 * Gets the average number of items in the queue.
+		 *
+		 * @return the average occupancy
+		 */
+		public double getAverage() {
+			long n = samples.get();
+			return n == 0 ? 0 : total.get() / (double) n;
+		}
+
+		/**
+		 * Gets the most items that were ever in the queue.
+		 *
+		 * @return the peak occupancy
+		 */
+		public long getMax() {
+			return max.get();
+		}
+
+		private String describe() {
+			return String.format("%s %.1f avg/%d max of %d", name, getAverage(), getMax(), capacity);
+		}
+	}
+
+	private final Stage read;
+	private final Stage parse;
+	private final Stage report;
+	private final Queue readQueue;
+	private final Queue resultQueue;
+	private long wallNanos;
+
+	PipelineStats(int parseThreads, int readQueueCapacity, int resultQueueCapacity) {
+		read = new Stage("read", 1);
+		parse = new Stage("parse", parseThreads);
+		report = new Stage("report", 1);
+		readQueue = new Queue("read->parse", readQueueCapacity);
+		resultQueue = new Queue("parse->report", resultQueueCapacity);
+	}
+
+	/**
+	 * Gets the stage that reads each item's file out of the export.
+	 *
+	 * @return the read stage
+	 */
+	public Stage getRead() {
+		return read;
+	}
+
+	/**
+	 * Gets the stage that parses and classifies each item's links.
+	 *
+	 * @return the parse stage
+	 */
+	public Stage getParse() {
+		return parse;
+	}
+
+	/**
+	 * Gets the stage that writes each item's x-id and discarded links to the report.
+	 *
+	 * @return the report stage
+	 */
+	public Stage getReport() {
+		return report;
+	}
+
+	/**
+	 * Gets the queue of files waiting to be parsed.
+	 *
+	 * @return the read queue
+	 */
+	public Queue getReadQueue() {
+		return readQueue;
+	}
+
+	/**
+	 * Gets the queue of analyzed items waiting to be reported.
+	 *
+	 * @return the result queue
+	 */
+	public Queue getResultQueue() {
+		return resultQueue;
+	}
+
+	/**
+	 * Gets how long the pipeline ran for.
+	 *
+	 * @return nanoseconds from the first file being read to the last item being reported
+	 */
+	public long getWallNanos() {
+		return wallNanos;
+	}
+
+	void setWallNanos(long wallNanos) {
+		this.wallNanos = wallNanos;
+	}
+
+	/**
+	 * Sums up the stats on one line, e.g. for printing after a course is done.
+	 *
+	 * @return the summary
+	 */
+	@Override
+	public String toString() {
+		return String.format("pipeline %.1f s: %s; %s; %s; queues %s, %s", wallNanos / 1e9, read.describe(wallNanos),
+				parse.describe(wallNanos), report.describe(wallNanos), readQueue.describe(), resultQueue.describe());
+	}
+}
@@ -0,0 +1,27 @@
+package edu.nau.elc.hardlinks.domain;
+
+/**
+ * Receives the status messages a {@link CourseProcessor} prints while it works (warnings, errors, and where the report
+ * was written), and how far along it is. The processor doesn't know or care whether they end up in a window or on a
+ * console.
+ */
+public interface ProcessorListener {
+
+	/**
+	 * Called for every status message. Items are analyzed on several threads, so this may be called from any of them,
+	 * and from more than one at a time.
+	 *
+	 * @param message The message, without a trailing newline.
+	 */
+	void message(String message);
+
+	/**
+	 * Called when the course's items have all been found, every so often while they're analyzed, and once more when
+	 * the processor is finished (even if it failed). Like {@link #message}, this may be called from any thread. Does
+	 * nothing unless it's overridden.
+	 *
+	 * @param progress How far along the course is.
+	 */
+	default void progress(CourseProgress progress) {
+	}
+}
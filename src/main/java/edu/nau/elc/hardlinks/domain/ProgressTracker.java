@@ -0,0 +1,96 @@
+package edu.nau.elc.hardlinks.domain;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts a course's items as they're analyzed (on any number of threads) and sends a {@link CourseProgress} to the
+ * listener now and then, with an estimate of the time left based on how fast the bytes have gone so far.
+ */
+class ProgressTracker {
+
+	// how often the listener hears about progress, at most
+	private static final long PUBLISH_INTERVAL = 250_000_000L;
+
+	// no estimate until this much of the course is done (or this long has gone by), since the first items skew it
+	private static final double MIN_FRACTION_FOR_ESTIMATE = 0.02;
+	private static final long MIN_NANOS_FOR_ESTIMATE = 2_000_000_000L;
+
+	private final String course;
+	private final ProcessorListener listener;
+	private final AtomicLong bytesDone = new AtomicLong();
+	private final AtomicInteger itemsDone = new AtomicInteger();
+	private final AtomicLong linksResolved = new AtomicLong();
+	private final AtomicLong lastPublished = new AtomicLong();
+	private volatile long bytesTotal;
+	private volatile int itemsTotal;
+	private volatile long start = System.nanoTime();
+
+	/**
+	 * Instantiates a new tracker.
+	 *
+	 * @param course   The course's name.
+	 * @param listener Where to send progress.
+	 */
+	ProgressTracker(String course, ProcessorListener listener) {
+		this.course = course;
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts counting, once every item has been found.
+	 *
+	 * @param items      How many items there are.
+	 * @param totalBytes The size of all of their files.
+	 */
+	void start(int items, long totalBytes) {
+		itemsTotal = items;
+		bytesTotal = totalBytes;
+		start = System.nanoTime();
+		lastPublished.set(start);
+		listener.progress(snapshot(start, false));
+	}
+
+	/**
+	 * Counts one analyzed item, and lets the listener know if it hasn't heard in a while.
+	 *
+	 * @param bytes The size of the item's file.
+	 * @param links How many links it had.
+	 */
+	void itemDone(long bytes, int links) {
+		bytesDone.addAndGet(bytes);
+		linksResolved.addAndGet(links);
+		itemsDone.incrementAndGet();
+
+		long now = System.nanoTime();
+		long last = lastPublished.get();
+		// only one of the threads that get here at the same time sends it
+		if (now - last >= PUBLISH_INTERVAL && lastPublished.compareAndSet(last, now)) {
+			listener.progress(snapshot(now, false));
+		}
+	}
+
+	/**
+	 * Sends the last update for the course. Called whether it worked or not.
+	 */
+	void finish() {
+		listener.progress(snapshot(System.nanoTime(), true));
+	}
+
+	private CourseProgress snapshot(long now, boolean done) {
+		long elapsed = now - start;
+		long bytes = bytesDone.get();
+		int items = itemsDone.get();
+
+		long remaining = -1;
+		if (!done) {
+			double fraction = bytesTotal > 0 ? (double) bytes / bytesTotal
+					: itemsTotal > 0 ? (double) items / itemsTotal : 0;
+			if (fraction > 0 && (fraction >= MIN_FRACTION_FOR_ESTIMATE || elapsed >= MIN_NANOS_FOR_ESTIMATE)) {
+				remaining = (long) (elapsed * Math.max(0, 1 - fraction) / fraction);
+			}
+		}
+		return new CourseProgress(course, bytes, bytesTotal, items, itemsTotal, linksResolved.get(), elapsed,
+				remaining, done);
+	}
+}
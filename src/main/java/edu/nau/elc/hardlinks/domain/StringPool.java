@@ -0,0 +1,87 @@
+package edu.nau.elc.hardlinks.domain;
+
+import java.util.Arrays;
+
+/**
+ * Gives each distinct string a small int id, and keeps one copy of it. The same URLs and link texts turn up over and
+ * over in a course (the same banner image, the same syllabus link), so a {@link LinkStore} keeps the ids instead of
+ * the strings. Ids start at 0 and go up by one for each new string.
+ * <br><br>
+ * Not thread-safe; the LinkStore that owns it locks around it.
+ */
+class StringPool {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private String[] strings = new String[INITIAL_CAPACITY];
+	// open addressing: id + 1 of the string in each slot, or 0 for an empty slot
+	private int[] slots = new int[INITIAL_CAPACITY * 2];
+	private int size = 0;
+
+	/**
+	 * Gets a string's id, adding it if it's new.
+	 *
+	 * @param s The string.
+	 * @return its id
+	 */
+	int intern(String s) {
+		int mask = slots.length - 1;
+		int i = mix(s.hashCode()) & mask;
+		while (slots[i] != 0) {
+			String existing = strings[slots[i] - 1];
+			if (existing.equals(s)) {
+				return slots[i] - 1;
+			}
+			i = (i + 1) & mask;
+		}
+
+		if (size == strings.length) {
+			strings = Arrays.copyOf(strings, size * 2);
+		}
+		strings[size] = s;
+		slots[i] = ++size;
+		// kept at most half full so the probes stay short
+		if (size * 2 > slots.length) {
+			rehash(slots.length * 2);
+		}
+		return size - 1;
+	}
+
+	/**
+	 * Gets the string with an id.
+	 *
+	 * @param id The id {@link #intern} gave it.
+	 * @return the string
+	 */
+	String get(int id) {
+		return strings[id];
+	}
+
+	/**
+	 * Gets how many distinct strings there are.
+	 *
+	 * @return the count
+	 */
+	int size() {
+		return size;
+	}
+
+	private void rehash(int capacity) {
+		int[] rehashed = new int[capacity];
+		int mask = capacity - 1;
+		for (int id = 0; id < size; id++) {
+			int i = mix(strings[id].hashCode()) & mask;
+			while (rehashed[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			rehashed[i] = id + 1;
+		}
+		slots = rehashed;
+	}
+
+	// URLs that only differ at the end hash to nearby values, so spread them out before masking
+	private static int mix(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,155 @@
+package edu.nau.elc.hardlinks.domain;
+
+import java.util.Locale;
+
+/**
+ * Cleans up a link's URL before the rules see it, in one pass over a buffer that's reused from one URL to the next:
+ * trims it, swaps the embedded file stub for our base URL, lower-cases it, drops a leading "%20" and takes out every
+ * "%0d". A URL that needs none of that comes back as the same String, so most links don't allocate anything.
+ * <br><br>
+ * Only ASCII URLs go through the fast path. Anything else (and every URL in a locale that lower-cases ASCII letters
+ * differently, like Turkish) is cleaned up with the String methods, the way it always was, so the results are the same
+ * either way.
+ * <br><br>
+ * Keeps state between calls, so each thread needs its own.
+ */
+class UrlNormalizer {
+
+	/**
+	 * The custom JSP parameter that stands for our URL in embedded files.
+	 */
+	static final String EMBEDDED_FILE_STUB = "@X@EmbeddedFile.requestUrlStub@X@";
+
+	/**
+	 * What the stub stands for. This can be changed to any base URL, and should probably be made configurable if we
+	 * ever change URL.
+	 */
+	static final String BASE_URL = "https://bblearn.nau.edu/";
+
+	private char[] buffer = new char[256];
+	private int length;
+	// where the last "%0d" was taken out; like String.replace, a later one can't start before it
+	private int floor;
+	private boolean leadChecked;
+
+	/**
+	 * Cleans up a URL.
+	 *
+	 * @param raw The URL as it is in the HTML.
+	 * @return the cleaned-up URL, or an empty string if it's only whitespace
+	 */
+	String normalize(String raw) {
+		int start = 0;
+		int end = raw.length();
+		while (start < end && raw.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && raw.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		if (start == end) {
+			return "";
+		}
+
+		if (!isFastPathLocale()) {
+			return normalizeSlowly(raw.substring(start, end));
+		}
+
+		// most URLs are already clean, and those don't need copying at all
+		boolean clean = true;
+		for (int i = start; i < end && clean; i++) {
+			char c = raw.charAt(i);
+			clean = c < 0x7F && c != '%' && c != '@' && (c < 'A' || c > 'Z');
+		}
+		if (clean) {
+			return start > 0 || end < raw.length() ? raw.substring(start, end) : raw;
+		}
+
+		// nothing makes the URL longer (the stub's replacement is shorter than it), so it always fits in its own length
+		if (buffer.length < end - start) {
+			buffer = new char[Math.max(end - start, buffer.length * 2)];
+		}
+		length = 0;
+		floor = 0;
+		leadChecked = false;
+		boolean changed = start > 0 || end < raw.length();
+
+		int i = start;
+		while (i < end) {
+			char c = raw.charAt(i);
+			if (c > 0x7F) {
+				return normalizeSlowly(raw.substring(start, end));
+			} else if (c == '@' && raw.regionMatches(i, EMBEDDED_FILE_STUB, 0, EMBEDDED_FILE_STUB.length())) {
+				for (int j = 0; j < BASE_URL.length(); j++) {
+					append(BASE_URL.charAt(j));
+				}
+				i += EMBEDDED_FILE_STUB.length();
+				changed = true;
+				continue;
+			} else if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+				changed = true;
+			}
+			changed |= append(c);
+			i++;
+		}
+
+		return changed ? new String(buffer, 0, length) : raw;
+	}
+
+	/**
+	 * Adds a char, taking out a leading "%20" or a "%0d" if it finishes one.
+	 *
+	 * @return true if anything was taken out
+	 */
+	private boolean append(char c) {
+		buffer[length++] = c;
+		if (length < 3) {
+			return false;
+		}
+
+		if (!leadChecked) {
+			leadChecked = true;
+			if (buffer[0] == '%' && buffer[1] == '2' && buffer[2] == '0') {
+				length = 0;
+				return true;
+			}
+		}
+		if (c == 'd' && length - 3 >= floor && buffer[length - 3] == '%' && buffer[length - 2] == '0') {
+			length -= 3;
+			floor = length;
+			return true;
+		}
+		return false;
+	}
+
+	private static boolean isFastPathLocale() {
+		// these are the locales where String.toLowerCase doesn't just map A-Z to a-z
+		String language = Locale.getDefault().getLanguage();
+		return !language.equals("tr") && !language.equals("az") && !language.equals("lt");
+	}
+
+	// the way URLs were always cleaned up
+	private static String normalizeSlowly(String url) {
+		url = url.replace(EMBEDDED_FILE_STUB, BASE_URL).toLowerCase();
+
+		if (url.startsWith("%20")) url = url.replaceFirst("%20", "");
+		url = url.replace("%0d", "");
+		return url;
+	}
+
+	/**
+	 * Gets the filename at the end of a URL: the last part between slashes that isn't empty.
+	 *
+	 * @param url The URL.
+	 * @return the filename, or an empty string if the URL is nothing but slashes
+	 */
+	static String filename(String url) {
+		int end = url.length();
+		while (end > 0 && url.charAt(end - 1) == '/') {
+			end--;
+		}
+		int start = url.lastIndexOf('/', end - 1) + 1;
+		return start == 0 && end == url.length() ? url : url.substring(start, end);
+	}
+}
@@ -0,0 +1,181 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.archive.ArchiveEntry;
+import edu.nau.elc.hardlinks.archive.CourseArchive;
+import edu.nau.elc.hardlinks.xml.XmlParsers;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps content collection filenames to the CMS identifiers stored in their XML descriptors. Built once per course
+ * from the list of XML files in the export. Each descriptor is only parsed the first time a link asks for it, and
+ * the parsed identifier is kept for every later link to the same file.
+ * <br><br>
+ * Filenames are also indexed in Unicode normal form C, so a link whose filename has its accents composed while the
+ * export's are decomposed (or the other way round) can still be matched. Nothing else is normalized: case and
+ * percent-escapes still have to match, as they always have.
+ */
+public class XidIndex {
+
+	// what an xid is put after to link to its file
+	private static final String XID_URL_PREFIX = UrlNormalizer.BASE_URL + "bbcswebdav/xid-";
+
+	private final CourseArchive archive;
+	private final HashMap<String, ArrayList<ArchiveEntry>> descriptorsByName = new HashMap<>();
+	private final HashMap<String, ArrayList<ArchiveEntry>> descriptorsByNormalizedName = new HashMap<>();
+	// items may be analyzed on several threads at once; two of them parsing the same descriptor is harmless
+	private final ConcurrentHashMap<ArchiveEntry, Identifier> identifiers = new ConcurrentHashMap<>();
+
+	/**
+	 * Instantiates a new index over a course's XML files.
+	 *
+	 * @param xmlFiles All XML files in the (xid-sanitized) course export.
+	 * @param archive  The export the files are read from.
+	 * @throws SAXException If the XML parser can't be configured.
+	 */
+	public XidIndex(List<ArchiveEntry> xmlFiles, CourseArchive archive) throws SAXException {
+		this.archive = archive;
+
+		for (ArchiveEntry f : xmlFiles) {
+			// a descriptor for "syllabus.pdf" is called "syllabus.pdf.xml"
+			String name = f.getName();
+			String collectionName = name.substring(0, name.length() - ".xml".length());
+			descriptorsByName.computeIfAbsent(collectionName, k -> new ArrayList<>()).add(f);
+			descriptorsByNormalizedName.computeIfAbsent(normalize(collectionName), k -> new ArrayList<>()).add(f);
+		}
+	}
+
+	/**
+	 * Puts a filename in the form it's indexed under for {@link #lookupNormalized}: accents composed (NFC).
+	 *
+	 * @param filename The filename.
+	 * @return the normalized filename
+	 */
+	static String normalize(String filename) {
+		return Normalizer.normalize(filename, Normalizer.Form.NFC);
+	}
+
+	/**
+	 * Finds the identifiers of all content collection files with a given name. There may be more than one if the
+	 * same filename is used in several folders.
+	 * <br><br>
+	 * If the name is unique and the descriptor's own filename carried an xid suffix, that xid is used as-is and the
+	 * descriptor isn't parsed at all, so the identifier's path is null. Paths are always filled in when there is
+	 * more than one match, since they're needed to pick the closest one.
+	 *
+	 * @param filename The filename (without any xid suffix) from the link.
+	 * @return The identifiers of all matching files, empty if there are none.
+	 * @throws IOException  If a descriptor can't be read.
+	 * @throws SAXException If a descriptor isn't valid XML.
+	 */
+	public List<Identifier> lookup(String filename) throws IOException, SAXException {
+		return identify(descriptorsByName.get(filename));
+	}
+
+	/**
+	 * Finds the identifiers of all content collection files whose names are the same as a given name once both are
+	 * normalized (see {@link #normalize}). For when {@link #lookup} finds nothing because the link spells the name
+	 * differently, i.e. with its accents decomposed where the export's are composed, or the other way round.
+	 *
+	 * @param filename The filename (without any xid suffix) from the link.
+	 * @return The identifiers of all matching files, empty if there are none.
+	 * @throws IOException  If a descriptor can't be read.
+	 * @throws SAXException If a descriptor isn't valid XML.
+	 */
+	public List<Identifier> lookupNormalized(String filename) throws IOException, SAXException {
+		return identify(descriptorsByNormalizedName.get(normalize(filename)));
+	}
+
+	private List<Identifier> identify(ArrayList<ArchiveEntry> descriptors) throws IOException, SAXException {
+		if (descriptors == null) {
+			return Collections.emptyList();
+		}
+
+		if (descriptors.size() == 1 && descriptors.get(0).getXid() != null) {
+			return Collections.singletonList(new Identifier(descriptors.get(0).getXid(), null));
+		}
+
+		ArrayList<Identifier> found = new ArrayList<>(descriptors.size());
+		for (ArchiveEntry f : descriptors) {
+			Identifier ident = identifiers.get(f);
+			if (ident == null) {
+				ident = parseIdentifier(f);
+				identifiers.putIfAbsent(f, ident);
+			}
+			found.add(ident);
+		}
+		return found;
+	}
+
+	/**
+	 * Get the ID from a given XML file. Used for retreiving a content item's XID.
+	 *
+	 * @param f The file to parse.
+	 * @return The "identifier" from the XML file, split into the xid and the path.
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	private Identifier parseIdentifier(ArchiveEntry f) throws IOException, SAXException {
+		Document doc;
+		InputStream inputStream = archive.open(f);
+		try {
+			doc = XmlParsers.getDocumentBuilder().parse(inputStream);
+		} finally {
+			inputStream.close();
+		}
+		String[] idents = doc.getElementsByTagName("identifier").item(0).getTextContent().split("#");
+		return new Identifier(idents[0], idents.length > 1 ? idents[1] : "");
+	}
+
+	/**
+	 * The parsed identifier of one content collection file.
+	 */
+	public static class Identifier {
+		private final String xid;
+		private final String path;
+		private String url; // made the first time it's asked for, then shared by every link to the file
+
+		private Identifier(String xid, String path) {
+			this.xid = xid;
+			this.path = path;
+		}
+
+		/**
+		 * Gets the xid, without the "xid-" prefix.
+		 *
+		 * @return the xid
+		 */
+		public String getXid() {
+			return xid;
+		}
+
+		/**
+		 * Gets the URL that links to the file by its xid.
+		 *
+		 * @return the xid URL
+		 */
+		public String getUrl() {
+			String u = url;
+			if (u == null) {
+				u = XID_URL_PREFIX + xid;
+				url = u;
+			}
+			return u;
+		}
+
+		/**
+		 * Gets the file's path in the content collection (starting with /courses/...).
+		 *
+		 * @return the path, or null if the descriptor didn't need to be parsed
+		 */
+		public String getPath() {
+			return path;
+		}
+	}
+}
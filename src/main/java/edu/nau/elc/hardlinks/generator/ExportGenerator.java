@@ -0,0 +1,614 @@
+package edu.nau.elc.hardlinks.generator;
+
+import edu.nau.elc.hardlinks.domain.CourseProcessor;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Makes up course exports that look like the real thing, for benchmarks and stress runs without any student data: an
+ * imsmanifest.xml with content areas and folders, a .dat file for every content item (documents, files,
+ * announcements, discussions, tests and question pools), and content collection files with their .xml descriptors
+ * under csfiles/home_dir. Item text and HTML files are full of the kinds of links the rules have to sort out, pointing
+ * at the course's own files by path, by xid and relatively.
+ * <br><br>
+ * The same settings and seed always make the same export, byte for byte. Each item is made up from its own seed, so
+ * nothing but the content collection's file list is kept in memory, and exports of 100,000 items or more are fine.
+ * <br><br>
+ * Usage: {@code ExportGenerator [-s seed] [-n items] [--html files] [--files files] [--depth folders] [--links count]
+ * [--pools percent] [--malformed percent] [--no-xid] ExportFile_NAME_1.zip}
+ */
+public class ExportGenerator {
+
+	private static final String USAGE = "usage: ExportGenerator [-s seed] [-n items] [--html files] [--files files] "
+			+ "[--depth folders] [--links count] [--pools percent] [--malformed percent] [--no-xid] output.zip";
+
+	private static final String COURSE = "/courses/1157-NAU00-ENG-105-SEC801-1234.NAU-PSSIS/";
+	private static final String[] FILE_NAMES = {"syllabus.pdf", "Lecture.pptx", "résumé.pdf", "pic.JPG", "data.xlsx",
+			"banner.png", "rubric.docx", "Reading 1.pdf", "schedule.doc", "diagram.gif"};
+	private static final String[] HTML_NAMES = {"page.html", "notes.htm", "intro.html", "week.html", "Module.htm"};
+	private static final String[] FOLDER_NAMES = {"Week", "Module", "Unit", "Readings", "Images", "Assignments"};
+	private static final String[] WORDS = {"the", "syllabus", "week", "reading", "quiz", "due", "please", "review",
+			"chapter", "discussion", "for", "and", "Friday", "&nbsp;", "<strong>note</strong>", "<em>before</em>"};
+
+	// 2015-08-24, the start of the semester the made-up course is from
+	private static final long ENTRY_TIME = 1440403200000L;
+
+	// items in each content area
+	private static final int ITEMS_PER_AREA = 50;
+
+	private long seed = 1;
+	private int items = 100;
+	private int htmlFiles = -1;
+	private int otherFiles = -1;
+	private int folderDepth = 3;
+	private int linksPerItem = 5;
+	private int poolPercent = 5;
+	private int malformedPercent = 5;
+	private boolean xidSuffixes = true;
+
+	/**
+	 * One file in the content collection.
+	 */
+	private static class CollectionFile {
+		private final String path; // as the course sees it, e.g. "Week 1/Readings/syllabus.pdf"
+		private final String physicalPath; // as it's stored in the export
+		private final String name;
+		private final String xid;
+
+		CollectionFile(String path, String physicalPath, String name, String xid) {
+			this.path = path;
+			this.physicalPath = physicalPath;
+			this.name = name;
+			this.xid = xid;
+		}
+	}
+
+	private ArrayList<CollectionFile> collection;
+
+	/**
+	 * The entry point for the generator.
+	 *
+	 * @param args Options and the ZIP to write (see the class description).
+	 */
+	public static void main(String[] args) {
+		System.exit(run(args, System.out));
+	}
+
+	/**
+	 * Writes the export given on the command line and prints how big it came out.
+	 *
+	 * @param args The command line.
+	 * @param out  Where to print the summary.
+	 * @return 0 if the export was written, 1 if it couldn't be, or 2 if the command line was wrong
+	 */
+	public static int run(String[] args, PrintStream out) {
+		ExportGenerator generator = new ExportGenerator();
+		File output;
+		try {
+			output = generator.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			return 2;
+		}
+
+		try {
+			long start = System.nanoTime();
+			generator.write(output);
+			out.printf("Wrote %d items to %s (%.1f MB) in %.1f s%n", generator.items, output,
+					output.length() / (1024.0 * 1024), (System.nanoTime() - start) / 1e9);
+		} catch (IOException e) {
+			System.err.println("Can't write " + output + ": " + e.getLocalizedMessage());
+			return 1;
+		}
+		return 0;
+	}
+
+	private File parseArguments(String[] args) {
+		File output = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-s":
+					setSeed(Long.parseLong(valueOf(args, ++i)));
+					break;
+				case "-n":
+					setItems(number(valueOf(args, ++i), "-n"));
+					break;
+				case "--html":
+					setHtmlFiles(number(valueOf(args, ++i), "--html"));
+					break;
+				case "--files":
+					setOtherFiles(number(valueOf(args, ++i), "--files"));
+					break;
+				case "--depth":
+					setFolderDepth(number(valueOf(args, ++i), "--depth"));
+					break;
+				case "--links":
+					setLinksPerItem(number(valueOf(args, ++i), "--links"));
+					break;
+				case "--pools":
+					setPoolPercent(number(valueOf(args, ++i), "--pools"));
+					break;
+				case "--malformed":
+					setMalformedPercent(number(valueOf(args, ++i), "--malformed"));
+					break;
+				case "--no-xid":
+					setXidSuffixes(false);
+					break;
+				default:
+					if (args[i].startsWith("-") || output != null) {
+						throw new IllegalArgumentException("Unknown option " + args[i]);
+					}
+					output = new File(args[i]);
+			}
+		}
+
+		if (output == null) {
+			throw new IllegalArgumentException("No output file.");
+		}
+		return output;
+	}
+
+	private static String valueOf(String[] args, int i) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException(args[i - 1] + " needs a value");
+		}
+		return args[i];
+	}
+
+	private static int number(String value, String option) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(option + " must be a number, not " + value);
+		}
+	}
+
+	/**
+	 * Sets the seed everything is made up from. Defaults to 1.
+	 *
+	 * @param seed The seed.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the number of content items (.dat files). Defaults to 100.
+	 *
+	 * @param items The number of items.
+	 */
+	public void setItems(int items) {
+		if (items < 1) {
+			throw new IllegalArgumentException("There has to be at least one item, not " + items);
+		}
+		this.items = items;
+	}
+
+	/**
+	 * Sets the number of HTML files in the content collection. Defaults to one for every 10 items.
+	 *
+	 * @param htmlFiles The number of HTML files.
+	 */
+	public void setHtmlFiles(int htmlFiles) {
+		this.htmlFiles = nonNegative(htmlFiles, "HTML files");
+	}
+
+	/**
+	 * Sets the number of other files (PDFs, images, etc.) in the content collection. Defaults to one for every 4 items.
+	 *
+	 * @param otherFiles The number of files.
+	 */
+	public void setOtherFiles(int otherFiles) {
+		this.otherFiles = nonNegative(otherFiles, "files");
+	}
+
+	/**
+	 * Sets how deep folders go, in the content collection and in the course's content areas. Defaults to 3.
+	 *
+	 * @param folderDepth The most folders inside one another; 0 for none.
+	 */
+	public void setFolderDepth(int folderDepth) {
+		this.folderDepth = nonNegative(folderDepth, "folder depth");
+	}
+
+	/**
+	 * Sets the average number of links in each item's text and each HTML file. Defaults to 5.
+	 *
+	 * @param linksPerItem The average number of links.
+	 */
+	public void setLinksPerItem(int linksPerItem) {
+		this.linksPerItem = nonNegative(linksPerItem, "links per item");
+	}
+
+	/**
+	 * Sets how many of the items are question pools (which can be huge in a real course). Defaults to 5%.
+	 *
+	 * @param poolPercent The percentage of items.
+	 */
+	public void setPoolPercent(int poolPercent) {
+		this.poolPercent = percent(poolPercent, "pools");
+	}
+
+	/**
+	 * Sets how much of the HTML is broken: unclosed tags, unquoted attributes, stray brackets and the like. Defaults
+	 * to 5%.
+	 *
+	 * @param malformedPercent The percentage of item texts and HTML files.
+	 */
+	public void setMalformedPercent(int malformedPercent) {
+		this.malformedPercent = percent(malformedPercent, "malformed HTML");
+	}
+
+	/**
+	 * Sets whether content collection files and folders are stored with xid suffixes
+	 * ("syllabus__xid-1234567_1.pdf"), as newer exports do. Defaults to true.
+	 *
+	 * @param xidSuffixes Whether to add the suffixes.
+	 */
+	public void setXidSuffixes(boolean xidSuffixes) {
+		this.xidSuffixes = xidSuffixes;
+	}
+
+	private static int nonNegative(int n, String what) {
+		if (n < 0) {
+			throw new IllegalArgumentException("Number of " + what + " can't be negative: " + n);
+		}
+		return n;
+	}
+
+	private static int percent(int n, String what) {
+		if (n < 0 || n > 100) {
+			throw new IllegalArgumentException("Percentage of " + what + " must be from 0 to 100, not " + n);
+		}
+		return n;
+	}
+
+	/**
+	 * Writes the export.
+	 *
+	 * @param zip The ZIP file to write. Name it like a real export (ExportFile_NAME_1.zip) to get a matching report
+	 *            name.
+	 * @throws IOException If it can't be written.
+	 */
+	public void write(File zip) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(zip));
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the export.
+	 *
+	 * @param stream Where to write the ZIP. It's finished, but not closed.
+	 * @throws IOException If it can't be written.
+	 */
+	public void write(OutputStream stream) throws IOException {
+		buildCollection();
+
+		ZipOutputStream zip = new ZipOutputStream(stream);
+		Writer out = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+
+		zip.putNextEntry(entry("imsmanifest.xml"));
+		writeManifest(out);
+		out.flush();
+		zip.closeEntry();
+
+		for (int i = 0; i < items; i++) {
+			zip.putNextEntry(entry(resourceId(i) + ".dat"));
+			out.write(dat(i, itemRandom(i)));
+			out.flush();
+			zip.closeEntry();
+		}
+
+		for (int i = 0; i < collection.size(); i++) {
+			CollectionFile f = collection.get(i);
+			zip.putNextEntry(entry(f.physicalPath));
+			if (isHtml(f.name)) {
+				Random random = fileRandom(i);
+				out.write(maybeMalformed(random, "<html><head><title>" + f.name + "</title></head><body>\n"
+						+ text(random) + "</body></html>\n"));
+			} else {
+				out.write("binary content of " + f.path + "\n");
+			}
+			out.flush();
+			zip.closeEntry();
+
+			zip.putNextEntry(entry(f.physicalPath + ".xml"));
+			out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><cms_resource><identifier>" + f.xid + "#" + COURSE
+					+ escape(f.path) + "</identifier></cms_resource>");
+			out.flush();
+			zip.closeEntry();
+		}
+
+		zip.finish();
+	}
+
+	/**
+	 * Lays out the content collection: folders up to the set depth, with the same filenames turning up in several of
+	 * them, as they do in real courses.
+	 */
+	private void buildCollection() {
+		Random random = new Random(seed);
+		int html = htmlFiles >= 0 ? htmlFiles : Math.max(1, items / 10);
+		int other = otherFiles >= 0 ? otherFiles : Math.max(1, items / 4);
+
+		// folders, each inside an earlier one that isn't already as deep as they go
+		ArrayList<String[]> folders = new ArrayList<>(); // path, physical path
+		folders.add(new String[]{"", ""});
+		int folderCount = folderDepth == 0 ? 0 : Math.max(4, (html + other) / 15);
+		int nextXid = 2000000;
+		for (int i = 0; i < folderCount; i++) {
+			String[] parent = folders.get(random.nextInt(folders.size()));
+			while (depth(parent[0]) >= folderDepth) {
+				parent = folders.get(random.nextInt(folders.size()));
+			}
+			String name = FOLDER_NAMES[random.nextInt(FOLDER_NAMES.length)] + " " + (i + 1);
+			folders.add(new String[]{parent[0] + name + "/", parent[1] + suffixed(name, "", nextXid++) + "/"});
+		}
+
+		collection = new ArrayList<>(html + other);
+		HashSet<String> paths = new HashSet<>();
+		int xid = 1000000;
+		for (int i = 0; i < html + other; i++) {
+			String[] folder = folders.get(random.nextInt(folders.size()));
+			String original = i < html ? HTML_NAMES[random.nextInt(HTML_NAMES.length)]
+					: FILE_NAMES[random.nextInt(FILE_NAMES.length)];
+			int dot = original.lastIndexOf('.');
+
+			// a folder can't have two files with the same name, so number the copies like the collection does
+			String name = original;
+			for (int copy = 2; !paths.add(folder[0] + name); copy++) {
+				name = original.substring(0, dot) + " (" + copy + ")" + original.substring(dot);
+			}
+			dot = name.lastIndexOf('.');
+			String fileXid = (xid++) + "_1";
+			String physical = CourseProcessor.CC_BASE_DIR + "/" + folder[1]
+					+ (xidSuffixes ? name.substring(0, dot) + "__xid-" + fileXid + name.substring(dot) : name);
+			collection.add(new CollectionFile(folder[0] + name, physical, name, fileXid));
+		}
+	}
+
+	private static int depth(String folderPath) {
+		int depth = 0;
+		for (int i = 0; i < folderPath.length(); i++) {
+			if (folderPath.charAt(i) == '/') {
+				depth++;
+			}
+		}
+		return depth;
+	}
+
+	private String suffixed(String name, String extension, int xid) {
+		return xidSuffixes ? name + "__xid-" + xid + "_1" + extension : name + extension;
+	}
+
+	/**
+	 * Writes the manifest: the items split into content areas, with folders inside them up to the set depth.
+	 */
+	private void writeManifest(Writer out) throws IOException {
+		Random random = new Random(seed ^ 0x6d616e6966657374L);
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><manifest identifier=\"man00001\" "
+				+ "xmlns:bb=\"http://www.blackboard.com/content-packaging/\"><organizations default=\"toc00001\">"
+				+ "<organization identifier=\"toc00001\">");
+
+		int item = 0;
+		int node = 0;
+		while (item < items) {
+			out.write("<item identifier=\"itm" + (node++) + "\" identifierref=\"toc" + node + "\"><title>--TOP--"
+					+ "</title><item identifier=\"itm" + (node++) + "\"><title>Content Area " + (item / ITEMS_PER_AREA
+					+ 1) + "</title>");
+			int depth = 0;
+			for (int i = 0; i < ITEMS_PER_AREA && item < items; i++, item++) {
+				if (depth < folderDepth && random.nextInt(8) == 0) {
+					out.write("<item identifier=\"itm" + node + "\"><title>Folder " + node + "</title>");
+					node++;
+					depth++;
+				} else if (depth > 0 && random.nextInt(8) == 0) {
+					out.write("</item>");
+					depth--;
+				}
+				out.write("<item identifier=\"itm" + (node++) + "\" identifierref=\"" + resourceId(item)
+						+ "\"><title>Item " + (item + 1) + "</title></item>");
+			}
+			for (; depth > 0; depth--) {
+				out.write("</item>");
+			}
+			out.write("</item></item>");
+		}
+		out.write("</organization></organizations><resources/></manifest>");
+	}
+
+	private static String resourceId(int item) {
+		return String.format("res%05d", item + 1);
+	}
+
+	private Random itemRandom(int item) {
+		return new Random(seed * 1000003 + item);
+	}
+
+	private Random fileRandom(int file) {
+		return new Random(~(seed * 1000003 + file));
+	}
+
+	/**
+	 * Makes up one content item's .dat file.
+	 */
+	private String dat(int item, Random random) {
+		String id = "_" + (item + 1) + "_1";
+		int kind = random.nextInt(100);
+		if (kind < poolPercent) {
+			return assessment(item, random, "Pool");
+		}
+
+		// the rest split the way they tend to in real courses
+		kind = random.nextInt(100);
+		if (kind < 50) {
+			return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><CONTENT id=\"" + id + "\"><TITLE value=\"Item "
+					+ (item + 1) + "\"/><BODY><TEXT>" + escape(maybeMalformed(random, text(random)))
+					+ "</TEXT><TYPE value=\"H\"/></BODY><CONTENTHANDLER value=\"resource/x-bb-document\"/></CONTENT>";
+		} else if (kind < 70) {
+			CollectionFile f = collection.get(random.nextInt(collection.size()));
+			return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><CONTENT id=\"" + id + "\"><TITLE value=\""
+					+ escape(f.name) + "\"/><BODY><TEXT></TEXT><TYPE value=\"H\"/></BODY>"
+					+ "<CONTENTHANDLER value=\"resource/x-bb-file\"/><FILES><FILE id=\"" + id + "\"><NAME>"
+					+ escape(f.name) + "</NAME><LINKNAME value=\"" + escape(f.name) + "\"/></FILE></FILES></CONTENT>";
+		} else if (kind < 85) {
+			return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><ANNOUNCEMENT id=\"" + id + "\"><TITLE value=\""
+					+ "Announcement " + (item + 1) + "\"/><DESCRIPTION><TEXT>" + escape(maybeMalformed(random,
+					text(random))) + "</TEXT></DESCRIPTION></ANNOUNCEMENT>";
+		} else if (kind < 92) {
+			return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><FORUM id=\"" + id + "\"><TITLE value=\"Discussion "
+					+ (item + 1) + "\"/><DESCRIPTION><TEXT>" + escape(maybeMalformed(random, text(random)))
+					+ "</TEXT></DESCRIPTION></FORUM>";
+		}
+		return assessment(item, random, "Test");
+	}
+
+	/**
+	 * Makes up a test or question pool: a handful of questions for a test, a lot more for a pool.
+	 */
+	private String assessment(int item, Random random, String type) {
+		StringBuilder b = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><questestinterop>"
+				+ "<assessment title=\"" + type + " " + (item + 1) + "\"><assessmentmetadata><bbmd_assessmenttype>"
+				+ type + "</bbmd_assessmenttype></assessmentmetadata><section>");
+		int questions = type.equals("Pool") ? 20 + random.nextInt(60) : 3 + random.nextInt(10);
+		for (int q = 0; q < questions; q++) {
+			b.append("<item><presentation><flow><material><mat_extension><mat_formattedtext type=\"HTML\">")
+					.append(escape(maybeMalformed(random, question(random))))
+					.append("</mat_formattedtext></mat_extension></material></flow></presentation></item>");
+		}
+		return b.append("</section></assessment></questestinterop>").toString();
+	}
+
+	// most questions are plain text; now and then one has a picture or a link to a reading
+	private String question(Random random) {
+		StringBuilder b = new StringBuilder("<p>");
+		words(random, b, 10 + random.nextInt(20));
+		if (random.nextInt(4) == 0) {
+			b.append(' ').append(link(random));
+		}
+		return b.append("</p>").toString();
+	}
+
+	/**
+	 * Makes up a few paragraphs of HTML with links in them, about the set number on average.
+	 */
+	private String text(Random random) {
+		StringBuilder b = new StringBuilder();
+		int links = linksPerItem == 0 ? 0 : random.nextInt(linksPerItem * 2 + 1);
+		b.append("<p>");
+		words(random, b, 5 + random.nextInt(30));
+		b.append("</p>\n");
+		for (int i = 0; i < links; i++) {
+			b.append("<p>");
+			words(random, b, random.nextInt(20));
+			b.append(' ').append(link(random)).append(' ');
+			words(random, b, random.nextInt(10));
+			b.append("</p>\n");
+		}
+		return b.toString();
+	}
+
+	private static void words(Random random, StringBuilder b, int count) {
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				b.append(' ');
+			}
+			b.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+	}
+
+	/**
+	 * Makes up one link, of one of the kinds the rules tell apart.
+	 */
+	private String link(Random random) {
+		CollectionFile f = collection.get(random.nextInt(collection.size()));
+		switch (random.nextInt(12)) {
+			case 0:
+			case 1:
+				// a hard link straight into the content collection
+				return "<a href=\"https://bblearn.nau.edu/bbcswebdav" + COURSE + f.path.replace(" ", "%20") + "\">"
+						+ f.name + "</a>";
+			case 2:
+			case 3:
+				// what the editor inserts now
+				return "<a href=\"@X@EmbeddedFile.requestUrlStub@X@bbcswebdav/xid-" + f.xid + "\">" + f.name + "</a>";
+			case 4:
+				return "<img src=\"@X@EmbeddedFile.requestUrlStub@X@bbcswebdav/xid-" + f.xid + "\" alt=\"" + f.name
+						+ "\">";
+			case 5:
+				// relative, from an HTML file in the collection
+				return "<a href=\"../" + f.path.replace(" ", "%20") + "\">see <b>this</b></a>";
+			case 6:
+				return "<img src=\"" + f.name + "\" alt=\"picture\">";
+			case 7:
+				// copied over from another course
+				return "<a href=\"https://bblearn.nau.edu/courses/1/ENG105/content/_" + random.nextInt(100000)
+						+ "_1/" + f.name + "\">old link</a>";
+			case 8:
+				return "<a href=\"http://www.example.com/?page=" + random.nextInt(1000) + "&amp;lang=en\" "
+						+ "target=\"_blank\">outside link</a>";
+			case 9:
+				return "<a href=\"mailto:instructor@nau.edu\">email me</a>";
+			case 10:
+				return "<a href=\"https://bblearn.nau.edu/webapps/blackboard/content/listContent.jsp?course_id=_"
+						+ random.nextInt(1000) + "_1\">Content <i>area</i></a>";
+			default:
+				return "<img src=\"/images/ci/icons/x.gif\" alt=\"\">";
+		}
+	}
+
+	/**
+	 * Breaks some of the HTML, the ways the content editor and copy-and-paste from Word do.
+	 */
+	private String maybeMalformed(Random random, String html) {
+		if (random.nextInt(100) >= malformedPercent) {
+			return html;
+		}
+		switch (random.nextInt(5)) {
+			case 0:
+				// cut off part way through a tag
+				return html.substring(0, html.length() / 2) + "<a href=\"http://www.example.com/cut";
+			case 1:
+				return html.replace("</p>", "").replace("</a>", "");
+			case 2:
+				return html.replace("href=\"", "href=").replace("\">", ">");
+			case 3:
+				return html.replace("<p>", "<p><< ").replace("&amp;", "&");
+			default:
+				return "<!-- unterminated comment " + html;
+		}
+	}
+
+	// every entry gets the same time, so the same settings make the same bytes
+	private static ZipEntry entry(String name) {
+		ZipEntry e = new ZipEntry(name);
+		e.setTime(ENTRY_TIME);
+		return e;
+	}
+
+	private static boolean isHtml(String name) {
+		return name.endsWith(".html") || name.endsWith(".htm");
+	}
+
+	private static String escape(String s) {
+		return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
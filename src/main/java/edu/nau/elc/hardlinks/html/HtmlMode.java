@@ -0,0 +1,22 @@
+package edu.nau.elc.hardlinks.html;
+
+/**
+ * How links are pulled out of HTML content.
+ */
+public enum HtmlMode {
+	/**
+	 * Build a full Jsoup DOM for every item and select the a and img tags from it (the original behavior, and the
+	 * default).
+	 */
+	JSOUP,
+
+	/**
+	 * Stream the HTML through a {@link LinkTokenizer}. No DOM is built, and HTML files are never held in memory.
+	 */
+	STREAMING,
+
+	/**
+	 * Run both, report every item where they disagree, and keep the Jsoup results.
+	 */
+	VERIFY
+}
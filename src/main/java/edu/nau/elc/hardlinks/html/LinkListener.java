@@ -0,0 +1,23 @@
+package edu.nau.elc.hardlinks.html;
+
+/**
+ * Receives the links found by a {@link LinkTokenizer}, in document order.
+ */
+public interface LinkListener {
+
+	/**
+	 * Called for every "a" tag once its text is complete.
+	 *
+	 * @param href The href attribute (entities decoded), or an empty string if there isn't one.
+	 * @param text The link text, with whitespace normalized the same way Jsoup's Element.text() does it.
+	 */
+	void anchor(String href, String text);
+
+	/**
+	 * Called for every "img" tag.
+	 *
+	 * @param src The src attribute (entities decoded), or an empty string if there isn't one.
+	 * @param alt The alt attribute (entities decoded), or an empty string if there isn't one.
+	 */
+	void image(String src, String alt);
+}
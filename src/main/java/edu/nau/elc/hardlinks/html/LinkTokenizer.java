@@ -0,0 +1,423 @@
+package edu.nau.elc.hardlinks.html;
+
+import org.jsoup.helper.StringUtil;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.Tag;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming tokenizer that pulls (href, text) pairs out of "a" tags and (src, alt) pairs out of "img" tags without
+ * building a DOM. Input is read through a fixed-size buffer, and only the attributes and text we report are kept, so
+ * memory use doesn't depend on the size of the document.
+ * <br><br>
+ * It's meant to give the same answers as selecting "a" and "img" from a Jsoup document: tag and attribute names are
+ * case-insensitive, entities are decoded with Jsoup's own tables, comments/script/style contents are skipped, and
+ * link text is whitespace-normalized the way Element.text() does it. Badly broken HTML can still come out
+ * differently, because there's no tree to repair (Jsoup's adoption agency splits a link that straddles a block
+ * element into two, for instance). Use {@link HtmlMode#VERIFY} to find those cases.
+ * <br><br>
+ * Attribute values and link text longer than {@link #MAX_VALUE_LENGTH} are truncated, since they couldn't be written
+ * to a spreadsheet cell anyway. An instance can be reused, but not by two threads at once.
+ */
+public class LinkTokenizer {
+
+	/**
+	 * The longest attribute value or link text that's kept (Excel's limit on the length of a cell).
+	 */
+	public static final int MAX_VALUE_LENGTH = 32767;
+
+	private static final int MAX_DEPTH = 256;
+
+	private final char[] buffer = new char[8192];
+	private final StringBuilder raw = new StringBuilder();
+	private final StringBuilder name = new StringBuilder();
+	private final StringBuilder value = new StringBuilder();
+	private final StringBuilder anchorText = new StringBuilder();
+	private final String[] openTags = new String[MAX_DEPTH];
+
+	private Reader in;
+	private LinkListener listener;
+	private int pos;
+	private int limit;
+	private int depth;
+	private boolean inAnchor;
+	private String anchorHref;
+	private String href;
+	private String src;
+	private String alt;
+
+	/**
+	 * Reads a whole document and reports every link in it.
+	 *
+	 * @param html     The HTML to read. Is not closed.
+	 * @param listener Receives the links, in document order.
+	 * @throws IOException If the HTML can't be read.
+	 */
+	public void tokenize(Reader html, LinkListener listener) throws IOException {
+		this.in = html;
+		this.listener = listener;
+		pos = 0;
+		limit = 0;
+		depth = 0;
+		inAnchor = false;
+		raw.setLength(0);
+
+		try {
+			int c;
+			while ((c = next()) != -1) {
+				if (c == '<') {
+					flushText();
+					markup();
+				} else if (inAnchor && raw.length() < MAX_VALUE_LENGTH) {
+					// text outside of links isn't needed, so it isn't kept
+					raw.append((char) c);
+				}
+			}
+			flushText();
+			endAnchor();
+		} finally {
+			this.in = null;
+			this.listener = null;
+		}
+	}
+
+	private int next() throws IOException {
+		if (pos == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			pos = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[pos++];
+	}
+
+	private int peek() throws IOException {
+		if (pos == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			pos = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[pos];
+	}
+
+	private static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r';
+	}
+
+	private static boolean isLetter(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	/**
+	 * Called just after a '<'.
+	 */
+	private void markup() throws IOException {
+		int c = peek();
+		if (c == '!') {
+			next();
+			if (peek() == '-') {
+				next();
+				if (peek() == '-') {
+					next();
+					skipComment();
+					return;
+				}
+			}
+			skipPast('>');
+		} else if (c == '/') {
+			next();
+			if (isLetter(peek())) {
+				endTag(readTagName());
+			} else {
+				skipPast('>');
+			}
+		} else if (c == '?') {
+			skipPast('>');
+		} else if (isLetter(c)) {
+			startTag(readTagName());
+		} else if (inAnchor) {
+			// a stray '<' is just text
+			raw.append('<');
+		}
+	}
+
+	/**
+	 * Called just after a "&lt;!--". Skips to the end of the comment the way Jsoup finds it: "--&gt;" or "--!&gt;", or
+	 * straight away for the broken empty comments "&lt;!--&gt;" and "&lt;!---&gt;".
+	 */
+	private void skipComment() throws IOException {
+		int dashes = 0;
+		if (peek() == '>') {
+			next();
+			return;
+		} else if (peek() == '-') {
+			next();
+			if (peek() == '>') {
+				next();
+				return;
+			}
+			dashes = 1;
+		}
+
+		int c;
+		while ((c = next()) != -1) {
+			if (dashes >= 2 && c == '>') {
+				return;
+			}
+			if (dashes >= 2 && c == '!') {
+				if (peek() == '>') {
+					next();
+					return;
+				}
+				// "--!" that isn't closed is part of the comment; a dash after it may start another "--"
+				dashes = 0;
+				continue;
+			}
+			dashes = c == '-' ? dashes + 1 : 0;
+		}
+	}
+
+	private void skipPast(char end) throws IOException {
+		int c;
+		while ((c = next()) != -1 && c != end) {
+			// skip
+		}
+	}
+
+	private String readTagName() throws IOException {
+		name.setLength(0);
+		int c;
+		while ((c = peek()) != -1 && !isWhitespace(c) && c != '/' && c != '>') {
+			next();
+			name.append(Character.toLowerCase((char) c));
+		}
+		return name.toString();
+	}
+
+	private void startTag(String tagName) throws IOException {
+		boolean isAnchor = tagName.equals("a");
+		boolean isImage = tagName.equals("img");
+		href = null;
+		src = null;
+		alt = null;
+
+		boolean selfClosing = readAttributes(isAnchor, isImage);
+
+		Tag tag = Tag.isKnownTag(tagName) ? Tag.valueOf(tagName) : null;
+
+		if (isAnchor) {
+			// an "a" inside an "a" closes the first one
+			endAnchor();
+			inAnchor = true;
+			anchorHref = href == null ? "" : href;
+			anchorText.setLength(0);
+		} else if (isImage) {
+			listener.image(src == null ? "" : src, alt == null ? "" : alt);
+		} else if (inAnchor && anchorText.length() > 0
+				&& ((tag != null && tag.isBlock()) || tagName.equals("br"))
+				&& anchorText.charAt(anchorText.length() - 1) != ' ') {
+			// block elements and line breaks inside a link separate its words
+			anchorText.append(' ');
+		}
+
+		if (tagName.equals("script") || tagName.equals("style")) {
+			skipRawText(tagName, false);
+			return;
+		} else if (tagName.equals("textarea") || tagName.equals("title")) {
+			// open while its text is read, since both keep their whitespace
+			if (depth < MAX_DEPTH) {
+				openTags[depth] = tagName;
+			}
+			depth++;
+			skipRawText(tagName, true);
+			depth--;
+			return;
+		}
+
+		if (!selfClosing && (tag == null || !tag.isEmpty())) {
+			if (depth < MAX_DEPTH) {
+				openTags[depth] = tagName;
+			}
+			depth++;
+		}
+	}
+
+	private void endTag(String tagName) throws IOException {
+		skipPast('>');
+
+		if (tagName.equals("a")) {
+			endAnchor();
+		}
+
+		// pop back to the matching open tag, if there is one
+		for (int i = Math.min(depth, MAX_DEPTH) - 1; i >= 0; i--) {
+			if (openTags[i].equals(tagName)) {
+				depth = i;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reads the attributes of a start tag, up to and including the closing '>'. Only the values we report are kept.
+	 *
+	 * @return whether the tag was self-closing ("/>")
+	 */
+	private boolean readAttributes(boolean isAnchor, boolean isImage) throws IOException {
+		boolean selfClosing = false;
+		int c;
+		while ((c = next()) != -1) {
+			if (c == '>') {
+				return selfClosing;
+			}
+			if (isWhitespace(c)) {
+				continue;
+			}
+			if (c == '/') {
+				selfClosing = true;
+				continue;
+			}
+			selfClosing = false;
+
+			// attribute name
+			name.setLength(0);
+			name.append(Character.toLowerCase((char) c));
+			while ((c = peek()) != -1 && !isWhitespace(c) && c != '/' && c != '>' && c != '=') {
+				next();
+				name.append(Character.toLowerCase((char) c));
+			}
+			while (isWhitespace(peek())) {
+				next();
+			}
+
+			String attr = name.toString();
+			boolean keep = (isAnchor && attr.equals("href"))
+					|| (isImage && (attr.equals("src") || attr.equals("alt")));
+
+			String attrValue = "";
+			if (peek() == '=') {
+				next();
+				while (isWhitespace(peek())) {
+					next();
+				}
+				attrValue = readAttributeValue(keep);
+			}
+
+			if (keep) {
+				if (attr.equals("href")) {
+					href = attrValue;
+				} else if (attr.equals("src")) {
+					src = attrValue;
+				} else {
+					alt = attrValue;
+				}
+			}
+		}
+		return selfClosing;
+	}
+
+	private String readAttributeValue(boolean keep) throws IOException {
+		value.setLength(0);
+		int quote = peek();
+		int c;
+		if (quote == '"' || quote == '\'') {
+			next();
+			while ((c = next()) != -1 && c != quote) {
+				if (keep && value.length() < MAX_VALUE_LENGTH) {
+					value.append((char) c);
+				}
+			}
+		} else {
+			while ((c = peek()) != -1 && !isWhitespace(c) && c != '>') {
+				next();
+				if (keep && value.length() < MAX_VALUE_LENGTH) {
+					value.append((char) c);
+				}
+			}
+		}
+
+		if (!keep) {
+			return "";
+		}
+		return value.indexOf("&") == -1 ? value.toString() : Parser.unescapeEntities(value.toString(), true);
+	}
+
+	/**
+	 * Skips (or, for RCDATA tags like textarea, collects as text) everything up to the tag's end tag.
+	 */
+	private void skipRawText(String tagName, boolean isText) throws IOException {
+		int c;
+		while ((c = next()) != -1) {
+			if (c == '<' && peek() == '/') {
+				next();
+				name.setLength(0);
+				while ((c = peek()) != -1 && isLetter(c) && name.length() <= tagName.length()) {
+					next();
+					name.append(Character.toLowerCase((char) c));
+				}
+				if (name.toString().equals(tagName) && (isWhitespace(c) || c == '/' || c == '>')) {
+					if (isText) {
+						flushText();
+					}
+					skipPast('>');
+					return;
+				}
+				if (isText && inAnchor) {
+					raw.append("</").append(name);
+				}
+			} else if (isText && inAnchor && raw.length() < MAX_VALUE_LENGTH) {
+				raw.append((char) c);
+			}
+		}
+		if (isText) {
+			flushText();
+		}
+	}
+
+	/**
+	 * Decodes the pending run of text and adds it to the current link's text.
+	 */
+	private void flushText() {
+		if (raw.length() == 0) {
+			return;
+		}
+		if (inAnchor) {
+			String text = raw.indexOf("&") == -1 ? raw.toString() : Parser.unescapeEntities(raw.toString(), false);
+			if (preserveWhitespace()) {
+				anchorText.append(text);
+			} else {
+				boolean lastWasWhite = anchorText.length() > 0 && anchorText.charAt(anchorText.length() - 1) == ' ';
+				StringUtil.appendNormalisedWhitespace(anchorText, text, lastWasWhite);
+			}
+			if (anchorText.length() > MAX_VALUE_LENGTH) {
+				anchorText.setLength(MAX_VALUE_LENGTH);
+			}
+		}
+		raw.setLength(0);
+	}
+
+	private boolean preserveWhitespace() {
+		// like Jsoup, only text directly inside a pre, textarea or title (or one level below it) keeps its whitespace
+		int top = Math.min(depth, MAX_DEPTH);
+		for (int i = top - 1; i >= 0 && i >= top - 2; i--) {
+			if (Tag.isKnownTag(openTags[i]) && Tag.valueOf(openTags[i]).preserveWhitespace()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void endAnchor() {
+		if (inAnchor) {
+			inAnchor = false;
+			listener.anchor(anchorHref, anchorText.toString().trim());
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package edu.nau.elc.hardlinks.profiling;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Defines a Flight Recorder event type for each {@link Phase} and creates and commits the events. The tool still runs
+ * on Java 8 releases without Flight Recorder's API (jdk.jfr), so it's only reached through reflection, and only if it's
+ * there; otherwise every phase is still timed, it just isn't recorded.
+ * <br><br>
+ * Whether each event type is enabled is worked out whenever a recording starts, stops or changes, and kept; when it
+ * isn't being recorded, {@link #begin} is one array lookup, with no reflection and nothing created or committed.
+ */
+class FlightRecorderEvents {
+
+	// the fields of every event, in this order
+	private static final int COURSE = 0;
+	private static final int PATH = 1;
+	private static final int BYTES = 2;
+	private static final int LINKS = 3;
+
+	private static final Object[] factories = new Object[Phase.values().length];
+	private static Method newEvent;
+	private static Method isEnabled;
+	private static Method beginEvent;
+	private static Method endEvent;
+	private static Method shouldCommit;
+	private static Method set;
+	private static Method commit;
+	private static volatile boolean available;
+	// indexed by phase; replaced as a whole whenever a recording's state changes
+	private static volatile boolean[] enabled = new boolean[Phase.values().length];
+
+	static {
+		try {
+			define();
+			available = true;
+			refresh();
+			listen();
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			// no jdk.jfr (or it's not the API we know): phases are only timed
+			available = false;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void define() throws ReflectiveOperationException {
+		Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+		Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+		Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+		Class<?> eventClass = Class.forName("jdk.jfr.Event");
+		Class<? extends Annotation> name = (Class<? extends Annotation>) Class.forName("jdk.jfr.Name");
+		Class<? extends Annotation> label = (Class<? extends Annotation>) Class.forName("jdk.jfr.Label");
+		Class<? extends Annotation> category = (Class<? extends Annotation>) Class.forName("jdk.jfr.Category");
+		Class<? extends Annotation> description = (Class<? extends Annotation>) Class.forName("jdk.jfr.Description");
+		Class<? extends Annotation> dataAmount = (Class<? extends Annotation>) Class.forName("jdk.jfr.DataAmount");
+
+		Constructor<?> annotate = annotationElement.getConstructor(Class.class, Object.class);
+		Constructor<?> field = valueDescriptor.getConstructor(Class.class, String.class, List.class);
+		Method create = factoryClass.getMethod("create", List.class, List.class);
+
+		List<Object> fields = Arrays.asList(
+				field.newInstance(String.class, "course",
+						Collections.singletonList(annotate.newInstance(label, "Course"))),
+				field.newInstance(String.class, "path",
+						Collections.singletonList(annotate.newInstance(label, "Path"))),
+				field.newInstance(long.class, "bytes", Arrays.asList(annotate.newInstance(label, "Bytes"),
+						annotate.newInstance(dataAmount, "BYTES"))),
+				field.newInstance(int.class, "links",
+						Collections.singletonList(annotate.newInstance(label, "Links"))));
+
+		for (Phase p : Phase.values()) {
+			List<Object> annotations = new ArrayList<>();
+			annotations.add(annotate.newInstance(name, p.getEventName()));
+			annotations.add(annotate.newInstance(label, p.getLabel()));
+			annotations.add(annotate.newInstance(category, new String[]{"Link Analyzer"}));
+			annotations.add(annotate.newInstance(description, "A course spent this long on: " + p.getLabel()));
+			factories[p.ordinal()] = create.invoke(null, annotations, fields);
+		}
+
+		newEvent = factoryClass.getMethod("newEvent");
+		isEnabled = eventClass.getMethod("isEnabled");
+		beginEvent = eventClass.getMethod("begin");
+		endEvent = eventClass.getMethod("end");
+		shouldCommit = eventClass.getMethod("shouldCommit");
+		set = eventClass.getMethod("set", int.class, Object.class);
+		commit = eventClass.getMethod("commit");
+	}
+
+	/**
+	 * Has Flight Recorder tell us whenever a recording changes state (including ones that were already running), so
+	 * {@link #enabled} can be worked out again. The listener interface is only there with jdk.jfr, so it's a proxy.
+	 */
+	private static void listen() throws ReflectiveOperationException {
+		Class<?> listenerClass = Class.forName("jdk.jfr.FlightRecorderListener");
+		InvocationHandler handler = (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "recorderInitialized":
+				case "recordingStateChanged":
+					refresh();
+					return null;
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				case "toString":
+					return "FlightRecorderEvents listener";
+				default:
+					return null;
+			}
+		};
+		Object listener = Proxy.newProxyInstance(FlightRecorderEvents.class.getClassLoader(),
+				new Class<?>[]{listenerClass}, handler);
+		Class.forName("jdk.jfr.FlightRecorder").getMethod("addListener", listenerClass).invoke(null, listener);
+	}
+
+	/**
+	 * Works out which phases' events the running recordings (if any) want.
+	 */
+	private static void refresh() {
+		if (!available) {
+			return;
+		}
+		try {
+			boolean[] now = new boolean[factories.length];
+			for (int i = 0; i < now.length; i++) {
+				now[i] = (Boolean) isEnabled.invoke(newEvent.invoke(factories[i]));
+			}
+			enabled = now;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			disable();
+		}
+	}
+
+	/**
+	 * Starts an event for a phase.
+	 *
+	 * @param phase The phase.
+	 * @return the started event, or null if it isn't being recorded
+	 */
+	static Object begin(Phase phase) {
+		if (!available || !enabled[phase.ordinal()]) {
+			return null;
+		}
+		try {
+			Object event = newEvent.invoke(factories[phase.ordinal()]);
+			if (!(Boolean) isEnabled.invoke(event)) {
+				return null;
+			}
+			beginEvent.invoke(event);
+			return event;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			disable();
+			return null;
+		}
+	}
+
+	/**
+	 * Ends an event and commits it, if it's over the recording's threshold.
+	 *
+	 * @param event  The event {@link #begin} returned.
+	 * @param course The course's name.
+	 * @param path   What the phase worked on.
+	 * @param bytes  Bytes read or written.
+	 * @param links  Links found or written.
+	 */
+	static void commit(Object event, String course, String path, long bytes, int links) {
+		try {
+			endEvent.invoke(event);
+			if ((Boolean) shouldCommit.invoke(event)) {
+				set.invoke(event, COURSE, course);
+				set.invoke(event, PATH, path);
+				set.invoke(event, BYTES, bytes);
+				set.invoke(event, LINKS, links);
+				commit.invoke(event);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			disable();
+		}
+	}
+
+	// recording is only ever a nice-to-have, so a broken event never takes the course down with it
+	private static void disable() {
+		available = false;
+		enabled = new boolean[Phase.values().length];
+	}
+}
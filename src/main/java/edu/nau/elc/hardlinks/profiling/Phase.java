@@ -0,0 +1,77 @@
+package edu.nau.elc.hardlinks.profiling;
+
+import java.util.Locale;
+
+/**
+ * The phases a course goes through, each timed on its own and recorded as its own kind of Flight Recorder event.
+ */
+public enum Phase {
+	/**
+	 * Checking that the export isn't corrupt before anything else reads it.
+	 */
+	VALIDATE_EXPORT("ValidateExport", "Validate export"),
+	/**
+	 * Opening the export: extracting it (with --extract) or reading the ZIP's directory, and stripping the xid
+	 * suffixes from every path (which used to mean renaming the extracted files).
+	 */
+	OPEN_EXPORT("OpenExport", "Open export"),
+	/**
+	 * Parsing every .dat file to find which content collection file it deploys.
+	 */
+	INDEX_DAT_FILES("IndexDatFiles", "Index .dat files"),
+	/**
+	 * Indexing the imsmanifest.xml.
+	 */
+	BUILD_MANIFEST("BuildManifest", "Build manifest"),
+	/**
+	 * Parsing one content item's .dat file and classifying its links.
+	 */
+	PARSE_DAT("ParseDat", "Parse .dat file"),
+	/**
+	 * Parsing one HTML file and classifying its links.
+	 */
+	PARSE_HTML("ParseHtml", "Parse HTML file"),
+	/**
+	 * Looking up the xids of one item's links.
+	 */
+	RESOLVE_XIDS("ResolveXids", "Resolve xids"),
+	/**
+	 * Writing the hard links to the report and saving it.
+	 */
+	WRITE_REPORT("WriteReport", "Write report");
+
+	private final String eventName;
+	private final String label;
+
+	Phase(String eventName, String label) {
+		this.eventName = eventName;
+		this.label = label;
+	}
+
+	/**
+	 * Gets the name of the phase's Flight Recorder event type, e.g. "edu.nau.elc.hardlinks.ParseDat".
+	 *
+	 * @return the event name
+	 */
+	public String getEventName() {
+		return "edu.nau.elc.hardlinks." + eventName;
+	}
+
+	/**
+	 * Gets the phase's name for people.
+	 *
+	 * @return the label
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Gets the phase's name on the command line, e.g. "parse-dat" for {@link #PARSE_DAT}.
+	 *
+	 * @return the option name
+	 */
+	public String getOptionName() {
+		return name().toLowerCase(Locale.ROOT).replace('_', '-');
+	}
+}
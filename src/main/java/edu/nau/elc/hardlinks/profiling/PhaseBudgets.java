@@ -0,0 +1,83 @@
+package edu.nau.elc.hardlinks.profiling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long one run of each {@link Phase} may take before the course is considered stuck. Parsing and resolving xids
+ * are timed per item, the rest once per course. The defaults are generous on purpose: they're shared by every course
+ * running at once and by the window, on whatever disk the exports are on, and aborting a healthy course costs more
+ * than waiting a while on a stuck one. A corrupt export that gets stuck still only holds things up for minutes rather
+ * than hours.
+ */
+public class PhaseBudgets {
+
+	private final long[] nanos = new long[Phase.values().length];
+
+	/**
+	 * Instantiates the default budgets.
+	 */
+	public PhaseBudgets() {
+		setBudget(Phase.VALIDATE_EXPORT, 2, TimeUnit.MINUTES);
+		setBudget(Phase.OPEN_EXPORT, 30, TimeUnit.MINUTES);
+		setBudget(Phase.INDEX_DAT_FILES, 15, TimeUnit.MINUTES);
+		setBudget(Phase.BUILD_MANIFEST, 10, TimeUnit.MINUTES);
+		setBudget(Phase.PARSE_DAT, 5, TimeUnit.MINUTES);
+		setBudget(Phase.PARSE_HTML, 5, TimeUnit.MINUTES);
+		setBudget(Phase.RESOLVE_XIDS, 5, TimeUnit.MINUTES);
+		setBudget(Phase.WRITE_REPORT, 30, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Sets how long a phase may take.
+	 *
+	 * @param phase    The phase.
+	 * @param duration How long, or 0 for no limit.
+	 * @param unit     The duration's unit.
+	 */
+	public void setBudget(Phase phase, long duration, TimeUnit unit) {
+		if (duration < 0) {
+			throw new IllegalArgumentException("A phase's budget can't be negative");
+		}
+		nanos[phase.ordinal()] = unit.toNanos(duration);
+	}
+
+	/**
+	 * Sets a budget from the command line, e.g. "parse-dat=60" for a minute per .dat file.
+	 *
+	 * @param option The phase's {@link Phase#getOptionName() option name}, "=", and seconds (0 for no limit).
+	 * @throws IllegalArgumentException If the phase or the number isn't right.
+	 */
+	public void parse(String option) {
+		int eq = option.indexOf('=');
+		if (eq != -1) {
+			String name = option.substring(0, eq);
+			for (Phase p : Phase.values()) {
+				if (p.getOptionName().equals(name)) {
+					try {
+						setBudget(p, Long.parseLong(option.substring(eq + 1)), TimeUnit.SECONDS);
+						return;
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException("Not a number of seconds: " + option);
+					}
+				}
+			}
+		}
+
+		StringBuilder phases = new StringBuilder();
+		for (Phase p : Phase.values()) {
+			phases.append(phases.length() > 0 ? ", " : "").append(p.getOptionName());
+		}
+		throw new IllegalArgumentException("A budget is phase=seconds, where phase is one of " + phases + "; not "
+				+ option);
+	}
+
+	/**
+	 * Gets how long a phase may take.
+	 *
+	 * @param phase The phase.
+	 * @return nanoseconds, or 0 for no limit
+	 */
+	public long getBudgetNanos(Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+}
@@ -0,0 +1,60 @@
+package edu.nau.elc.hardlinks.profiling;
+
+/**
+ * One run of a {@link Phase}, started by {@link PhaseTimings#start}.
+ */
+public class PhaseSpan {
+
+	private final PhaseTimings timings;
+	private final Phase phase;
+	private final String path;
+	private final Object event;
+	private final long start = System.nanoTime();
+
+	PhaseSpan(PhaseTimings timings, Phase phase, String path, Object event) {
+		this.timings = timings;
+		this.phase = phase;
+		this.path = path;
+		this.event = event;
+	}
+
+	/**
+	 * Ends the phase, adding its time to the course's timings and committing its event if it's being recorded.
+	 *
+	 * @param bytes How many bytes the phase read or wrote, or 0 if that doesn't apply.
+	 * @param links How many links the phase found or wrote, or 0 if that doesn't apply.
+	 */
+	public void end(long bytes, int links) {
+		timings.add(this, System.nanoTime() - start);
+		if (event != null) {
+			FlightRecorderEvents.commit(event, timings.getCourse(), path, bytes, links);
+		}
+	}
+
+	/**
+	 * Gets the phase.
+	 *
+	 * @return the phase
+	 */
+	public Phase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Gets what the phase is working on.
+	 *
+	 * @return the path, or an empty string
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets how long the phase has been going.
+	 *
+	 * @return nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return System.nanoTime() - start;
+	}
+}
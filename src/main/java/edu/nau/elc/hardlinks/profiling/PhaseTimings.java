@@ -0,0 +1,109 @@
+package edu.nau.elc.hardlinks.profiling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * How long a course spent in each {@link Phase}, added up over every thread (so phases done on several threads at once,
+ * like parsing, can add up to more than the time the course took). Each phase is also recorded as a Flight Recorder
+ * event, if there's a recording running.
+ */
+public class PhaseTimings {
+
+	private final String course;
+	private final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray counts = new AtomicLongArray(Phase.values().length);
+	// the spans that have started but not ended, so a watchdog can see what's taking too long
+	private final Set<PhaseSpan> active = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Instantiates timings for a course.
+	 *
+	 * @param course The course's name, e.g. the export's filename. Recorded with every event.
+	 */
+	public PhaseTimings(String course) {
+		this.course = course;
+	}
+
+	/**
+	 * Starts timing a phase. {@link PhaseSpan#end} has to be called when it's done, even if it fails.
+	 *
+	 * @param phase The phase.
+	 * @param path  What the phase is working on (e.g. the item's path in the export), or an empty string.
+	 * @return the started span
+	 */
+	public PhaseSpan start(Phase phase, String path) {
+		PhaseSpan span = new PhaseSpan(this, phase, path, FlightRecorderEvents.begin(phase));
+		active.add(span);
+		return span;
+	}
+
+	void add(PhaseSpan span, long elapsed) {
+		active.remove(span);
+		nanos.addAndGet(span.getPhase().ordinal(), elapsed);
+		counts.incrementAndGet(span.getPhase().ordinal());
+	}
+
+	/**
+	 * Gets the phases that are going right now (several at once while items are parsed on several threads).
+	 *
+	 * @return the spans that have started but not ended
+	 */
+	public List<PhaseSpan> getActiveSpans() {
+		return new ArrayList<>(active);
+	}
+
+	/**
+	 * Gets the course the timings are for.
+	 *
+	 * @return the course name
+	 */
+	public String getCourse() {
+		return course;
+	}
+
+	/**
+	 * Gets the time spent in a phase.
+	 *
+	 * @param phase The phase.
+	 * @return nanoseconds, over all threads
+	 */
+	public long getNanos(Phase phase) {
+		return nanos.get(phase.ordinal());
+	}
+
+	/**
+	 * Gets how many times a phase was done (e.g. once per item for parsing).
+	 *
+	 * @param phase The phase.
+	 * @return the count
+	 */
+	public long getCount(Phase phase) {
+		return counts.get(phase.ordinal());
+	}
+
+	/**
+	 * Sums up the timings on one line, e.g. for printing after a course is done. Phases that never ran are left out.
+	 *
+	 * @return the summary
+	 */
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder("phases:");
+		for (Phase p : Phase.values()) {
+			long n = getCount(p);
+			if (n == 0) {
+				continue;
+			}
+			b.append(b.length() > "phases:".length() ? ", " : " ")
+					.append(p.getLabel().toLowerCase()).append(String.format(" %.2f s", getNanos(p) / 1e9));
+			if (n > 1) {
+				b.append(" (").append(n).append(")");
+			}
+		}
+		return b.toString();
+	}
+}
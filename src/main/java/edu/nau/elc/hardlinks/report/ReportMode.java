@@ -0,0 +1,36 @@
+package edu.nau.elc.hardlinks.report;
+
+import java.io.IOException;
+
+/**
+ * Which {@link ReportWriter} writes the report. Both write the same rows into the same sheets.
+ */
+public enum ReportMode {
+	/**
+	 * Write the SpreadsheetML directly with an {@link XlsxReportWriter}, generating sheets in parallel. The file is the
+	 * same byte for byte however many threads are used.
+	 */
+	DIRECT,
+
+	/**
+	 * Write it with POI's streaming workbook, using a {@link StreamingReportWriter}. Sheets are generated one at a
+	 * time, and the file has POI's timestamps in it.
+	 */
+	SXSSF;
+
+	/**
+	 * Makes a writer of this kind.
+	 *
+	 * @param threads The most sheets to generate at once, for writers that can generate more than one.
+	 * @return a new writer
+	 * @throws IOException If the writer's temp files can't be created.
+	 */
+	public ReportWriter newWriter(int threads) throws IOException {
+		switch (this) {
+			case SXSSF:
+				return new StreamingReportWriter();
+			default:
+				return new XlsxReportWriter(threads);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package edu.nau.elc.hardlinks.report;
+
+/**
+ * The worksheets in a triage report, in the order they appear in the workbook, with their column headers.
+ */
+public enum ReportSheet {
+	/**
+	 * Hard links found in content items (.dat files).
+	 */
+	CONTENT("Content Items", "Item Name", "Link Address", "x-id", "Link/Alt Text", "Course Location"),
+
+	/**
+	 * Hard links found in deployed HTML files, and HTML files that could be blank pages.
+	 */
+	HTML("HTML Files", "Item Name", "Link Address", "x-id", "Link/Alt Text", "Course Location",
+			"Content Collection Path"),
+
+	/**
+	 * Hard links found in HTML files that aren't deployed anywhere, and HTML files that could be deleted.
+	 */
+	UNDEPLOYED("Undeployed HTML Files", "Content Collection Path", "Item Name", "Link/Alt Text", "Link Address",
+			"x-id"),
+
+	/**
+	 * Links that already use xids.
+	 */
+	XID("x-id Links", "Course Location", "Content Collection Path", "Item Name", "Link/Alt Text", "Link Address"),
+
+	/**
+	 * Links that are probably not a problem.
+	 */
+	DISCARDED("Discarded links", "Course Location", "Content Collection Path", "Item Name", "Link Address",
+			"Link/Alt Text");
+
+	private final String title;
+	private final String[] headers;
+
+	ReportSheet(String title, String... headers) {
+		this.title = title;
+		this.headers = headers;
+	}
+
+	/**
+	 * Gets the name of the worksheet.
+	 *
+	 * @return the sheet name
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * Gets the column headers.
+	 *
+	 * @return the headers, in column order
+	 */
+	public String[] getHeaders() {
+		return headers.clone();
+	}
+}
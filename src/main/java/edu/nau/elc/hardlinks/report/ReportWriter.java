@@ -0,0 +1,35 @@
+package edu.nau.elc.hardlinks.report;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the rows of a triage report. Each sheet's rows are appended in order; rows can't be changed once they've been
+ * added. Implementations write each sheet's header row themselves.
+ */
+public interface ReportWriter extends Closeable {
+
+	/**
+	 * Appends a row to a sheet.
+	 *
+	 * @param sheet The sheet to add to.
+	 * @param cells The cell values, from the first column. A null value makes a blank cell.
+	 * @throws IOException If the row can't be buffered.
+	 */
+	void addRow(ReportSheet sheet, String... cells) throws IOException;
+
+	/**
+	 * Writes the finished workbook. No more rows can be added afterwards.
+	 *
+	 * @param out Where to write the .xlsx file. Is not closed.
+	 * @throws IOException If the workbook can't be written.
+	 */
+	void save(OutputStream out) throws IOException;
+
+	/**
+	 * Releases anything the writer was holding (e.g. temp files), whether or not the report was saved.
+	 */
+	@Override
+	void close();
+}
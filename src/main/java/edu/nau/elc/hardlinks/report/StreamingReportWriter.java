@@ -0,0 +1,106 @@
+package edu.nau.elc.hardlinks.report;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes a report with POI's streaming (SXSSF) workbook. Only the last {@link #ROW_WINDOW} rows of each sheet are
+ * kept in memory; older rows are flushed to compressed temp files as new ones are added, and strings are written
+ * inline rather than to a shared string table. Memory use is the same no matter how many links a course has.
+ * <br><br>
+ * Since flushed rows can't be measured again, column widths are worked out from the longest value written to each
+ * column rather than with autoSizeColumn().
+ */
+public class StreamingReportWriter implements ReportWriter {
+
+	/**
+	 * The number of rows per sheet kept in memory.
+	 */
+	public static final int ROW_WINDOW = 100;
+
+	// Excel won't make a column wider than 255 characters
+	private static final int MAX_COLUMN_CHARS = 255;
+
+	private final SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW);
+	private final Sheet[] sheets = new Sheet[ReportSheet.values().length];
+	private final int[] nextRow = new int[sheets.length];
+	private final int[][] columnChars = new int[sheets.length][];
+
+	/**
+	 * Instantiates a new writer and creates every sheet with its header row.
+	 */
+	public StreamingReportWriter() {
+		wb.setCompressTempFiles(true);
+
+		// let's set some default styling across the board
+		Font headerFont = wb.createFont();
+		headerFont.setFontHeightInPoints((short) 11);
+		headerFont.setFontName("Arial");
+		headerFont.setUnderline(Font.U_SINGLE);
+
+		CellStyle headerStyle = wb.createCellStyle();
+		headerStyle.setFont(headerFont);
+		headerStyle.setFillForegroundColor(IndexedColors.LIGHT_GREEN.getIndex());
+		headerStyle.setFillPattern(CellStyle.SOLID_FOREGROUND);
+
+		for (ReportSheet s : ReportSheet.values()) {
+			int i = s.ordinal();
+			String[] headers = s.getHeaders();
+			sheets[i] = wb.createSheet(s.getTitle());
+			columnChars[i] = new int[headers.length];
+
+			Row headerRow = sheets[i].createRow(0);
+			headerRow.setRowStyle(headerStyle);
+			for (int c = 0; c < headers.length; c++) {
+				Cell cell = headerRow.createCell(c);
+				cell.setCellValue(headers[c]);
+				cell.setCellStyle(headerStyle);
+				measure(i, c, headers[c]);
+			}
+			nextRow[i] = 1;
+		}
+	}
+
+	@Override
+	public void addRow(ReportSheet sheet, String... cells) {
+		int i = sheet.ordinal();
+		Row r = sheets[i].createRow(nextRow[i]++);
+		for (int c = 0; c < cells.length; c++) {
+			Cell cell = r.createCell(c);
+			if (cells[c] != null) {
+				cell.setCellValue(cells[c]);
+				measure(i, c, cells[c]);
+			}
+		}
+	}
+
+	private void measure(int sheet, int column, String value) {
+		int[] widths = columnChars[sheet];
+		if (column >= widths.length) {
+			widths = columnChars[sheet] = Arrays.copyOf(widths, column + 1);
+		}
+		if (value.length() > widths[column]) {
+			widths[column] = Math.min(value.length(), MAX_COLUMN_CHARS);
+		}
+	}
+
+	@Override
+	public void save(OutputStream out) throws IOException {
+		// widths are in 1/256ths of a character, with a little padding like autoSizeColumn() adds
+		for (int i = 0; i < sheets.length; i++) {
+			for (int c = 0; c < columnChars[i].length; c++) {
+				sheets[i].setColumnWidth(c, Math.min(columnChars[i][c] + 2, MAX_COLUMN_CHARS) * 256);
+			}
+		}
+		wb.write(out);
+	}
+
+	@Override
+	public void close() {
+		wb.dispose();
+	}
+}
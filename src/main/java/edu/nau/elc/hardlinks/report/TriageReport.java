@@ -0,0 +1,137 @@
+package edu.nau.elc.hardlinks.report;
+
+import edu.nau.elc.hardlinks.domain.CourseItem;
+import edu.nau.elc.hardlinks.domain.Link;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Turns course items into report rows. Knows which sheet each kind of link goes on and what's in each column, but not
+ * how the workbook is written; that's up to the {@link ReportWriter}.
+ * <br><br>
+ * x-id and discarded links can be added as soon as an item has been analyzed, since their order doesn't matter much.
+ * Hard links are added once all items have been analyzed and sorted, so the items with the most bad links come first.
+ */
+public class TriageReport {
+
+	// HTML files with names like these (DVD123_..., VT4567_...) have always been left out of the report
+	private static final Pattern SKIPPED_HTML = Pattern.compile("(DVD|VT)[0-9]{1,6}_");
+
+	private final ReportWriter writer;
+	private int linksWritten = 0;
+
+	/**
+	 * Instantiates a new report.
+	 *
+	 * @param writer Where to write the rows.
+	 */
+	public TriageReport(ReportWriter writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Whether an HTML file is left out of the report.
+	 *
+	 * @param htmlFile The HTML file.
+	 * @return true if none of the file's links are reported
+	 */
+	public static boolean isSkipped(CourseItem htmlFile) {
+		return SKIPPED_HTML.matcher(htmlFile.getName()).find();
+	}
+
+	/**
+	 * Adds an item's x-id links and discarded links. Skipped HTML files are ignored.
+	 *
+	 * @param item The analyzed item (content item or HTML file).
+	 * @throws IOException If the rows can't be written.
+	 */
+	public void addXidAndDiscardedLinks(CourseItem item) throws IOException {
+		if (item.isHtmlFile() && isSkipped(item)) {
+			return;
+		}
+
+		for (Link l : item.getDiscardedURLs()) {
+			writer.addRow(ReportSheet.DISCARDED, item.getContentPath(), item.getCollectionPath(), item.getName(),
+					l.getUrl(), l.getLinkText());
+		}
+
+		for (Link l : item.getXIDLinks()) {
+			writer.addRow(ReportSheet.XID, item.getContentPath(), item.getCollectionPath(), item.getName(),
+					l.getLinkText(), l.getUrl());
+		}
+	}
+
+	/**
+	 * Adds a content item's hard links.
+	 *
+	 * @param item The analyzed content item.
+	 * @throws IOException If the rows can't be written.
+	 */
+	public void addContentItem(CourseItem item) throws IOException {
+		for (Link l : item.getHardLinks()) {
+			writer.addRow(ReportSheet.CONTENT, item.getName(), l.getUrl(), l.getXid(), l.getLinkText(),
+					item.getContentPath());
+			linksWritten++;
+		}
+	}
+
+	/**
+	 * Adds a deployed HTML file's hard links, or suggests converting it to a blank page if it has none. Skipped HTML
+	 * files are ignored.
+	 *
+	 * @param item The analyzed HTML file.
+	 * @throws IOException If the rows can't be written.
+	 */
+	public void addHtmlFile(CourseItem item) throws IOException {
+		if (isSkipped(item)) {
+			return;
+		}
+
+		if (item.getHardLinks().size() == 0) {
+			writer.addRow(ReportSheet.HTML, item.getName(), "NO BAD LINKS FOUND, CONVERT TO BLANK PG?", null, null,
+					item.getContentPath(), item.getCollectionPath());
+			linksWritten++;
+		}
+
+		for (Link l : item.getHardLinks()) {
+			writer.addRow(ReportSheet.HTML, item.getName(), l.getUrl(), l.getXid(), l.getLinkText(),
+					item.getContentPath(), item.getCollectionPath());
+			linksWritten++;
+		}
+	}
+
+	/**
+	 * Adds an undeployed HTML file's hard links, or suggests deleting it if it has none. Skipped HTML files are
+	 * ignored.
+	 *
+	 * @param item The analyzed HTML file.
+	 * @throws IOException If the rows can't be written.
+	 */
+	public void addUndeployedFile(CourseItem item) throws IOException {
+		if (isSkipped(item)) {
+			return;
+		}
+
+		if (item.getHardLinks().size() == 0) {
+			writer.addRow(ReportSheet.UNDEPLOYED, item.getCollectionPath(), item.getName(),
+					"NO BAD LINKS FOUND, CONSIDER DELETE");
+			linksWritten++;
+		}
+
+		for (Link l : item.getHardLinks()) {
+			writer.addRow(ReportSheet.UNDEPLOYED, item.getCollectionPath(), item.getName(), l.getLinkText(),
+					l.getUrl(), l.getXid());
+			linksWritten++;
+		}
+	}
+
+	/**
+	 * Gets the number of rows written to the hard link sheets (content items, HTML files and undeployed HTML files).
+	 *
+	 * @return the number of links written
+	 */
+	public int getLinksWritten() {
+		return linksWritten;
+	}
+}
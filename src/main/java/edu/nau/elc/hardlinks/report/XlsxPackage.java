@@ -0,0 +1,227 @@
+package edu.nau.elc.hardlinks.report;
+
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * The parts of an .xlsx file, compressed ahead of time so they can be generated on different threads, then written out
+ * as one ZIP. ZipOutputStream can only compress entries one after another, so the ZIP structure is written here by
+ * hand instead. Every entry gets the same fixed timestamp, so the same parts always make the same bytes.
+ */
+class XlsxPackage implements Closeable {
+
+	// 1980-01-01 00:00:00, the earliest date a ZIP can hold
+	private static final int DOS_TIME = 0;
+	private static final int DOS_DATE = (1 << 5) | 1;
+
+	private static final long MAX_ZIP32 = 0xFFFFFFFFL;
+
+	/**
+	 * One deflated part, spooled to a temp file.
+	 */
+	static class Part implements Closeable {
+		private final String name;
+		private final File data;
+		private final CRC32 crc = new CRC32();
+		private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		private CountingOutputStream compressed;
+		private CountingOutputStream uncompressed;
+		private Writer writer;
+
+		/**
+		 * Instantiates a new part.
+		 *
+		 * @param name The part's path within the package, e.g. "xl/workbook.xml".
+		 * @throws IOException If the temp file can't be created.
+		 */
+		Part(String name) throws IOException {
+			this.name = name;
+			data = File.createTempFile("report_part", ".deflate");
+		}
+
+		/**
+		 * Opens the part for writing. The returned writer encodes UTF-8 and compresses as it goes, and must be closed
+		 * with {@link #finish()}, not directly.
+		 *
+		 * @return a writer for the part's XML
+		 * @throws IOException If the temp file can't be opened.
+		 */
+		Writer open() throws IOException {
+			compressed = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(data)));
+			uncompressed = new CountingOutputStream(
+					new CheckedOutputStream(new DeflaterOutputStream(compressed, deflater, 8192), crc));
+			writer = new BufferedWriter(new OutputStreamWriter(uncompressed, StandardCharsets.UTF_8), 8192);
+			return writer;
+		}
+
+		/**
+		 * Flushes and compresses the rest of the part.
+		 *
+		 * @throws IOException If the temp file can't be written.
+		 */
+		void finish() throws IOException {
+			try {
+				writer.close();
+			} finally {
+				deflater.end();
+			}
+		}
+
+		@Override
+		public void close() {
+			deflater.end();
+			data.delete();
+		}
+	}
+
+	private final ArrayList<Part> parts = new ArrayList<>();
+
+	/**
+	 * Adds a part. Parts are written in the order they're added.
+	 *
+	 * @param part The part, which must be finished before the package is written.
+	 */
+	void add(Part part) {
+		parts.add(part);
+	}
+
+	/**
+	 * Adds a small part that's already in memory.
+	 *
+	 * @param name    The part's path within the package.
+	 * @param content The part's XML.
+	 * @throws IOException If the part can't be spooled.
+	 */
+	void add(String name, String content) throws IOException {
+		Part part = new Part(name);
+		parts.add(part);
+		part.open().write(content);
+		part.finish();
+	}
+
+	/**
+	 * Writes the package as a ZIP.
+	 *
+	 * @param out Where to write it. Is not closed.
+	 * @throws IOException If the parts can't be read, or the package is too big for a (non-ZIP64) ZIP.
+	 */
+	void write(OutputStream out) throws IOException {
+		CountingOutputStream counted = new CountingOutputStream(new BufferedOutputStream(out));
+		ZipOutput zip = new ZipOutput(counted);
+		long[] offsets = new long[parts.size()];
+
+		byte[] buffer = new byte[8192];
+		for (int i = 0; i < parts.size(); i++) {
+			Part p = parts.get(i);
+			offsets[i] = counted.getByteCount();
+			checkZip32(offsets[i]);
+
+			byte[] name = p.name.getBytes(StandardCharsets.UTF_8);
+			zip.writeInt(0x04034b50);
+			writeEntryInfo(zip, p, name);
+			zip.writeShort(0); // extra field length
+			zip.write(name);
+
+			InputStream in = new BufferedInputStream(new FileInputStream(p.data));
+			try {
+				int length;
+				while ((length = in.read(buffer)) != -1) {
+					counted.write(buffer, 0, length);
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+		long directoryStart = counted.getByteCount();
+		checkZip32(directoryStart);
+		for (int i = 0; i < parts.size(); i++) {
+			Part p = parts.get(i);
+			byte[] name = p.name.getBytes(StandardCharsets.UTF_8);
+			zip.writeInt(0x02014b50);
+			zip.writeShort(20); // version made by
+			writeEntryInfo(zip, p, name);
+			zip.writeShort(0); // extra field length
+			zip.writeShort(0); // comment length
+			zip.writeShort(0); // disk number
+			zip.writeShort(0); // internal attributes
+			zip.writeInt(0); // external attributes
+			zip.writeInt((int) offsets[i]);
+			zip.write(name);
+		}
+		long directorySize = counted.getByteCount() - directoryStart;
+
+		zip.writeInt(0x06054b50);
+		zip.writeShort(0); // this disk
+		zip.writeShort(0); // disk with the directory
+		zip.writeShort(parts.size());
+		zip.writeShort(parts.size());
+		zip.writeInt((int) directorySize);
+		zip.writeInt((int) directoryStart);
+		zip.writeShort(0); // comment length
+		counted.flush();
+	}
+
+	/**
+	 * Deletes every part's temp file.
+	 */
+	@Override
+	public void close() {
+		for (Part p : parts) {
+			p.close();
+		}
+	}
+
+	private void writeEntryInfo(ZipOutput zip, Part p, byte[] name) throws IOException {
+		checkZip32(p.compressed.getByteCount());
+		checkZip32(p.uncompressed.getByteCount());
+
+		zip.writeShort(20); // version needed to extract
+		zip.writeShort(0); // flags
+		zip.writeShort(8); // deflated
+		zip.writeShort(DOS_TIME);
+		zip.writeShort(DOS_DATE);
+		zip.writeInt((int) p.crc.getValue());
+		zip.writeInt((int) p.compressed.getByteCount());
+		zip.writeInt((int) p.uncompressed.getByteCount());
+		zip.writeShort(name.length);
+	}
+
+	private static void checkZip32(long value) throws IOException {
+		if (value > MAX_ZIP32) {
+			throw new IOException("Report is too big to write.");
+		}
+	}
+
+	/**
+	 * Writes numbers in ZIP's (little-endian) byte order.
+	 */
+	private static class ZipOutput {
+		private final OutputStream out;
+
+		ZipOutput(OutputStream out) {
+			this.out = out;
+		}
+
+		void writeShort(int v) throws IOException {
+			out.write(v & 0xff);
+			out.write((v >>> 8) & 0xff);
+		}
+
+		void writeInt(int v) throws IOException {
+			writeShort(v & 0xffff);
+			writeShort((v >>> 16) & 0xffff);
+		}
+
+		void write(byte[] b) throws IOException {
+			out.write(b);
+		}
+	}
+}
@@ -0,0 +1,361 @@
+package edu.nau.elc.hardlinks.report;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Writes a report as SpreadsheetML directly, generating each sheet's XML part on its own thread. While the course is
+ * being analyzed, rows are just appended to a spool file per sheet (so memory use doesn't depend on the number of
+ * links). When the report is saved, every sheet is turned into XML and compressed in parallel, and the parts are
+ * written into the .xlsx one after another.
+ * <br><br>
+ * The output only depends on the rows: strings are written inline (there's no shared string table to build in
+ * order), every ZIP entry has the same fixed timestamp, and parts are always written in the same order. The file is
+ * the same byte for byte however many threads are used.
+ */
+public class XlsxReportWriter implements ReportWriter {
+
+	// Excel's limits on the length of a cell and the width of a column
+	private static final int MAX_CELL_CHARS = 32767;
+	private static final int MAX_COLUMN_CHARS = 255;
+
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+	private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+	private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	private static final String PACKAGE_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+	// style 0 is the default, style 1 is the header style (Arial 11, underlined, light green fill)
+	private static final String STYLES = XML_DECLARATION
+			+ "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+			+ "<fonts count=\"2\">"
+			+ "<font><sz val=\"11\"/><name val=\"Calibri\"/><family val=\"2\"/></font>"
+			+ "<font><u/><sz val=\"11\"/><name val=\"Arial\"/></font>"
+			+ "</fonts>"
+			+ "<fills count=\"3\">"
+			+ "<fill><patternFill patternType=\"none\"/></fill>"
+			+ "<fill><patternFill patternType=\"gray125\"/></fill>"
+			+ "<fill><patternFill patternType=\"solid\"><fgColor indexed=\"42\"/><bgColor indexed=\"64\"/></patternFill></fill>"
+			+ "</fills>"
+			+ "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+			+ "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+			+ "<cellXfs count=\"2\">"
+			+ "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+			+ "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"2\" borderId=\"0\" xfId=\"0\" applyFont=\"1\" applyFill=\"1\"/>"
+			+ "</cellXfs>"
+			+ "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+			+ "</styleSheet>";
+
+	private final int threads;
+	private final ReportSheet[] sheets = ReportSheet.values();
+	private final File[] spools = new File[sheets.length];
+	private final DataOutputStream[] spoolOut = new DataOutputStream[sheets.length];
+	private final int[][] columnChars = new int[sheets.length][];
+	private final int[] rowCounts = new int[sheets.length];
+	private byte[] spoolBytes = new byte[512];
+	private XlsxPackage xlsx;
+
+	/**
+	 * Instantiates a new writer.
+	 *
+	 * @param threads The most sheets to generate at once when saving. 1 generates them on the calling thread.
+	 * @throws IOException If the spool files can't be created.
+	 */
+	public XlsxReportWriter(int threads) throws IOException {
+		this.threads = Math.max(1, threads);
+
+		try {
+			for (int i = 0; i < sheets.length; i++) {
+				spools[i] = File.createTempFile("report_rows", ".spool");
+				spoolOut[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spools[i])));
+
+				String[] headers = sheets[i].getHeaders();
+				columnChars[i] = new int[headers.length];
+				for (int c = 0; c < headers.length; c++) {
+					measure(i, c, headers[c].length());
+				}
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void addRow(ReportSheet sheet, String... cells) throws IOException {
+		int i = sheet.ordinal();
+		DataOutputStream out = spoolOut[i];
+		rowCounts[i]++;
+		out.writeShort(cells.length);
+		for (int c = 0; c < cells.length; c++) {
+			if (cells[c] == null) {
+				out.writeInt(-1);
+			} else {
+				// Excel won't open a file with a longer cell than this
+				int length = Math.min(cells[c].length(), MAX_CELL_CHARS);
+				out.writeInt(length);
+				if (spoolBytes.length < length * 2) {
+					spoolBytes = new byte[Math.max(length * 2, spoolBytes.length * 2)];
+				}
+				for (int ch = 0; ch < length; ch++) {
+					char value = cells[c].charAt(ch);
+					spoolBytes[2 * ch] = (byte) (value >>> 8);
+					spoolBytes[2 * ch + 1] = (byte) value;
+				}
+				out.write(spoolBytes, 0, length * 2);
+				measure(i, c, length);
+			}
+		}
+	}
+
+	private void measure(int sheet, int column, int length) {
+		int[] widths = columnChars[sheet];
+		if (column >= widths.length) {
+			widths = columnChars[sheet] = Arrays.copyOf(widths, column + 1);
+		}
+		if (length > widths[column]) {
+			widths[column] = Math.min(length, MAX_COLUMN_CHARS);
+		}
+	}
+
+	@Override
+	public void save(OutputStream out) throws IOException {
+		for (DataOutputStream spool : spoolOut) {
+			spool.close();
+		}
+
+		xlsx = new XlsxPackage();
+		writeStaticParts();
+
+		final XlsxPackage.Part[] sheetParts = new XlsxPackage.Part[sheets.length];
+		for (int i = 0; i < sheets.length; i++) {
+			sheetParts[i] = new XlsxPackage.Part("xl/worksheets/sheet" + (i + 1) + ".xml");
+			xlsx.add(sheetParts[i]);
+		}
+
+		if (threads == 1) {
+			for (int i = 0; i < sheets.length; i++) {
+				writeSheet(i, sheetParts[i]);
+			}
+		} else {
+			ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, sheets.length));
+			try {
+				List<Future<Void>> done = new ArrayList<>();
+				for (int i = 0; i < sheets.length; i++) {
+					final int sheet = i;
+					done.add(pool.submit(() -> {
+						writeSheet(sheet, sheetParts[sheet]);
+						return null;
+					}));
+				}
+				for (Future<Void> f : done) {
+					f.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while writing the report.");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+
+		xlsx.write(out);
+	}
+
+	private void writeStaticParts() throws IOException {
+		StringBuilder types = new StringBuilder(XML_DECLARATION)
+				.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+				.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+				.append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+				.append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+				.append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+		StringBuilder workbook = new StringBuilder(XML_DECLARATION)
+				.append("<workbook xmlns=\"").append(MAIN_NS).append("\" xmlns:r=\"").append(REL_NS).append("\"><sheets>");
+		StringBuilder workbookRels = new StringBuilder(XML_DECLARATION)
+				.append("<Relationships xmlns=\"").append(PACKAGE_REL_NS).append("\">");
+
+		for (int i = 0; i < sheets.length; i++) {
+			int n = i + 1;
+			types.append("<Override PartName=\"/xl/worksheets/sheet").append(n)
+					.append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+			workbook.append("<sheet name=\"").append(escape(sheets[i].getTitle())).append("\" sheetId=\"").append(n)
+					.append("\" r:id=\"rId").append(n).append("\"/>");
+			workbookRels.append("<Relationship Id=\"rId").append(n).append("\" Type=\"").append(REL_NS)
+					.append("/worksheet\" Target=\"worksheets/sheet").append(n).append(".xml\"/>");
+		}
+
+		types.append("</Types>");
+		workbook.append("</sheets></workbook>");
+		workbookRels.append("<Relationship Id=\"rId").append(sheets.length + 1).append("\" Type=\"").append(REL_NS)
+				.append("/styles\" Target=\"styles.xml\"/></Relationships>");
+
+		xlsx.add("[Content_Types].xml", types.toString());
+		xlsx.add("_rels/.rels", XML_DECLARATION + "<Relationships xmlns=\"" + PACKAGE_REL_NS + "\">"
+				+ "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+				+ "</Relationships>");
+		xlsx.add("xl/workbook.xml", workbook.toString());
+		xlsx.add("xl/_rels/workbook.xml.rels", workbookRels.toString());
+		xlsx.add("xl/styles.xml", STYLES);
+	}
+
+	/**
+	 * Generates one sheet's XML from its spooled rows.
+	 */
+	private void writeSheet(int sheet, XlsxPackage.Part part) throws IOException {
+		Writer w = part.open();
+		w.write(XML_DECLARATION);
+		w.write("<worksheet xmlns=\"" + MAIN_NS + "\"><cols>");
+		for (int c = 0; c < columnChars[sheet].length; c++) {
+			// widths are in characters, with a little padding like autoSizeColumn() adds
+			w.write("<col min=\"" + (c + 1) + "\" max=\"" + (c + 1) + "\" width=\""
+					+ Math.min(columnChars[sheet][c] + 2, MAX_COLUMN_CHARS) + "\" customWidth=\"1\"/>");
+		}
+		w.write("</cols><sheetData>");
+
+		// each row is built up here, then handed to the writer in one go
+		StringBuilder xml = new StringBuilder(1024);
+		char[] out = new char[1024];
+
+		String[] headers = sheets[sheet].getHeaders();
+		xml.append("<row r=\"1\" s=\"1\" customFormat=\"1\">");
+		for (int c = 0; c < headers.length; c++) {
+			char[] chars = headers[c].toCharArray();
+			appendCell(xml, c, 1, " s=\"1\"", chars, chars.length);
+		}
+		xml.append("</row>");
+		out = write(w, xml, out);
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spools[sheet])));
+		try {
+			char[] chars = new char[256];
+			byte[] bytes = new byte[chars.length * 2];
+			for (int row = 2; row < rowCounts[sheet] + 2; row++) {
+				int cells = in.readShort();
+				xml.append("<row r=\"").append(row).append("\">");
+				for (int c = 0; c < cells; c++) {
+					int length = in.readInt();
+					if (length == -1) {
+						xml.append("<c r=\"");
+						appendCellRef(xml, c, row);
+						xml.append("\"/>");
+						continue;
+					}
+					if (length > chars.length) {
+						chars = new char[Math.max(length, chars.length * 2)];
+						bytes = new byte[chars.length * 2];
+					}
+					// chars are spooled as two bytes each, high byte first
+					in.readFully(bytes, 0, length * 2);
+					for (int ch = 0; ch < length; ch++) {
+						chars[ch] = (char) (((bytes[2 * ch] & 0xff) << 8) | (bytes[2 * ch + 1] & 0xff));
+					}
+					appendCell(xml, c, row, "", chars, length);
+				}
+				xml.append("</row>");
+				out = write(w, xml, out);
+			}
+		} finally {
+			in.close();
+		}
+
+		w.write("</sheetData></worksheet>");
+		part.finish();
+	}
+
+	/**
+	 * Writes out and clears the XML built up so far.
+	 *
+	 * @return the char buffer to use next time (it grows if the XML didn't fit)
+	 */
+	private static char[] write(Writer w, StringBuilder xml, char[] out) throws IOException {
+		if (xml.length() > out.length) {
+			out = new char[Math.max(xml.length(), out.length * 2)];
+		}
+		xml.getChars(0, xml.length(), out, 0);
+		w.write(out, 0, xml.length());
+		xml.setLength(0);
+		return out;
+	}
+
+	private static void appendCell(StringBuilder xml, int column, int row, String style, char[] chars, int length) {
+		xml.append("<c r=\"");
+		appendCellRef(xml, column, row);
+		xml.append('"').append(style).append(" t=\"inlineStr\"><is><t");
+		if (length > 0 && (isSpace(chars[0]) || isSpace(chars[length - 1]))) {
+			xml.append(" xml:space=\"preserve\"");
+		}
+		xml.append('>');
+		appendEscaped(xml, chars, length);
+		xml.append("</t></is></c>");
+	}
+
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	/**
+	 * Appends text as XML character data. Characters XML can't hold at all (control characters, lone surrogates) are
+	 * written as '?', like POI does.
+	 */
+	private static void appendEscaped(StringBuilder xml, char[] chars, int length) {
+		for (int i = 0; i < length; i++) {
+			char c = chars[i];
+			if (c == '<') {
+				xml.append("&lt;");
+			} else if (c == '>') {
+				xml.append("&gt;");
+			} else if (c == '&') {
+				xml.append("&amp;");
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars[i + 1])) {
+				xml.append(c).append(chars[++i]);
+			} else if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || Character.isSurrogate(c)
+					|| c == '\uFFFE' || c == '\uFFFF') {
+				xml.append('?');
+			} else {
+				xml.append(c);
+			}
+		}
+	}
+
+	private static String escape(String s) {
+		StringBuilder xml = new StringBuilder(s.length());
+		appendEscaped(xml, s.toCharArray(), s.length());
+		return xml.toString().replace("\"", "&quot;");
+	}
+
+	/**
+	 * Appends an A1-style cell reference.
+	 */
+	private static void appendCellRef(StringBuilder xml, int column, int row) {
+		int start = xml.length();
+		for (int c = column + 1; c > 0; c = (c - 1) / 26) {
+			xml.insert(start, (char) ('A' + (c - 1) % 26));
+		}
+		xml.append(row);
+	}
+	@Override
+	public void close() {
+		for (int i = 0; i < sheets.length; i++) {
+			if (spoolOut[i] != null) {
+				try {
+					spoolOut[i].close();
+				} catch (IOException ignored) {
+					// only closed so the file can be deleted
+				}
+			}
+			if (spools[i] != null) {
+				spools[i].delete();
+			}
+		}
+		if (xlsx != null) {
+			xlsx.close();
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package edu.nau.elc.hardlinks.rules;
+
+/**
+ * What a link classification rule decides about a URL: which tab of the report it goes on, and whether the content
+ * collection should be searched for the file it points to.
+ */
+public enum LinkCategory {
+	/**
+	 * Probably a bad link. Reported as a hard link, and the file it points to is looked up.
+	 */
+	HARD(true),
+
+	/**
+	 * Known not to matter (test images, blank pages, embedded files), but the file it points to is still looked up.
+	 */
+	IGNORED(true),
+
+	/**
+	 * Already uses the CMS's xid system, so it's probably fine. Nothing is looked up.
+	 */
+	XID(false),
+
+	/**
+	 * Probably not a problem (points outside of Bb Learn, editor images, etc.). Nothing is looked up.
+	 */
+	DISCARDED(false);
+
+	private final boolean lookUpXid;
+
+	LinkCategory(boolean lookUpXid) {
+		this.lookUpXid = lookUpXid;
+	}
+
+	/**
+	 * Whether links in this category should be matched against the content collection.
+	 *
+	 * @return true if the link's xid should be looked up
+	 */
+	public boolean isLookUpXid() {
+		return lookUpXid;
+	}
+}
@@ -0,0 +1,140 @@
+package edu.nau.elc.hardlinks.rules;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A compiled {@link LinkRules} table. Every distinct pattern in the table gets an id; the "contains" patterns are
+ * compiled into one Aho–Corasick automaton and the "starts with" patterns into one prefix trie, so a URL is scanned
+ * once (twice, counting the trie's walk down its first few chars) no matter how many rules there are. The rules are
+ * then checked in order against the set of patterns that matched, which is just a few bitmask tests each.
+ * <br><br>
+ * Classifiers don't change once compiled, so one can be shared by every course and thread.
+ */
+public class LinkClassifier {
+
+	private final LinkRules source;
+	private final int words;
+	private final PatternAutomaton contains;
+	private final PatternAutomaton prefixes;
+	private final String[] equalsPatterns; // indexed by id, null where the pattern isn't an "equals" pattern
+	private final CompiledRule[] rules;
+
+	/**
+	 * Compiles a rule table. Use {@link LinkRules#compile()}.
+	 *
+	 * @param source The rules.
+	 */
+	LinkClassifier(LinkRules source) {
+		this.source = source;
+
+		// give every distinct (kind, pattern) an id
+		HashMap<String, Integer> ids = new HashMap<>();
+		ArrayList<String> containsPatterns = new ArrayList<>();
+		ArrayList<String> prefixPatterns = new ArrayList<>();
+		ArrayList<String> equals = new ArrayList<>();
+		for (LinkRule rule : source.getRules()) {
+			for (LinkRule.Condition c : rule.getConditions()) {
+				for (String p : c.patterns) {
+					String key = c.kind + ":" + p;
+					if (!ids.containsKey(key)) {
+						ids.put(key, ids.size());
+						containsPatterns.add(c.kind == LinkRule.MatchKind.CONTAINS ? p : null);
+						prefixPatterns.add(c.kind == LinkRule.MatchKind.STARTS_WITH ? p : null);
+						equals.add(c.kind == LinkRule.MatchKind.EQUALS_IGNORE_CASE ? p : null);
+					}
+				}
+			}
+		}
+
+		words = Math.max(1, (ids.size() + 63) / 64);
+		contains = new PatternAutomaton(containsPatterns, false, words);
+		prefixes = new PatternAutomaton(prefixPatterns, true, words);
+		equalsPatterns = equals.toArray(new String[equals.size()]);
+
+		List<LinkRule> table = source.getRules();
+		rules = new CompiledRule[table.size()];
+		for (int i = 0; i < rules.length; i++) {
+			rules[i] = new CompiledRule(table.get(i), ids, words);
+		}
+	}
+
+	/**
+	 * Classifies a URL.
+	 *
+	 * @param url         The URL, already lowercased and cleaned up.
+	 * @param contentArea The content path of the item the link is in.
+	 * @return the category of the first rule the URL matches, or DISCARDED if it doesn't match any
+	 */
+	public LinkCategory classify(String url, String contentArea) {
+		long[] matched = new long[words];
+		contains.match(url, matched);
+		prefixes.match(url, matched);
+		for (int id = 0; id < equalsPatterns.length; id++) {
+			if (equalsPatterns[id] != null && url.equalsIgnoreCase(equalsPatterns[id])) {
+				matched[id >>> 6] |= 1L << id;
+			}
+		}
+
+		for (CompiledRule rule : rules) {
+			if (rule.matches(matched, contentArea)) {
+				return rule.category;
+			}
+		}
+		return LinkCategory.DISCARDED;
+	}
+
+	/**
+	 * Gets the table this classifier was compiled from.
+	 *
+	 * @return the rules
+	 */
+	public LinkRules getRules() {
+		return source;
+	}
+
+	/**
+	 * A rule's conditions as bitmasks over the pattern ids.
+	 */
+	private static class CompiledRule {
+		private final LinkCategory category;
+		private final String contentArea;
+		private final long[][] masks;
+		private final boolean[] negated;
+
+		CompiledRule(LinkRule rule, HashMap<String, Integer> ids, int words) {
+			category = rule.getCategory();
+			contentArea = rule.getContentArea();
+
+			List<LinkRule.Condition> conditions = rule.getConditions();
+			masks = new long[conditions.size()][];
+			negated = new boolean[conditions.size()];
+			for (int i = 0; i < masks.length; i++) {
+				LinkRule.Condition c = conditions.get(i);
+				masks[i] = new long[words];
+				negated[i] = c.negated;
+				for (String p : c.patterns) {
+					int id = ids.get(c.kind + ":" + p);
+					masks[i][id >>> 6] |= 1L << id;
+				}
+			}
+		}
+
+		boolean matches(long[] matched, String itemContentArea) {
+			if (contentArea != null && !contentArea.equals(itemContentArea)) {
+				return false;
+			}
+			for (int i = 0; i < masks.length; i++) {
+				boolean any = false;
+				for (int w = 0; w < matched.length && !any; w++) {
+					any = (matched[w] & masks[i][w]) != 0;
+				}
+				if (any == negated[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
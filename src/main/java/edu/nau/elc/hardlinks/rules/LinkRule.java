@@ -0,0 +1,163 @@
+package edu.nau.elc.hardlinks.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One entry in a {@link LinkRules} table: a category, and the conditions a (lowercased) URL has to meet to be put in
+ * it. A rule matches when every one of its conditions holds; a rule with no conditions matches everything.
+ * <br><br>
+ * Rules are built up by chaining, e.g.
+ * <pre>
+ * LinkRule.of(LinkCategory.XID, "points to WebDAV using an xid")
+ *         .containsAny("xid")
+ *         .containsAny("bbcswebdav")
+ * </pre>
+ */
+public class LinkRule {
+
+	/**
+	 * How a condition's patterns are matched against a URL.
+	 */
+	enum MatchKind {
+		CONTAINS, STARTS_WITH, EQUALS_IGNORE_CASE
+	}
+
+	/**
+	 * A single condition: the URL must match at least one of the patterns, or (if negated) none of them.
+	 */
+	static class Condition {
+		final MatchKind kind;
+		final boolean negated;
+		final List<String> patterns;
+
+		Condition(MatchKind kind, boolean negated, String... patterns) {
+			if (patterns.length == 0) {
+				throw new IllegalArgumentException("A condition needs at least one pattern.");
+			}
+			for (String p : patterns) {
+				if (p == null || p.isEmpty()) {
+					throw new IllegalArgumentException("Patterns can't be empty.");
+				}
+			}
+			this.kind = kind;
+			this.negated = negated;
+			this.patterns = Collections.unmodifiableList(Arrays.asList(patterns.clone()));
+		}
+	}
+
+	private final LinkCategory category;
+	private final String description;
+	private final ArrayList<Condition> conditions = new ArrayList<>();
+	private String contentArea;
+
+	private LinkRule(LinkCategory category, String description) {
+		this.category = category;
+		this.description = description;
+	}
+
+	/**
+	 * Starts a new rule.
+	 *
+	 * @param category    What matching URLs are classified as.
+	 * @param description Why, for people reading the rule table.
+	 * @return a rule with no conditions (which matches everything)
+	 */
+	public static LinkRule of(LinkCategory category, String description) {
+		return new LinkRule(category, description);
+	}
+
+	/**
+	 * Requires the URL to contain at least one of the given strings.
+	 *
+	 * @param patterns The strings to look for.
+	 * @return this rule
+	 */
+	public LinkRule containsAny(String... patterns) {
+		conditions.add(new Condition(MatchKind.CONTAINS, false, patterns));
+		return this;
+	}
+
+	/**
+	 * Requires the URL to contain none of the given strings.
+	 *
+	 * @param patterns The strings to look for.
+	 * @return this rule
+	 */
+	public LinkRule containsNone(String... patterns) {
+		conditions.add(new Condition(MatchKind.CONTAINS, true, patterns));
+		return this;
+	}
+
+	/**
+	 * Requires the URL to start with at least one of the given strings.
+	 *
+	 * @param prefixes The prefixes to look for.
+	 * @return this rule
+	 */
+	public LinkRule startsWithAny(String... prefixes) {
+		conditions.add(new Condition(MatchKind.STARTS_WITH, false, prefixes));
+		return this;
+	}
+
+	/**
+	 * Requires the URL to start with none of the given strings.
+	 *
+	 * @param prefixes The prefixes to look for.
+	 * @return this rule
+	 */
+	public LinkRule startsWithNone(String... prefixes) {
+		conditions.add(new Condition(MatchKind.STARTS_WITH, true, prefixes));
+		return this;
+	}
+
+	/**
+	 * Requires the whole URL to equal the given string, ignoring case.
+	 *
+	 * @param url The URL to compare to.
+	 * @return this rule
+	 */
+	public LinkRule equalsIgnoreCase(String url) {
+		conditions.add(new Condition(MatchKind.EQUALS_IGNORE_CASE, false, url));
+		return this;
+	}
+
+	/**
+	 * Requires the link to come from an item in the given part of the course (e.g. "Tests, Surveys &amp; Pools").
+	 *
+	 * @param contentArea The content path the item must have, compared exactly.
+	 * @return this rule
+	 */
+	public LinkRule inContentArea(String contentArea) {
+		this.contentArea = contentArea;
+		return this;
+	}
+
+	/**
+	 * Gets what URLs matching this rule are classified as.
+	 *
+	 * @return the category
+	 */
+	public LinkCategory getCategory() {
+		return category;
+	}
+
+	/**
+	 * Gets the human readable reason for the rule.
+	 *
+	 * @return the description
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	List<Condition> getConditions() {
+		return Collections.unmodifiableList(conditions);
+	}
+
+	String getContentArea() {
+		return contentArea;
+	}
+}
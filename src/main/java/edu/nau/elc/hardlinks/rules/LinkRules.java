@@ -0,0 +1,165 @@
+package edu.nau.elc.hardlinks.rules;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ordered table of {@link LinkRule}s. A URL is classified by the first rule it matches, so more specific rules go
+ * first and the table should end with a catch-all. {@link #compile()} turns the table into a {@link LinkClassifier}
+ * that checks every pattern in a single pass over the URL, so adding rules (an institution's own exclusions, for
+ * instance) doesn't make classification slower.
+ * <br><br>
+ * Rules shouldn't be changed once they've been added to a table.
+ */
+public class LinkRules {
+
+	private final List<LinkRule> rules;
+	private String fingerprint;
+
+	/**
+	 * Instantiates a new rule table.
+	 *
+	 * @param rules The rules, in the order they're checked.
+	 */
+	public LinkRules(List<LinkRule> rules) {
+		this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+	}
+
+	/**
+	 * Gets the rules this tool has always used to sort out bad links.
+	 *
+	 * @return the default rule table
+	 */
+	public static LinkRules getDefault() {
+		return new LinkRules(Arrays.asList(
+				// OWA redirect links are bad since students can't log in to OWA
+				LinkRule.of(LinkCategory.HARD, "OWA redirect link")
+						.containsAny("iris.nau.edu/owa/redir.aspx"),
+
+				// if it's a pearson test image, or it's an embedded image, or it's javascript (blech), then we can
+				// ignore it
+				LinkRule.of(LinkCategory.IGNORED, "Pearson test image")
+						.containsAny("ppg/")
+						.inContentArea("Tests, Surveys & Pools"),
+				LinkRule.of(LinkCategory.IGNORED, "blank page")
+						.equalsIgnoreCase("about:blank"),
+				LinkRule.of(LinkCategory.IGNORED, "embedded file")
+						.containsAny("@X@EmbeddedFile.location@X@"),
+
+				// if it points to WebDAV and has xid in it, we can assume it's using the CMS properly (most of the time)
+				LinkRule.of(LinkCategory.XID, "WebDAV link using an xid")
+						.containsAny("xid")
+						.containsAny("bbcswebdav"),
+
+				// if it doesn't match these criteria, we can be pretty sure it points outside of bblearn
+				LinkRule.of(LinkCategory.DISCARDED, "points outside of Bb Learn")
+						.startsWithAny("http://", "https://", "www")
+						.containsNone("bblearn", "vista"),
+
+				// these are images embedded by the TinyMCE/VTBE content editor
+				LinkRule.of(LinkCategory.DISCARDED, "content editor image")
+						.containsAny("/images/ci/"),
+
+				// if it definitely points to bb learn (wasn't filtered out above
+				// and it doesn't also point to a bunch of areas that have their links managed by B2s or content items
+				// then it's probably a copypasta link done by the instructor. BAD!
+				LinkRule.of(LinkCategory.HARD, "copied Bb Learn link")
+						.containsAny("courses", "webapp", "bbcswebdav", "webct", "vista")
+						.containsNone("/institution/",
+								"execute/viewdocumentation?",
+								"wvms-bb-bblearn",
+								"bb-collaborate-bblearn",
+								"webapps/vtbe-tinymce/tiny_mce",
+								"webapps/login",
+								"webapps/portal",
+								"bbgs-nbc-content-integration-bblearn",
+								"bb-selfpear-bblearn"),
+
+				// if it doesn't point outside of bblearn, and it doesn't explicitly point to bb learn,
+				// then it's a relative link (shame on you, instructor!), so we'll flag it as it will cause
+				// permissions issues
+				LinkRule.of(LinkCategory.HARD, "relative link")
+						.startsWithNone("https://", "http://", "javascript:", "mailto:", "#", "data:image/")
+						.containsNone("webapp", ".com", ".net", ".edu", ".org", "//cdn.slidesharecdn.com/"),
+
+				// this catch all doesn't seem to be used often, but we want to make sure we are capturing all
+				// found links just in case the detection logic has a hole in it that's not yet discovered
+				LinkRule.of(LinkCategory.DISCARDED, "anything else")
+		));
+	}
+
+	/**
+	 * Makes a new table with some rules checked before all of these ones.
+	 *
+	 * @param first The rules to check first, in order.
+	 * @return the combined table
+	 */
+	public LinkRules prepend(LinkRule... first) {
+		ArrayList<LinkRule> combined = new ArrayList<>(Arrays.asList(first));
+		combined.addAll(rules);
+		return new LinkRules(combined);
+	}
+
+	/**
+	 * Gets the rules in the order they're checked.
+	 *
+	 * @return the rules
+	 */
+	public List<LinkRule> getRules() {
+		return rules;
+	}
+
+	/**
+	 * Compiles the table for matching.
+	 *
+	 * @return a classifier for this table
+	 */
+	public LinkClassifier compile() {
+		return new LinkClassifier(this);
+	}
+
+	/**
+	 * Gets a hash of everything in the table that affects how links are classified (not the descriptions). Anything
+	 * that was worked out with one set of rules is stale if the fingerprint changes.
+	 *
+	 * @return the SHA-256 of the table, in hex
+	 */
+	public String getFingerprint() {
+		if (fingerprint == null) {
+			StringBuilder canonical = new StringBuilder();
+			for (LinkRule rule : rules) {
+				canonical.append(rule.getCategory()).append('\u0000');
+				if (rule.getContentArea() != null) {
+					canonical.append("in:").append(rule.getContentArea()).append('\u0000');
+				}
+				for (LinkRule.Condition c : rule.getConditions()) {
+					canonical.append(c.negated ? "none:" : "any:").append(c.kind);
+					for (String p : c.patterns) {
+						canonical.append('\u0000').append(p);
+					}
+					canonical.append('\u0001');
+				}
+				canonical.append('\u0002');
+			}
+
+			try {
+				byte[] hash = MessageDigest.getInstance("SHA-256")
+						.digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+				StringBuilder hex = new StringBuilder(hash.length * 2);
+				for (byte b : hash) {
+					hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+				}
+				fingerprint = hex.toString();
+			} catch (NoSuchAlgorithmException e) {
+				// every JRE has to support SHA-256
+				throw new IllegalStateException(e);
+			}
+		}
+		return fingerprint;
+	}
+}
@@ -0,0 +1,164 @@
+package edu.nau.elc.hardlinks.rules;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A set of patterns compiled into a deterministic automaton, so that a string can be checked against all of them in
+ * one pass. Unanchored automata are Aho–Corasick (every pattern that occurs anywhere in the string is found);
+ * anchored ones are a plain trie (only patterns the string starts with are found, and matching stops as soon as no
+ * pattern can match).
+ * <br><br>
+ * Each pattern has an id, and matches are reported by setting that bit in a caller-supplied bitmask.
+ */
+class PatternAutomaton {
+
+	private final int[] asciiSymbols = new int[128];
+	private final HashMap<Character, Integer> otherSymbols = new HashMap<>();
+	private final int alphabetSize;
+	private final int[] transitions; // state * alphabetSize + symbol, -1 for none (anchored only)
+	private final long[][] outputs;  // bits of the patterns that end at each state, null if none
+
+	/**
+	 * Compiles a set of patterns.
+	 *
+	 * @param patterns The patterns, indexed by id. Null entries are skipped.
+	 * @param anchored true to only match prefixes, false to match anywhere
+	 * @param words    Size of the bitmasks matches are reported in, in longs.
+	 */
+	PatternAutomaton(List<String> patterns, boolean anchored, int words) {
+		// symbol 0 is every char that isn't in any pattern
+		int symbols = 1;
+		for (String p : patterns) {
+			if (p == null) {
+				continue;
+			}
+			for (int i = 0; i < p.length(); i++) {
+				char c = p.charAt(i);
+				if (c < 128) {
+					if (asciiSymbols[c] == 0) {
+						asciiSymbols[c] = symbols++;
+					}
+				} else if (!otherSymbols.containsKey(c)) {
+					otherSymbols.put(c, symbols++);
+				}
+			}
+		}
+		alphabetSize = symbols;
+
+		// build the trie
+		ArrayList<int[]> rows = new ArrayList<>();
+		ArrayList<long[]> out = new ArrayList<>();
+		rows.add(newRow());
+		out.add(null);
+		for (int id = 0; id < patterns.size(); id++) {
+			String p = patterns.get(id);
+			if (p == null) {
+				continue;
+			}
+			int state = 0;
+			for (int i = 0; i < p.length(); i++) {
+				int sym = symbol(p.charAt(i));
+				int next = rows.get(state)[sym];
+				if (next == -1) {
+					next = rows.size();
+					rows.add(newRow());
+					out.add(null);
+					rows.get(state)[sym] = next;
+				}
+				state = next;
+			}
+			if (out.get(state) == null) {
+				out.set(state, new long[words]);
+			}
+			out.get(state)[id >>> 6] |= 1L << id;
+		}
+
+		if (!anchored) {
+			// fill in the missing transitions from the failure links, breadth first
+			int[] fail = new int[rows.size()];
+			ArrayDeque<Integer> queue = new ArrayDeque<>();
+			int[] root = rows.get(0);
+			for (int sym = 0; sym < alphabetSize; sym++) {
+				if (root[sym] == -1) {
+					root[sym] = 0;
+				} else {
+					fail[root[sym]] = 0;
+					queue.add(root[sym]);
+				}
+			}
+			while (!queue.isEmpty()) {
+				int state = queue.poll();
+				int[] row = rows.get(state);
+				long[] failOut = out.get(fail[state]);
+				if (failOut != null) {
+					// a state also matches everything its longest proper suffix matches
+					long[] own = out.get(state);
+					if (own == null) {
+						out.set(state, failOut);
+					} else {
+						own = own.clone();
+						for (int w = 0; w < words; w++) {
+							own[w] |= failOut[w];
+						}
+						out.set(state, own);
+					}
+				}
+				for (int sym = 0; sym < alphabetSize; sym++) {
+					int child = row[sym];
+					if (child == -1) {
+						row[sym] = rows.get(fail[state])[sym];
+					} else {
+						fail[child] = rows.get(fail[state])[sym];
+						queue.add(child);
+					}
+				}
+			}
+		}
+
+		transitions = new int[rows.size() * alphabetSize];
+		for (int state = 0; state < rows.size(); state++) {
+			System.arraycopy(rows.get(state), 0, transitions, state * alphabetSize, alphabetSize);
+		}
+		outputs = out.toArray(new long[out.size()][]);
+	}
+
+	private int[] newRow() {
+		int[] row = new int[alphabetSize];
+		Arrays.fill(row, -1);
+		return row;
+	}
+
+	private int symbol(char c) {
+		if (c < 128) {
+			return asciiSymbols[c];
+		}
+		Integer sym = otherSymbols.get(c);
+		return sym == null ? 0 : sym;
+	}
+
+	/**
+	 * Finds every pattern in a string.
+	 *
+	 * @param s       The string to check.
+	 * @param matched The bitmask to set the ids of matching patterns in.
+	 */
+	void match(CharSequence s, long[] matched) {
+		int state = 0;
+		for (int i = 0; i < s.length(); i++) {
+			state = transitions[state * alphabetSize + symbol(s.charAt(i))];
+			if (state == -1) {
+				return;
+			}
+			long[] out = outputs[state];
+			if (out != null) {
+				for (int w = 0; w < out.length; w++) {
+					matched[w] |= out[w];
+				}
+			}
+		}
+	}
+}
@@ -5,7 +5,9 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
- * This parses XML files that hold course content items to extract their HTML/text contents.
+ * This parses XML files that hold course content items to extract their HTML/text contents. SAX hands us the text in
+ * chunks (many of them for big test pools), so it's collected in a single buffer that's cleared, not reallocated,
+ * at the start of each document. An instance can be reused for any number of parses, one at a time.
  */
 public class HardlinkHandler extends DefaultHandler {
 
@@ -15,7 +17,7 @@ public class HardlinkHandler extends DefaultHandler {
     private boolean istext = false;
     private boolean istitle = false;
     private boolean readingAssessType = false;
-    private String text = "";
+    private final StringBuilder text = new StringBuilder();
     private String title = "";
     private String assessType = "";
 
@@ -23,13 +25,26 @@ public class HardlinkHandler extends DefaultHandler {
     public void characters(char ch[], int start, int length)
             throws SAXException {
         if (istext) {
-            text += new String(ch, start, length);
+            text.append(ch, start, length);
         }
         if (readingAssessType) {
             assessType = new String(ch, start, length);
         }
     }
 
+	@Override
+    public void startDocument() {
+        isAssessment = false;
+        isAnnouncement = false;
+        isDiscussion = false;
+        istext = false;
+        istitle = false;
+        readingAssessType = false;
+        text.setLength(0);
+        title = "";
+        assessType = "";
+    }
+
 	@Override
     public void endDocument() {
     }
@@ -63,6 +78,16 @@ public class HardlinkHandler extends DefaultHandler {
 	 * @return the text of the course content item.
 	 */
 	public String getText() {
+		return getTextBuffer().toString();
+    }
+
+	/**
+	 * Gets the text content of the content item without copying it. The buffer is only valid until the next parse
+	 * with this handler.
+	 *
+	 * @return the text of the course content item.
+	 */
+	public CharSequence getTextBuffer() {
 		if (isDiscussion || isAnnouncement) return "";
 		return this.text;
     }
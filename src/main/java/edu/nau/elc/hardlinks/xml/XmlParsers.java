@@ -0,0 +1,125 @@
+package edu.nau.elc.hardlinks.xml;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.StringReader;
+
+/**
+ * Hands out XML parsers that are safe to use from any thread. SAX parsers and DOM builders aren't thread-safe, so each
+ * thread gets its own, created the first time it asks and reused (after a reset) from then on; a course processor
+ * running on its own thread never shares a parser with another.
+ * <br><br>
+ * Every parser is set up for speed and safety on the files in a course export: non-validating, namespace-unaware, and
+ * never loading an external DTD or entity (which can stall for a long time trying to resolve a URL, or read files it
+ * shouldn't).
+ */
+public final class XmlParsers {
+
+	private static final SAXParserFactory saxFactory = SAXParserFactory.newInstance();
+	private static final DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+	private static final XMLInputFactory staxFactory = XMLInputFactory.newInstance();
+
+	private static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+	private static final String EXTERNAL_GENERAL_ENTITIES = "http://xml.org/sax/features/external-general-entities";
+	private static final String EXTERNAL_PARAMETER_ENTITIES = "http://xml.org/sax/features/external-parameter-entities";
+
+	static {
+		saxFactory.setValidating(false);
+		saxFactory.setNamespaceAware(false);
+		domFactory.setValidating(false);
+		domFactory.setNamespaceAware(false);
+		domFactory.setXIncludeAware(false);
+		domFactory.setExpandEntityReferences(false);
+
+		staxFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		staxFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+		try {
+			saxFactory.setFeature(LOAD_EXTERNAL_DTD, false);
+			saxFactory.setFeature(EXTERNAL_GENERAL_ENTITIES, false);
+			saxFactory.setFeature(EXTERNAL_PARAMETER_ENTITIES, false);
+			domFactory.setFeature(LOAD_EXTERNAL_DTD, false);
+			domFactory.setFeature(EXTERNAL_GENERAL_ENTITIES, false);
+			domFactory.setFeature(EXTERNAL_PARAMETER_ENTITIES, false);
+		} catch (ParserConfigurationException | SAXException e) {
+			// every parser that ships with the JDK supports these, so this only happens if another one has been
+			// plugged in; the entity resolver below still keeps it from fetching anything
+		}
+	}
+
+	private static final ThreadLocal<SAXParser> saxParsers = new ThreadLocal<>();
+	private static final ThreadLocal<DocumentBuilder> documentBuilders = new ThreadLocal<>();
+
+	private XmlParsers() {
+	}
+
+	/**
+	 * Gets this thread's SAX parser, reset and ready to parse. Don't hold on to it or pass it to another thread.
+	 *
+	 * @return the parser
+	 * @throws SAXException If a parser can't be configured.
+	 */
+	public static SAXParser getSAXParser() throws SAXException {
+		SAXParser parser = saxParsers.get();
+		if (parser == null) {
+			try {
+				parser = saxFactory.newSAXParser();
+			} catch (ParserConfigurationException pce) {
+				throw new SAXException(pce);
+			}
+			saxParsers.set(parser);
+		} else {
+			parser.reset();
+		}
+		return parser;
+	}
+
+	/**
+	 * Gets this thread's DOM builder, reset and ready to parse. Don't hold on to it or pass it to another thread.
+	 *
+	 * @return the document builder
+	 * @throws SAXException If a builder can't be configured.
+	 */
+	public static DocumentBuilder getDocumentBuilder() throws SAXException {
+		DocumentBuilder builder = documentBuilders.get();
+		if (builder == null) {
+			try {
+				builder = domFactory.newDocumentBuilder();
+			} catch (ParserConfigurationException pce) {
+				throw new SAXException(pce);
+			}
+			documentBuilders.set(builder);
+		} else {
+			builder.reset();
+		}
+		// reset() clears the resolver, so it's set every time
+		builder.setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
+		return builder;
+	}
+
+	/**
+	 * Starts streaming through a document with StAX. Stream readers aren't reused, so this can be called from any
+	 * thread.
+	 *
+	 * @param in The XML to read. Isn't closed by the reader.
+	 * @return a new stream reader
+	 * @throws SAXException If the reader can't be created.
+	 */
+	public static XMLStreamReader newStreamReader(InputStream in) throws SAXException {
+		try {
+			return staxFactory.createXMLStreamReader(in);
+		} catch (XMLStreamException e) {
+			throw new SAXException(e);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package edu.nau.elc.hardlinks.archive;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks how a path in the ZIP maps to an entry's path, name and xid: xid suffixes come off every segment, and only
+ * the one on the filename is kept as the entry's xid.
+ */
+public class ArchiveEntryTest {
+
+	@Test
+	public void withoutASuffix() {
+		ArchiveEntry entry = ArchiveEntry.fromPhysicalPath("csfiles/home_dir/Week 1/syllabus.pdf", 1234, 5678);
+		assertEntry(entry, "csfiles/home_dir/Week 1/syllabus.pdf", "syllabus.pdf", null);
+		assertEquals("csfiles/home_dir/Week 1/syllabus.pdf", entry.getPhysicalPath());
+		assertEquals(1234, entry.getSize());
+		assertEquals(5678, entry.getCrc());
+
+		assertEntry(ArchiveEntry.fromPhysicalPath("res00001.dat", -1, -1), "res00001.dat", "res00001.dat", null);
+	}
+
+	@Test
+	public void suffixBeforeTheExtension() {
+		ArchiveEntry entry = ArchiveEntry.fromPhysicalPath("csfiles/home_dir/syllabus__xid-1234567_1.pdf", -1, -1);
+		assertEntry(entry, "csfiles/home_dir/syllabus.pdf", "syllabus.pdf", "1234567_1");
+		assertEquals("csfiles/home_dir/syllabus__xid-1234567_1.pdf", entry.getPhysicalPath());
+	}
+
+	@Test
+	public void suffixAfterTheExtension() {
+		// a file's descriptor is named after the file with its suffix, plus .xml
+		assertEntry(ArchiveEntry.fromPhysicalPath("csfiles/home_dir/notes.docx__xid-1000002_1.xml", -1, -1),
+				"csfiles/home_dir/notes.docx.xml", "notes.docx.xml", "1000002_1");
+		assertEntry(ArchiveEntry.fromPhysicalPath("csfiles/home_dir/README__xid-10000021_2", -1, -1),
+				"csfiles/home_dir/README", "README", "10000021_2");
+	}
+
+	@Test
+	public void suffixOnAFolderIsntTheFilesXid() {
+		assertEntry(ArchiveEntry.fromPhysicalPath("csfiles/home_dir/Week 1__xid-1000001_1/syllabus.pdf.xml", -1, -1),
+				"csfiles/home_dir/Week 1/syllabus.pdf.xml", "syllabus.pdf.xml", null);
+		assertEntry(ArchiveEntry.fromPhysicalPath("csfiles/home_dir/Week 1__xid-1000001_1/syllabus__xid-1000003_1.pdf",
+				-1, -1), "csfiles/home_dir/Week 1/syllabus.pdf", "syllabus.pdf", "1000003_1");
+	}
+
+	@Test
+	public void somethingLikeASuffixIsLeftAlone() {
+		// too few digits to be an xid
+		assertEntry(ArchiveEntry.fromPhysicalPath("csfiles/home_dir/odd__xid-12345_1.pdf", -1, -1),
+				"csfiles/home_dir/odd__xid-12345_1.pdf", "odd__xid-12345_1.pdf", null);
+	}
+
+	private static void assertEntry(ArchiveEntry entry, String path, String name, String xid) {
+		assertEquals(path, entry.getPath());
+		assertEquals(name, entry.getName());
+		assertEquals(xid, entry.getXid());
+	}
+}
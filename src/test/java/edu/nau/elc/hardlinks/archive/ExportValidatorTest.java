@@ -0,0 +1,132 @@
+package edu.nau.elc.hardlinks.archive;
+
+import edu.nau.elc.hardlinks.generator.ExportGenerator;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that the validator passes a good export and turns down the kinds of broken ones it's meant to catch.
+ */
+public class ExportValidatorTest {
+
+	private static final String MANIFEST = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><manifest identifier=\"man00001\">"
+			+ "<organizations/><resources/></manifest>";
+
+	@Rule
+	public final TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void goodExportPasses() throws IOException {
+		ExportGenerator generator = new ExportGenerator();
+		generator.setItems(100);
+		File export = temp.newFile("ExportFile_TEST_1.zip");
+		generator.write(export);
+		new ExportValidator().validate(export);
+	}
+
+	@Test
+	public void truncatedExportFails() throws IOException {
+		ExportGenerator generator = new ExportGenerator();
+		generator.setItems(100);
+		ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		generator.write(zip);
+		byte[] bytes = zip.toByteArray();
+		assertCorrupt(write(Arrays.copyOf(bytes, bytes.length / 2)), "");
+	}
+
+	@Test
+	public void damagedManifestFailsItsCrc() throws IOException {
+		byte[] bytes = zip(true);
+		// stored, so the manifest's text is in the file as it is; one changed letter keeps its size
+		int at = indexOf(bytes, "organizations".getBytes(StandardCharsets.US_ASCII));
+		bytes[at] = 'O';
+		assertCorrupt(write(bytes), "fails its CRC check");
+	}
+
+	@Test
+	public void missingManifestFails() throws IOException {
+		assertCorrupt(write(zip(false)), "imsmanifest.xml is missing");
+	}
+
+	@Test
+	public void notAZipFails() throws IOException {
+		assertCorrupt(write(MANIFEST.getBytes(StandardCharsets.UTF_8)), "isn't a readable ZIP file");
+	}
+
+	@Test
+	public void missingFileIsntCorrupt() {
+		try {
+			new ExportValidator().validate(new File(temp.getRoot(), "ExportFile_NONE_1.zip"));
+			fail("a missing export shouldn't pass");
+		} catch (IOException e) {
+			assertFalse(e instanceof CorruptExportException);
+		}
+	}
+
+	private static void assertCorrupt(File export, String message) throws IOException {
+		try {
+			new ExportValidator().validate(export);
+			fail(export.getName() + " should have failed");
+		} catch (CorruptExportException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(message));
+		}
+	}
+
+	private File write(byte[] bytes) throws IOException {
+		File export = temp.newFile();
+		FileUtils.writeByteArrayToFile(export, bytes);
+		return export;
+	}
+
+	/**
+	 * Makes a tiny export with its entries stored rather than deflated.
+	 */
+	private static byte[] zip(boolean withManifest) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+			if (withManifest) {
+				stored(zip, "imsmanifest.xml", MANIFEST);
+			}
+			stored(zip, "res00001.dat", "<CONTENT id=\"_1_1\"><TITLE value=\"Syllabus\"/></CONTENT>");
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void stored(ZipOutputStream zip, String name, String text) throws IOException {
+		byte[] content = text.getBytes(StandardCharsets.UTF_8);
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(content.length);
+		entry.setCompressedSize(content.length);
+		entry.setCrc(crc.getValue());
+		zip.putNextEntry(entry);
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+	private static int indexOf(byte[] bytes, byte[] part) {
+		for (int i = 0; i + part.length <= bytes.length; i++) {
+			if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + part.length), part)) {
+				return i;
+			}
+		}
+		throw new AssertionError("not found");
+	}
+}
@@ -0,0 +1,76 @@
+package edu.nau.elc.hardlinks.archive;
+
+import edu.nau.elc.hardlinks.generator.ExportGenerator;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that extracted exports don't leave their temp directories behind, whether or not they could be extracted.
+ */
+public class ExtractedCourseArchiveTest {
+
+	@Rule
+	public final TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void closeDeletesTheDirectory() throws IOException {
+		Set<String> before = extractDirectories();
+		ExtractedCourseArchive archive = new ExtractedCourseArchive(export(false));
+		assertFalse(archive.getInventory().getFilesOfExt(".dat").isEmpty());
+		archive.close();
+		assertEquals(before, extractDirectories());
+	}
+
+	@Test
+	public void failedExtractionDeletesTheDirectory() throws IOException {
+		Set<String> before = extractDirectories();
+		try {
+			new ExtractedCourseArchive(export(true));
+			fail("a truncated export shouldn't extract");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals(before, extractDirectories());
+	}
+
+	/**
+	 * Writes a made-up export, or the first half of one.
+	 */
+	private File export(boolean truncated) throws IOException {
+		ExportGenerator generator = new ExportGenerator();
+		generator.setItems(200);
+		ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		generator.write(zip);
+
+		byte[] bytes = zip.toByteArray();
+		File export = temp.newFile("ExportFile_TEST_1.zip");
+		FileUtils.writeByteArrayToFile(export, truncated ? Arrays.copyOf(bytes, bytes.length / 2) : bytes);
+		return export;
+	}
+
+	private static Set<String> extractDirectories() {
+		HashSet<String> names = new HashSet<>();
+		String[] all = new File(System.getProperty("java.io.tmpdir")).list();
+		if (all != null) {
+			for (String name : all) {
+				if (name.startsWith("restructure_")) {
+					names.add(name);
+				}
+			}
+		}
+		return names;
+	}
+}
@@ -0,0 +1,230 @@
+package edu.nau.elc.hardlinks.cache;
+
+import edu.nau.elc.hardlinks.rules.LinkCategory;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the cache's file: results survive a restart, the least recently used ones are dropped over the cap, the file
+ * is compacted before it gets past twice the cap, other rules throw it away, and a damaged or cut-off file only loses
+ * the records that are damaged.
+ */
+public class ResultCacheTest {
+
+	private static final String RULES = "rules-1";
+	private static final long SIZE = 1234;
+
+	@Rule
+	public final TemporaryFolder temp = new TemporaryFolder();
+
+	private File directory;
+	private File dataFile;
+
+	// every result made by result() is the same size on disk
+	private int recordLength;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = temp.newFolder();
+		dataFile = new File(directory, "results.bin");
+		recordLength = 8 + 17 + result(0).toBytes().length;
+	}
+
+	@Test
+	public void resultsSurviveARestart() throws IOException {
+		try (ResultCache cache = open(ResultCache.DEFAULT_MAX_BYTES)) {
+			for (int i = 0; i < 10; i++) {
+				cache.put(i, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING, result(i));
+			}
+		}
+		try (ResultCache cache = open(ResultCache.DEFAULT_MAX_BYTES)) {
+			for (int i = 0; i < 10; i++) {
+				assertSame(result(i), cache.get(i, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING));
+			}
+			assertNull("a different size is a different file", cache.get(0, SIZE + 1,
+					ResultCache.Kind.CONTENT_ITEM_STREAMING));
+		}
+	}
+
+	@Test
+	public void kindsAreKeptApart() throws IOException {
+		try (ResultCache cache = open(ResultCache.DEFAULT_MAX_BYTES)) {
+			cache.put(1, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING, result(1));
+			cache.put(1, SIZE, ResultCache.Kind.HTML_JSOUP, result(2));
+			for (ResultCache.Kind kind : ResultCache.Kind.values()) {
+				if (kind != ResultCache.Kind.CONTENT_ITEM_STREAMING && kind != ResultCache.Kind.HTML_JSOUP) {
+					assertFalse(kind.name(), cache.contains(1, SIZE, kind));
+				}
+			}
+			assertSame(result(1), cache.get(1, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING));
+			assertSame(result(2), cache.get(1, SIZE, ResultCache.Kind.HTML_JSOUP));
+		}
+	}
+
+	@Test
+	public void leastRecentlyUsedAreDroppedOverTheCap() throws IOException {
+		try (ResultCache cache = open(10L * recordLength)) {
+			for (int i = 0; i < 10; i++) {
+				cache.put(i, SIZE, ResultCache.Kind.HTML_STREAMING, result(i));
+			}
+			// right at the cap, so nothing's gone yet; using the first makes it the most recent
+			assertNotNull(cache.get(0, SIZE, ResultCache.Kind.HTML_STREAMING));
+
+			// over the cap: down to 3/4 of it, least recently used first
+			cache.put(10, SIZE, ResultCache.Kind.HTML_STREAMING, result(10));
+			assertEquals(Arrays.asList(0, 5, 6, 7, 8, 9, 10), cached(cache, 11));
+		}
+		try (ResultCache cache = open(10L * recordLength)) {
+			assertEquals(Arrays.asList(0, 5, 6, 7, 8, 9, 10), cached(cache, 11));
+		}
+		assertEquals(headerLength() + 7L * recordLength, dataFile.length());
+	}
+
+	@Test
+	public void fileIsCompactedPastTwiceTheCap() throws IOException {
+		long cap = 4L * recordLength;
+		try (ResultCache cache = open(cap)) {
+			// the same file over and over: one live result, and the old ones piling up in the file
+			for (int i = 0; i < 50; i++) {
+				cache.put(7, SIZE, ResultCache.Kind.CONTENT_ITEM_JSOUP, result(i));
+				assertTrue("grew to " + dataFile.length(), dataFile.length() <= headerLength() + 2 * cap);
+			}
+			assertSame(result(49), cache.get(7, SIZE, ResultCache.Kind.CONTENT_ITEM_JSOUP));
+		}
+		assertEquals(headerLength() + recordLength, dataFile.length());
+	}
+
+	@Test
+	public void otherRulesEmptyTheCache() throws IOException {
+		try (ResultCache cache = open(ResultCache.DEFAULT_MAX_BYTES)) {
+			cache.put(1, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING, result(1));
+		}
+		try (ResultCache cache = new ResultCache(directory, "rules-2", ResultCache.DEFAULT_MAX_BYTES)) {
+			assertNull(cache.get(1, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING));
+			cache.put(2, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING, result(2));
+		}
+		// and back again: the first rules' results are gone for good
+		try (ResultCache cache = open(ResultCache.DEFAULT_MAX_BYTES)) {
+			assertEquals(0, cached(cache, 3).size());
+		}
+	}
+
+	@Test
+	public void cutOffRecordIsDropped() throws IOException {
+		try (ResultCache cache = open(ResultCache.DEFAULT_MAX_BYTES)) {
+			for (int i = 0; i < 3; i++) {
+				cache.put(i, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING, result(i));
+			}
+		}
+		// as if the run had been killed in the middle of writing the last one
+		try (RandomAccessFile file = new RandomAccessFile(dataFile, "rw")) {
+			file.setLength(file.length() - 5);
+		}
+
+		try (ResultCache cache = open(ResultCache.DEFAULT_MAX_BYTES)) {
+			assertEquals(Arrays.asList(0, 1), cached(cache, 3));
+			assertEquals("the partial record is cut off", headerLength() + 2L * recordLength, dataFile.length());
+			cache.put(2, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING, result(2));
+		}
+		try (ResultCache cache = open(ResultCache.DEFAULT_MAX_BYTES)) {
+			assertSame(result(2), cache.get(2, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING));
+		}
+	}
+
+	@Test
+	public void damagedRecordIsDropped() throws IOException {
+		try (ResultCache cache = open(ResultCache.DEFAULT_MAX_BYTES)) {
+			for (int i = 0; i < 3; i++) {
+				cache.put(i, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING, result(i));
+			}
+		}
+		byte[] bytes = FileUtils.readFileToByteArray(dataFile);
+		byte[] url = "http://www.example.com/page00001".getBytes(StandardCharsets.UTF_8);
+		bytes[indexOf(bytes, url) + url.length - 1] = '9';
+		FileUtils.writeByteArrayToFile(dataFile, bytes);
+
+		try (ResultCache cache = open(ResultCache.DEFAULT_MAX_BYTES)) {
+			assertTrue(cache.contains(1, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING));
+			assertNull("fails its checksum", cache.get(1, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING));
+			assertFalse(cache.contains(1, SIZE, ResultCache.Kind.CONTENT_ITEM_STREAMING));
+			assertEquals(Arrays.asList(0, 2), cached(cache, 3));
+		}
+	}
+
+	private ResultCache open(long maxBytes) throws IOException {
+		return new ResultCache(directory, RULES, maxBytes);
+	}
+
+	/**
+	 * The magic number, then the fingerprint as writeUTF() writes it.
+	 */
+	private static long headerLength() {
+		return 4 + 2 + RULES.length();
+	}
+
+	/**
+	 * Which of results 0 to count - 1 are cached, under any kind, after checking each one is intact.
+	 */
+	private static List<Integer> cached(ResultCache cache, int count) throws IOException {
+		ArrayList<Integer> found = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			for (ResultCache.Kind kind : ResultCache.Kind.values()) {
+				ItemResult result = cache.get(i, SIZE, kind);
+				if (result != null) {
+					assertSame(result(i), result);
+					found.add(i);
+				}
+			}
+		}
+		return found;
+	}
+
+	private static ItemResult result(int i) {
+		ArrayList<ItemResult.ClassifiedLink> links = new ArrayList<>();
+		links.add(new ItemResult.ClassifiedLink(LinkCategory.HARD, String.format("http://www.example.com/page%05d", i),
+				"text: page " + String.format("%05d", i)));
+		links.add(new ItemResult.ClassifiedLink(LinkCategory.XID, "@X@EmbeddedFile.requestUrlStub@X@bbcswebdav/xid-1_1",
+				"alt: "));
+		return new ItemResult(String.format("Item %05d", i), "Week 1/Readings", links);
+	}
+
+	private static void assertSame(ItemResult expected, ItemResult actual) {
+		assertNotNull(actual);
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getContentPath(), actual.getContentPath());
+		assertEquals(expected.getLinks().size(), actual.getLinks().size());
+		for (int i = 0; i < expected.getLinks().size(); i++) {
+			ItemResult.ClassifiedLink e = expected.getLinks().get(i);
+			ItemResult.ClassifiedLink a = actual.getLinks().get(i);
+			assertEquals(e.getCategory(), a.getCategory());
+			assertEquals(e.getUrl(), a.getUrl());
+			assertEquals(e.getText(), a.getText());
+		}
+	}
+
+	private static int indexOf(byte[] bytes, byte[] part) {
+		for (int i = 0; i + part.length <= bytes.length; i++) {
+			if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + part.length), part)) {
+				return i;
+			}
+		}
+		throw new AssertionError("not found");
+	}
+}
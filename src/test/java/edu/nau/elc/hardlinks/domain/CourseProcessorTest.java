@@ -0,0 +1,195 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.cache.ResultCache;
+import edu.nau.elc.hardlinks.generator.ExportGenerator;
+import edu.nau.elc.hardlinks.html.HtmlMode;
+import edu.nau.elc.hardlinks.rules.LinkRules;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs a made-up course all the way through, and checks that analyzing its items in parallel doesn't change the
+ * report. The report writer is byte-stable, so the same rows in the same order make the same file. Also checks that
+ * cached results are only reused by the HTML mode that made them, that a course can be aborted from several
+ * threads at once, and that a file deployed by two items is reported.
+ */
+public class CourseProcessorTest {
+
+	@Rule
+	public final TemporaryFolder temp = new TemporaryFolder();
+
+	private File export;
+
+	@Before
+	public void generateExport() throws IOException {
+		ExportGenerator generator = new ExportGenerator();
+		generator.setSeed(2015);
+		generator.setItems(300);
+		generator.setHtmlFiles(40);
+		generator.setMalformedPercent(20);
+		export = new File(temp.getRoot(), "ExportFile_TEST_1.zip");
+		generator.write(export);
+	}
+
+	@Test
+	public void parallelAnalysisWritesTheSameReportAsSerial() throws Exception {
+		byte[] serial = report(1);
+		assertTrue("the report should have links in it", serial.length > 10000);
+		for (int threads : new int[]{2, 4, 8}) {
+			assertArrayEquals(threads + " threads", serial, report(threads));
+		}
+	}
+
+	@Test
+	public void onlyTheFirstAbortCounts() throws Exception {
+		List<String> messages = Collections.synchronizedList(new ArrayList<>());
+		CourseProcessor processor = new CourseProcessor(export, messages::add);
+
+		// a watchdog and a user cancelling at the same moment, many times over
+		CountDownLatch go = new CountDownLatch(1);
+		ArrayList<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			String reason = "reason " + i;
+			Thread t = new Thread(() -> {
+				try {
+					go.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				processor.abort(reason);
+			});
+			t.start();
+			threads.add(t);
+		}
+		go.countDown();
+		for (Thread t : threads) {
+			t.join();
+		}
+
+		assertEquals(1, messages.size());
+		assertEquals("ERROR: aborting: " + processor.getAbortReason(), messages.get(0));
+		assertTrue(processor.getNanosSinceAbort() >= 0);
+
+		try {
+			processor.call();
+		} catch (CourseAbortedException e) {
+			assertEquals(processor.getAbortReason(), e.getMessage());
+			return;
+		}
+		throw new AssertionError("an aborted course shouldn't run");
+	}
+
+	@Test
+	public void cachedResultsAreOnlyReusedInTheSameHtmlMode() throws Exception {
+		try (ResultCache cache = new ResultCache(temp.newFolder(), LinkRules.getDefault().getFingerprint(),
+				ResultCache.DEFAULT_MAX_BYTES)) {
+			assertFalse(reusedFromCache(HtmlMode.STREAMING, cache));
+			assertTrue(reusedFromCache(HtmlMode.STREAMING, cache));
+			assertFalse("the tokenizer's results aren't Jsoup's", reusedFromCache(HtmlMode.JSOUP, cache));
+			assertTrue(reusedFromCache(HtmlMode.JSOUP, cache));
+			assertFalse("VERIFY has to parse everything", reusedFromCache(HtmlMode.VERIFY, cache));
+		}
+	}
+
+	@Test
+	public void fileDeployedTwiceIsReported() throws Exception {
+		File twice = new File(temp.getRoot(), "ExportFile_TWICE_1.zip");
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(twice))) {
+			write(zip, "imsmanifest.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?><manifest identifier=\"man00001\">"
+					+ "<organizations default=\"toc00001\"><organization identifier=\"toc00001\"><item "
+					+ "identifier=\"itm0\" identifierref=\"toc1\"><title>--TOP--</title><item identifier=\"itm1\">"
+					+ "<title>Content Area 1</title><item identifier=\"itm2\" identifierref=\"res00001\"><title>"
+					+ "Syllabus</title></item><item identifier=\"itm3\" identifierref=\"res00002\"><title>Syllabus "
+					+ "again</title></item><item identifier=\"itm4\" identifierref=\"res00003\"><title>Schedule"
+					+ "</title></item></item></item></organization></organizations><resources/></manifest>");
+			write(zip, "res00001.dat", fileItem("_1_1", "syllabus.pdf"));
+			write(zip, "res00002.dat", fileItem("_2_1", "syllabus.pdf"));
+			write(zip, "res00003.dat", fileItem("_3_1", "schedule.pdf"));
+			for (String name : new String[]{"syllabus", "schedule"}) {
+				String physical = CourseProcessor.CC_BASE_DIR + "/" + name + "__xid-100000" + name.length() + "_1.pdf";
+				write(zip, physical, "binary content of " + name + ".pdf");
+				write(zip, physical + ".xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?><cms_resource><identifier>"
+						+ "100000" + name.length() + "_1#/courses/1157-NAU00-ENG-105-SEC801-1234.NAU-PSSIS/" + name
+						+ ".pdf</identifier></cms_resource>");
+			}
+		}
+
+		List<String> messages = Collections.synchronizedList(new ArrayList<>());
+		CourseProcessor processor = new CourseProcessor(twice, messages::add);
+		processor.setOutputDirectory(temp.newFolder());
+		processor.call();
+
+		List<String> warnings = new ArrayList<>();
+		for (String message : messages) {
+			if (message.startsWith("WARNING: ")) {
+				warnings.add(message);
+			}
+		}
+		assertEquals(Collections.singletonList("WARNING: syllabus.pdf is deployed by both res00001.dat and "
+				+ "res00002.dat, using res00001.dat"), warnings);
+	}
+
+	private static String fileItem(String id, String linkName) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><CONTENT id=\"" + id + "\"><TITLE value=\"" + linkName
+				+ "\"/><BODY><TEXT></TEXT><TYPE value=\"H\"/></BODY><CONTENTHANDLER value=\"resource/x-bb-file\"/>"
+				+ "<FILES><FILE id=\"" + id + "\"><NAME>" + linkName + "</NAME><LINKNAME value=\"" + linkName
+				+ "\"/></FILE></FILES></CONTENT>";
+	}
+
+	private static void write(ZipOutputStream zip, String name, String text) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(text.getBytes(StandardCharsets.UTF_8));
+		zip.closeEntry();
+	}
+
+	/**
+	 * Processes the export with a result cache, and says whether it reused anything from it.
+	 */
+	private boolean reusedFromCache(HtmlMode htmlMode, ResultCache cache) throws Exception {
+		List<String> messages = Collections.synchronizedList(new ArrayList<>());
+		CourseProcessor processor = new CourseProcessor(export, messages::add);
+		processor.setOutputDirectory(temp.newFolder());
+		processor.setHtmlMode(htmlMode);
+		processor.setResultCache(cache);
+		processor.call();
+		for (String message : messages) {
+			if (message.startsWith("Reused ")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Processes the export and gets the report it wrote.
+	 */
+	private byte[] report(int analysisThreads) throws Exception {
+		File out = temp.newFolder();
+		CourseProcessor processor = new CourseProcessor(export, message -> {
+		});
+		processor.setOutputDirectory(out);
+		processor.setAnalysisThreads(analysisThreads);
+		processor.setReportThreads(2);
+		processor.call();
+		return FileUtils.readFileToByteArray(new File(out, "triage_TEST.xlsx"));
+	}
+}
@@ -0,0 +1,81 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.profiling.Phase;
+import edu.nau.elc.hardlinks.profiling.PhaseBudgets;
+import edu.nau.elc.hardlinks.profiling.PhaseSpan;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that the watchdog aborts a course whose phase goes over its budget, and leaves one that doesn't alone. The
+ * phases are started by hand, so nothing depends on how fast the course itself would run.
+ */
+public class CourseWatchdogTest {
+
+	@Rule
+	public final TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void overBudgetPhaseAbortsTheCourse() throws Exception {
+		PhaseBudgets budgets = new PhaseBudgets();
+		budgets.setBudget(Phase.OPEN_EXPORT, 1, TimeUnit.MILLISECONDS);
+		List<String> messages = Collections.synchronizedList(new ArrayList<>());
+		CourseProcessor course = new CourseProcessor(temp.newFile("ExportFile_TEST_1.zip"), messages::add);
+
+		try (CourseWatchdog watchdog = new CourseWatchdog(budgets)) {
+			watchdog.watch(course);
+			PhaseSpan span = course.getPhaseTimings().start(Phase.OPEN_EXPORT, "ExportFile_TEST_1.zip");
+			try {
+				long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+				while (!course.isAborted() && System.nanoTime() < deadline) {
+					Thread.sleep(50);
+				}
+			} finally {
+				span.end(0, 0);
+			}
+		}
+
+		assertTrue("the watchdog should have aborted the course", course.isAborted());
+		assertEquals(Phase.OPEN_EXPORT.getLabel() + " took over 0 s on ExportFile_TEST_1.zip", course.getAbortReason());
+		assertEquals(Collections.singletonList("ERROR: aborting: " + course.getAbortReason()), messages);
+		try {
+			course.call();
+			fail("an aborted course shouldn't run");
+		} catch (CourseAbortedException e) {
+			assertEquals(course.getAbortReason(), e.getMessage());
+		}
+	}
+
+	@Test
+	public void phaseWithinBudgetIsLeftAlone() throws Exception {
+		PhaseBudgets budgets = new PhaseBudgets();
+		budgets.setBudget(Phase.PARSE_DAT, 1, TimeUnit.MINUTES);
+		budgets.setBudget(Phase.RESOLVE_XIDS, 0, TimeUnit.SECONDS); // no limit
+		CourseProcessor course = new CourseProcessor(new File(temp.getRoot(), "ExportFile_TEST_1.zip"), message -> {
+		});
+
+		try (CourseWatchdog watchdog = new CourseWatchdog(budgets)) {
+			watchdog.watch(course);
+			PhaseSpan parse = course.getPhaseTimings().start(Phase.PARSE_DAT, "res00001.dat");
+			PhaseSpan resolve = course.getPhaseTimings().start(Phase.RESOLVE_XIDS, "res00001.dat");
+			// long enough for a couple of checks
+			Thread.sleep(2500);
+			resolve.end(0, 0);
+			parse.end(0, 0);
+		}
+
+		assertFalse(course.getAbortReason(), course.isAborted());
+	}
+}
@@ -0,0 +1,142 @@
+package edu.nau.elc.hardlinks.domain;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the banded, cut-off edit distance against the plain one it replaced, and that offering files one at a time
+ * picks the same one the old loop over the candidates did, ties included. The old code is kept here to check against.
+ */
+public class FuzzyPathMatcherTest {
+
+	private static final String COURSE = "/courses/1157-NAU00-ENG-105-SEC801-1234.NAU-PSSIS/";
+
+	@Test
+	public void distanceMatchesTheOldOneWithinTheLimit() {
+		Random random = new Random(18);
+		for (int n = 0; n < 100000; n++) {
+			String url = madeUp(random);
+			String path = random.nextInt(4) == 0 ? url : madeUp(random);
+			FuzzyPathMatcher matcher = new FuzzyPathMatcher(url);
+			int expected = oldLevDist(url.replace(" ", "%20"), path);
+
+			int limit = random.nextInt(4) == 0 ? Integer.MAX_VALUE - 1 : random.nextInt(25);
+			int dist = matcher.levDist(path, limit);
+			if (expected <= limit) {
+				assertEquals(url + " / " + path + " within " + limit, expected, dist);
+			} else {
+				assertTrue(url + " / " + path + " within " + limit + ": " + dist, dist > limit);
+			}
+		}
+	}
+
+	@Test
+	public void distanceEdgeCases() {
+		FuzzyPathMatcher empty = new FuzzyPathMatcher("");
+		assertEquals(0, empty.levDist("", 0));
+		assertEquals(3, empty.levDist("abc", 3));
+		assertEquals(3, empty.levDist("abc", 2));
+
+		FuzzyPathMatcher matcher = new FuzzyPathMatcher("week 1/syllabus.pdf");
+		assertEquals(0, matcher.levDist("week%201/syllabus.pdf", 0));
+		assertEquals(1, matcher.levDist("week%201/syllabus.pdx", 1));
+		// cut off as soon as it's over the limit, which is all that matters to the caller
+		assertTrue(matcher.levDist("something else entirely", 2) > 2);
+		// the first file offered has no limit to beat
+		assertEquals("week%201/syllabus.pdf".length(), matcher.levDist("", Integer.MAX_VALUE - 1));
+	}
+
+	@Test
+	public void courseFolderIsIgnored() {
+		FuzzyPathMatcher matcher = new FuzzyPathMatcher("week 1/syllabus.pdf");
+		assertTrue(matcher.offer(COURSE + "week 2/syllabus.pdf"));
+		assertTrue("an exact match once the course folder's gone", matcher.offer(COURSE + "week%201/syllabus.pdf"));
+		assertFalse(matcher.offer(COURSE + "week%201/syllabus.pdf"));
+	}
+
+	@Test
+	public void picksTheSameFileAsTheOldLoop() {
+		Random random = new Random(1024);
+		for (int n = 0; n < 20000; n++) {
+			String url = madeUp(random);
+			List<String> paths = new ArrayList<>();
+			for (int i = random.nextInt(8) + 1; i > 0; i--) {
+				if (!paths.isEmpty() && random.nextInt(5) == 0) {
+					// the same path again, or one just as far away, to check that ties go to the first
+					paths.add(paths.get(random.nextInt(paths.size())));
+				} else {
+					paths.add((random.nextBoolean() ? COURSE : "") + madeUp(random));
+				}
+			}
+
+			FuzzyPathMatcher matcher = new FuzzyPathMatcher(url);
+			int picked = -1;
+			for (int i = 0; i < paths.size(); i++) {
+				if (matcher.offer(paths.get(i))) {
+					picked = i;
+				}
+			}
+			assertEquals(url + " in " + paths, oldPick(url, paths), picked);
+		}
+	}
+
+	/**
+	 * Paths made of a few pieces that are likely to be near each other.
+	 */
+	private static String madeUp(Random random) {
+		String[] parts = {"a", "b", "ab", "ba", "/", " ", "%20", "week 1", "week%201", "syllabus.pdf", "résumé",
+				"x"};
+		StringBuilder s = new StringBuilder();
+		for (int n = random.nextInt(6); n > 0; n--) {
+			s.append(parts[random.nextInt(parts.length)]);
+		}
+		return s.toString();
+	}
+
+	// how Link.findXID picked a file before the matcher
+	private static int oldPick(String url, List<String> paths) {
+		String regex = "/courses/[0-9]{4}-NAU[0-9]{2}-[A-Z]{2,4}-"
+				+ "[0-9]{3}[A-Z]{0,2}-SEC[0-9A-Z]{1,4}-[0-9]{2,5}.NAU-PSSIS/";
+		int picked = -1;
+		int minVal = 10000000;
+		for (int i = 0; i < paths.size(); i++) {
+			String identPath = paths.get(i).replaceAll(regex, "");
+			int currVal = oldLevDist(url.replaceAll(" ", "%20"), identPath);
+			if (currVal < minVal) {
+				picked = i;
+				minVal = currVal;
+			}
+		}
+		return picked;
+	}
+
+	private static int oldLevDist(String s0, String s1) {
+		int len0 = s0.length() + 1;
+		int len1 = s1.length() + 1;
+		int[] cost = new int[len0];
+		int[] newcost = new int[len0];
+		for (int i = 0; i < len0; i++)
+			cost[i] = i;
+		for (int j = 1; j < len1; j++) {
+			newcost[0] = j;
+			for (int i = 1; i < len0; i++) {
+				int match = (s0.charAt(i - 1) == s1.charAt(j - 1)) ? 0 : 1;
+				int cost_replace = cost[i - 1] + match;
+				int cost_insert = cost[i] + 1;
+				int cost_delete = newcost[i - 1] + 1;
+				newcost[i] = Math.min(Math.min(cost_insert, cost_delete), cost_replace);
+			}
+			int[] swap = cost;
+			cost = newcost;
+			newcost = swap;
+		}
+		return cost[len0 - 1];
+	}
+}
@@ -0,0 +1,84 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.cache.ItemResult;
+import edu.nau.elc.hardlinks.rules.LinkCategory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Adds items with their links in any order, past the store's initial capacity, and checks each item's rows come back
+ * as hard links, then x-id links, then the rest, each in the order they were found. That's the layout
+ * {@link CourseItem}'s link lists count on.
+ */
+public class LinkStoreTest {
+
+	private static final LinkCategory[] CATEGORIES = LinkCategory.values();
+
+	@Test
+	public void eachItemsLinksAreGroupedByCategory() {
+		Random random = new Random(23);
+		LinkStore store = new LinkStore();
+		List<List<ItemResult.ClassifiedLink>> items = new ArrayList<>();
+		List<String[]> xids = new ArrayList<>();
+		List<Integer> firsts = new ArrayList<>();
+
+		// a few thousand links, and some items with none at all
+		for (int item = 0; item < 400; item++) {
+			List<ItemResult.ClassifiedLink> links = new ArrayList<>();
+			String[] xidsOf = new String[random.nextInt(20)];
+			for (int i = 0; i < xidsOf.length; i++) {
+				LinkCategory category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+				// some URLs shared between items, some only in this one
+				String url = random.nextBoolean() ? "http://www.example.com/shared" + random.nextInt(10)
+						: "http://www.example.com/item" + item + "/link" + i;
+				links.add(new ItemResult.ClassifiedLink(category, url, "text: " + i));
+				xidsOf[i] = category.isLookUpXid() ? "xid-" + item + "_" + i : null;
+			}
+			items.add(links);
+			xids.add(xidsOf);
+			firsts.add(store.addItem(links, xidsOf));
+		}
+
+		int row = 0;
+		for (int item = 0; item < items.size(); item++) {
+			assertEquals("item " + item + " starts where the last one ended", row, (int) firsts.get(item));
+			row = check(store, item, row, items.get(item), xids.get(item), LinkCategory.HARD);
+			row = check(store, item, row, items.get(item), xids.get(item), LinkCategory.XID);
+			row = check(store, item, row, items.get(item), xids.get(item), null);
+		}
+		assertEquals(row, store.size());
+
+		store.clear();
+		assertEquals(0, store.size());
+		assertEquals(0, store.getDistinctStrings());
+		assertEquals(0, store.addItem(items.get(0), xids.get(0)));
+	}
+
+	// checks the next rows hold the item's links in one category (or, for null, not hard or x-id), in order
+	private static int check(LinkStore store, int item, int row, List<ItemResult.ClassifiedLink> links, String[] xids,
+							 LinkCategory only) {
+		for (int i = 0; i < links.size(); i++) {
+			ItemResult.ClassifiedLink link = links.get(i);
+			LinkCategory category = link.getCategory();
+			boolean matches = only != null ? category == only
+					: category != LinkCategory.HARD && category != LinkCategory.XID;
+			if (!matches) {
+				continue;
+			}
+
+			String where = "item " + item + ", link " + i + ", row " + row;
+			assertEquals(where, item, store.getItem(row));
+			assertEquals(where, category, store.getCategory(row));
+			assertEquals(where, link.getUrl(), store.getUrl(row));
+			assertEquals(where, link.getText(), store.getText(row));
+			assertEquals(where, xids[i] != null ? xids[i] : "", store.getXid(row));
+			row++;
+		}
+		return row;
+	}
+}
@@ -0,0 +1,63 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.xml.XmlParsers;
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the paths and titles the manifest index finds, with StAX readers that report unprefixed elements either way.
+ */
+public class ManifestIndexTest {
+
+	// a content area with a folder in it, and a bb:item that isn't part of the navigation
+	private static final String MANIFEST = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<manifest identifier=\"man00001\" xmlns:bb=\"http://www.blackboard.com/content-packaging/\">"
+			+ "<organizations default=\"toc00001\"><organization identifier=\"toc00001\">"
+			+ "<item identifier=\"itm1\" identifierref=\"res00001\"><title>--TOP--</title>"
+			+ "<item identifier=\"itm2\"><title>Course Content</title>"
+			+ "<item identifier=\"itm3\"><title>Week 1</title>"
+			+ "<item identifier=\"itm4\" identifierref=\"RES00002\"><title>Syllabus</title></item>"
+			+ "</item>"
+			+ "<item identifier=\"itm5\" identifierref=\"res00003\"><title>Welcome</title></item>"
+			+ "<bb:item identifierref=\"res00004\"><bb:title>Not navigation</bb:title></bb:item>"
+			+ "</item></item></organization></organizations><resources/></manifest>";
+
+	@Test
+	public void emptyPrefixes() throws Exception {
+		check(new ManifestIndex(manifest()));
+	}
+
+	@Test
+	public void nullPrefixes() throws Exception {
+		// what Woodstox and some JDK configurations give for an element without a prefix
+		XMLStreamReader reader = new StreamReaderDelegate(XmlParsers.newStreamReader(manifest())) {
+			@Override
+			public String getPrefix() {
+				String prefix = super.getPrefix();
+				return prefix == null || prefix.isEmpty() ? null : prefix;
+			}
+		};
+		check(new ManifestIndex(reader));
+	}
+
+	private static void check(ManifestIndex index) {
+		assertEquals("\\Course Content\\Week 1\\", index.getContentPath("res00002"));
+		assertEquals("Syllabus", index.getTitle("res00002"));
+		assertEquals("\\Course Content\\", index.getContentPath("RES00003"));
+		assertEquals("Welcome", index.getTitle("res00003"));
+		assertNull(index.getContentPath("res00004"));
+		assertNull(index.getTitle("res00099"));
+	}
+
+	private static InputStream manifest() {
+		return new ByteArrayInputStream(MANIFEST.getBytes(StandardCharsets.UTF_8));
+	}
+}
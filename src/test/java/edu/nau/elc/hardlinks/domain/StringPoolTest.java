@@ -0,0 +1,55 @@
+package edu.nau.elc.hardlinks.domain;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that ids are handed out in order and stay the same after the pool has grown past its initial capacity.
+ */
+public class StringPoolTest {
+
+	private static final int COUNT = 5000;
+
+	@Test
+	public void idsSurviveGrowing() {
+		StringPool pool = new StringPool();
+		String[] added = new String[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			// URLs that only differ at the end, as they do in a course
+			added[i] = "http://www.example.com/page" + i;
+			assertEquals(i, pool.intern(added[i]));
+			// asking again before the next one makes no new id
+			assertEquals(i, pool.intern(added[i]));
+		}
+		assertEquals(COUNT, pool.size());
+
+		for (int i = 0; i < COUNT; i++) {
+			assertEquals(i, pool.intern(new String(added[i])));
+			assertSame("only the first copy is kept", added[i], pool.get(i));
+		}
+		assertEquals(COUNT, pool.size());
+	}
+
+	@Test
+	public void collidingHashesAreKeptApart() {
+		StringPool pool = new StringPool();
+		// "Aa" and "BB" have the same hashCode, so every string made of them collides with all the others
+		String[] colliding = new String[2048];
+		for (int i = 0; i < colliding.length; i++) {
+			StringBuilder s = new StringBuilder();
+			for (int bit = 0; bit < 11; bit++) {
+				s.append((i >> bit & 1) == 0 ? "Aa" : "BB");
+			}
+			colliding[i] = s.toString();
+			assertEquals(colliding[0].hashCode(), colliding[i].hashCode());
+			assertEquals(i, pool.intern(colliding[i]));
+		}
+		for (int i = 0; i < colliding.length; i++) {
+			assertEquals(i, pool.intern(colliding[i]));
+			assertEquals(colliding[i], pool.get(i));
+		}
+		assertEquals("an empty string is a string like any other", colliding.length, pool.intern(""));
+	}
+}
@@ -0,0 +1,135 @@
+package edu.nau.elc.hardlinks.domain;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that {@link UrlNormalizer} cleans up URLs and finds filenames exactly the way the chain of String methods it
+ * replaced did. The old code is kept here to check against.
+ */
+public class UrlNormalizerTest {
+
+	private static final Locale DEFAULT_LOCALE = Locale.getDefault();
+
+	private final UrlNormalizer normalizer = new UrlNormalizer();
+
+	@After
+	public void restoreLocale() {
+		Locale.setDefault(DEFAULT_LOCALE);
+	}
+
+	@Test
+	public void goldenCases() {
+		String[][] cases = {
+				{"https://bblearn.nau.edu/bbcswebdav/xid-1234567_1", "https://bblearn.nau.edu/bbcswebdav/xid-1234567_1"},
+				{"  images/banner.jpg\n", "images/banner.jpg"},
+				{"https://bblearn.nau.edu/bbcswebdav/courses/ENG105/Week 1/Reading.PDF",
+						"https://bblearn.nau.edu/bbcswebdav/courses/eng105/week 1/reading.pdf"},
+				{"@X@EmbeddedFile.requestUrlStub@X@bbcswebdav/xid-7654321_1",
+						"https://bblearn.nau.edu/bbcswebdav/xid-7654321_1"},
+				{"@x@embeddedfile.requestUrlStub@x@bbcswebdav/xid-1_1", "@x@embeddedfile.requesturlstub@x@bbcswebdav/xid-1_1"},
+				{"%20/courses/1/notes.docx", "/courses/1/notes.docx"},
+				{"%20%20/courses/1/notes.docx", "%20/courses/1/notes.docx"},
+				{"/courses/%20notes.docx", "/courses/%20notes.docx"},
+				{"notes.docx%0D", "notes.docx"},
+				{"notes%0d%0D.docx%0d", "notes.docx"},
+				{"%%0d0d", "%0d"},
+				{"%0%0dd", "%0d"},
+				// empty once tidied up, but not blank: CourseItem still classifies these, as it always did
+				{"%20", ""},
+				{"%0d", ""},
+				{" %0D ", ""},
+				{"%20%0d", ""},
+				{"%2%0d0x", "%20x"},
+				{"%0D%20x", "%20x"},
+				{"   ", ""},
+				{"", ""},
+				{"résumé.PDF", "résumé.pdf"},
+				// a sigma before the dot isn't the last letter of the word, since "html" follows it
+				{"ΣΊΣΥΦΟΣ.html", "σίσυφοσ.html"},
+		};
+		for (String[] c : cases) {
+			assertEquals(c[0], c[1], normalizer.normalize(c[0]));
+			assertEquals(c[0], oldNormalize(c[0]), normalizer.normalize(c[0]));
+		}
+	}
+
+	@Test
+	public void cleanUrlsAreNotCopied() {
+		String url = "https://bblearn.nau.edu/bbcswebdav/xid-1234567_1";
+		assertSame(url, normalizer.normalize(url));
+	}
+
+	@Test
+	public void matchesTheOldChainOnMadeUpUrls() {
+		checkMadeUpUrls(new Random(24));
+	}
+
+	@Test
+	public void matchesTheOldChainInTurkish() {
+		// "I".toLowerCase() is a dotless i in Turkish, which the old chain gave and the normalizer has to as well
+		Locale.setDefault(new Locale("tr", "TR"));
+		assertEquals(oldNormalize("INDEX.HTML"), normalizer.normalize("INDEX.HTML"));
+		checkMadeUpUrls(new Random(90));
+	}
+
+	@Test
+	public void filenames() {
+		String[][] cases = {
+				{"https://bblearn.nau.edu/courses/1/syllabus.pdf", "syllabus.pdf"},
+				{"syllabus.pdf", "syllabus.pdf"},
+				{"week 1/readings/", "readings"},
+				{"week 1/readings//", "readings"},
+				{"https://bblearn.nau.edu/", "bblearn.nau.edu"},
+				{"", ""},
+		};
+		for (String[] c : cases) {
+			assertEquals(c[0], c[1], UrlNormalizer.filename(c[0]));
+			assertEquals(c[0], oldFilename(c[0]), UrlNormalizer.filename(c[0]));
+		}
+
+		// the old split threw for URLs that are nothing but slashes; the normalizer gives an empty name
+		assertEquals("", UrlNormalizer.filename("//"));
+	}
+
+	private void checkMadeUpUrls(Random random) {
+		// the bits the normalizer treats specially, pieces of them, and things around them
+		String[] parts = {"@X@EmbeddedFile.requestUrlStub@X@", "@X@EmbeddedFile", ".requestUrlStub@X@", "@", "%",
+				"%2", "%20", "%0", "%0d", "%0D", "0", "d", "D", "2", "/", "A", "Z", "a", "z", "I", "İ", "é", "É", " ",
+				"\t", "https://bblearn.nau.edu/", "bbcswebdav/xid-", "Week 1", "\u007f", "\u0080"};
+		for (int i = 0; i < 200000; i++) {
+			StringBuilder url = new StringBuilder();
+			for (int n = random.nextInt(8); n >= 0; n--) {
+				url.append(parts[random.nextInt(parts.length)]);
+			}
+			String raw = url.toString();
+			String normalized = normalizer.normalize(raw);
+			assertEquals(raw, oldNormalize(raw), normalized);
+			if (normalized.replace("/", "").length() > 0) {
+				assertEquals(normalized, oldFilename(normalized), UrlNormalizer.filename(normalized));
+			}
+		}
+	}
+
+	// how CourseItem cleaned up URLs before the normalizer
+	private static String oldNormalize(String raw) {
+		String url = raw.trim();
+		url = url.replace("@X@EmbeddedFile.requestUrlStub@X@", "https://bblearn.nau.edu/").toLowerCase();
+
+		if (url.startsWith("%20")) url = url.replaceFirst("%20", "");
+		url = url.replace("%0d", "");
+		return url;
+	}
+
+	// how Link found the filename before the normalizer
+	private static String oldFilename(String url) {
+		String[] splitted = url.split("/");
+		return splitted[splitted.length - 1];
+	}
+}
@@ -0,0 +1,109 @@
+package edu.nau.elc.hardlinks.domain;
+
+import edu.nau.elc.hardlinks.archive.ArchiveEntry;
+import edu.nau.elc.hardlinks.archive.CourseArchive;
+import edu.nau.elc.hardlinks.archive.ExportInventory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks how links find their files' xids: by exact name, by name with accents composed differently, and by the
+ * closest path when a name is used more than once. Percent-escapes and case aren't normalized, so those links still
+ * aren't found, as before the index.
+ */
+public class XidIndexTest {
+
+	private static final String COURSE = "/courses/1157-NAU00-ENG-105-SEC801-1234.NAU-PSSIS/";
+	private static final String XID_URL = "https://bblearn.nau.edu/bbcswebdav/xid-";
+
+	private final Map<String, String> descriptors = new HashMap<>();
+	private final List<ArchiveEntry> xmlFiles = new ArrayList<>();
+	private XidIndex index;
+
+	@Before
+	public void setUp() throws Exception {
+		descriptor("csfiles/home_dir/Week 1__xid-1000001_1/syllabus.pdf.xml", "1000001_1", "Week 1/syllabus.pdf");
+		descriptor("csfiles/home_dir/Week 1__xid-1000001_1/notes.docx__xid-1000002_1.xml", "1000002_1",
+				"Week 1/notes.docx");
+		descriptor("csfiles/home_dir/" + Normalizer.normalize("résumé.pdf", Normalizer.Form.NFD) + ".xml",
+				"1000003_1", "résumé.pdf");
+		descriptor("csfiles/home_dir/My Notes.pdf.xml", "1000004_1", "My Notes.pdf");
+		descriptor("csfiles/home_dir/Week 1/reading.pdf.xml", "1000005_1", "Week 1/reading.pdf");
+		descriptor("csfiles/home_dir/Week 2/reading.pdf.xml", "1000006_1", "Week 2/reading.pdf");
+		index = new XidIndex(xmlFiles, new CourseArchive() {
+			@Override
+			public ExportInventory getInventory() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public InputStream open(ArchiveEntry entry) {
+				return new ByteArrayInputStream(descriptors.get(entry.getPhysicalPath())
+						.getBytes(StandardCharsets.UTF_8));
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+	}
+
+	@Test
+	public void exactNames() throws Exception {
+		assertEquals(XID_URL + "1000001_1", Link.findXID(COURSE + "Week 1/syllabus.pdf", index));
+		assertEquals("NOT FOUND IN COLLECTION", Link.findXID("https://bblearn.nau.edu/x/missing.pdf", index));
+		assertEquals("case has to match", "NOT FOUND IN COLLECTION", Link.findXID("SYLLABUS.PDF", index));
+	}
+
+	@Test
+	public void xidFromTheFilenameSkipsParsing() throws Exception {
+		List<XidIndex.Identifier> found = index.lookup("notes.docx");
+		assertEquals(1, found.size());
+		assertEquals("1000002_1", found.get(0).getXid());
+		assertNull("the descriptor wasn't parsed", found.get(0).getPath());
+	}
+
+	@Test
+	public void accentsComposedEitherWay() throws Exception {
+		String composed = Normalizer.normalize("résumé.pdf", Normalizer.Form.NFC);
+		assertTrue(index.lookup(composed).isEmpty());
+		assertEquals(XID_URL + "1000003_1", Link.findXID("https://bblearn.nau.edu/bbcswebdav/" + composed, index));
+		assertEquals(XID_URL + "1000003_1", Link.findXID(Normalizer.normalize("résumé.pdf",
+				Normalizer.Form.NFD), index));
+		assertEquals("NON-ASCII CHARS IN LINK", Link.findXID("résumé2.pdf", index));
+	}
+
+	@Test
+	public void percentEscapesArentDecoded() throws Exception {
+		assertEquals("NOT FOUND IN COLLECTION", Link.findXID("https://bblearn.nau.edu/bbcswebdav/My%20Notes.pdf",
+				index));
+		assertEquals("NOT FOUND IN COLLECTION", Link.findXID("r%C3%A9sum%C3%A9.pdf", index));
+		assertEquals(XID_URL + "1000004_1", Link.findXID("https://bblearn.nau.edu/bbcswebdav/My Notes.pdf", index));
+	}
+
+	@Test
+	public void sameNameInSeveralFoldersGoesToTheClosestPath() throws Exception {
+		assertEquals(2, index.lookup("reading.pdf").size());
+		assertEquals(XID_URL + "1000006_1", Link.findXID(COURSE + "Week 2/reading.pdf", index));
+		assertEquals(XID_URL + "1000005_1", Link.findXID(COURSE + "Week 1/reading.pdf", index));
+	}
+
+	private void descriptor(String physicalPath, String xid, String path) {
+		descriptors.put(physicalPath, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><cms_resource><identifier>" + xid
+				+ "#" + COURSE + path + "</identifier></cms_resource>");
+		xmlFiles.add(ArchiveEntry.fromPhysicalPath(physicalPath, -1, -1));
+	}
+}
@@ -0,0 +1,117 @@
+package edu.nau.elc.hardlinks.html;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs well-formed and broken HTML through the tokenizer and through Jsoup, and checks they find the same links: each
+ * "a" tag's href and text, and each "img" tag's src and alt, in document order.
+ */
+public class LinkTokenizerTest {
+
+	private static final String[] CASES = {
+			// well-formed
+			"<p>See <a href=\"http://www.example.com/\">the example</a> and <img src=\"pic.jpg\" alt=\"a pic\"></p>",
+			"<A HREF='Syllabus.pdf'>Syllabus</A><IMG SRC=logo.png ALT=Logo>",
+			"<a href=\"a.html\">one</a><a href=\"b.html\">two</a><a>no href</a><img>",
+			"<a href=\"x.html\" title=\"t\" target=_blank>  lots   of\n\twhitespace  </a>",
+			"<a href=\"x.html\">line<br>break</a><a href=\"y.html\">block<div>inside</div>it</a>",
+			"<a href=\"x.html\"><img src=\"in.png\" alt=\"inside\"> and text</a>",
+			"<pre><a href=\"p.html\">  kept\n  whitespace </a></pre>",
+			"<a href=\"q?a=1&amp;b=2&lt;\">caf&eacute; &amp; &#169; &#x263a; &nbsp;x</a>",
+			"<a href=\"q?a=1&copy=2\">&notanentity; &amp</a>",
+			"<img src=\"s.png\" alt=\"say &quot;hi&quot;\"/><img src='t.png' alt='it&#39;s'/>",
+			"<a href=\"x.html\">a<script>document.write('<a href=\"no.html\">no</a>')</script>b</a>",
+			"<style>a { color: red } <a href=\"no.html\"></style><a href=\"yes.html\">yes</a>",
+			"<a href=\"x.html\">one<a href=\"y.html\">two</a>",
+			"<a href=\"x.html\">unclosed",
+			"<a href = \"spaced.html\" >spaced</a>",
+			"<a href=unquoted.html>unquoted</a><a href=>empty</a><a href>bare</a>",
+			"<a href=\"x.html\">less < than</a><a href=\"y.html\">a <3 b</a>",
+			"<?xml version=\"1.0\"?><a href=\"x.html\">after a processing instruction</a>",
+			"<!DOCTYPE html><a href=\"x.html\">after a doctype</a>",
+
+			// comments, including broken ones
+			"<!-- <a href=\"no.html\">commented out</a> --><a href=\"yes.html\">yes</a>",
+			"<!----><a href=\"yes.html\">after an empty comment</a>",
+			"<!--><a href=\"yes.html\">after an abruptly closed comment</a><!-- -->",
+			"<!---><a href=\"yes.html\">after an abruptly closed comment</a><!-- -->",
+			"<!-- a --!><a href=\"yes.html\">after a comment closed with a bang</a><!-- -->",
+			"<!-- a --!- b --><a href=\"yes.html\">after a bang that doesn't close it</a>",
+			"<!-- a --!--><a href=\"yes.html\">after a bang and then dashes</a>",
+			"<!-- a ---><a href=\"yes.html\">after three dashes</a>",
+			"<a href=\"x.html\">a<!-->b<!--->c<!-- --!>d</a>",
+			"<!-- a -- b --><a href=\"yes.html\">after dashes in the middle</a>",
+			"<!bogus comment><a href=\"yes.html\">after a bogus comment</a>",
+			"<a href=\"x.html\">text<!-- hidden -->more</a>",
+			"<a href=\"x.html\">text</a><!-- never closed <a href=\"no.html\">no</a>",
+
+			// RCDATA inside a link
+			"<a href=\"x.html\">a <title>  the   title </title> b</a>",
+			"<a href=\"x.html\">a <textarea>  some\n  text &amp; more </textarea> b</a>",
+			"<a href=\"x.html\"><textarea><a href=\"no.html\">not a link</a></textarea></a>",
+			"<a href=\"x.html\">a <title>x</titlex> y</title> b</a>",
+	};
+
+	@Test
+	public void findsTheSameLinksAsJsoup() throws IOException {
+		LinkTokenizer tokenizer = new LinkTokenizer();
+		for (String html : CASES) {
+			assertEquals(html, jsoup(html), tokenize(tokenizer, html));
+		}
+	}
+
+	@Test
+	public void longValuesAreTruncated() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < LinkTokenizer.MAX_VALUE_LENGTH + 100; i++) {
+			text.append((char) ('a' + i % 26));
+		}
+		String html = "<a href=\"" + text + "\">" + text + "</a>";
+		List<String> links = tokenize(new LinkTokenizer(), html);
+		String expected = text.substring(0, LinkTokenizer.MAX_VALUE_LENGTH);
+		assertEquals("a " + expected + " | " + expected, links.get(0));
+	}
+
+	/**
+	 * What selecting a and img from a Jsoup document finds, the way {@link HtmlMode#JSOUP} does.
+	 */
+	private static List<String> jsoup(String html) {
+		Document doc = Jsoup.parse(html);
+		List<String> links = new ArrayList<>();
+		for (Element e : doc.select("a")) {
+			links.add("a " + e.attr("href") + " | " + e.text());
+		}
+		for (Element e : doc.select("img")) {
+			links.add("img " + e.attr("src") + " | " + e.attr("alt"));
+		}
+		return links;
+	}
+
+	private static List<String> tokenize(LinkTokenizer tokenizer, String html) throws IOException {
+		List<String> anchors = new ArrayList<>();
+		List<String> images = new ArrayList<>();
+		tokenizer.tokenize(new StringReader(html), new LinkListener() {
+			@Override
+			public void anchor(String href, String text) {
+				anchors.add("a " + href + " | " + text);
+			}
+
+			@Override
+			public void image(String src, String alt) {
+				images.add("img " + src + " | " + alt);
+			}
+		});
+		anchors.addAll(images);
+		return anchors;
+	}
+}
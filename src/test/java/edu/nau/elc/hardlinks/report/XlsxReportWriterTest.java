@@ -0,0 +1,85 @@
+package edu.nau.elc.hardlinks.report;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the report comes out the same byte for byte however many threads generate its sheets, and that POI can
+ * read back what was written.
+ */
+public class XlsxReportWriterTest {
+
+	@Test
+	public void sameBytesForAnyNumberOfThreads() throws IOException {
+		byte[] single = write(1);
+		for (int threads : new int[]{2, 3, ReportSheet.values().length, 16}) {
+			assertArrayEquals(threads + " threads", single, write(threads));
+		}
+	}
+
+	@Test
+	public void sameBytesEveryTime() throws IOException {
+		assertArrayEquals(write(4), write(4));
+	}
+
+	@Test
+	public void cellsReadBack() throws IOException {
+		Workbook wb = new XSSFWorkbook(new ByteArrayInputStream(write(3)));
+		assertEquals(ReportSheet.values().length, wb.getNumberOfSheets());
+		for (ReportSheet s : ReportSheet.values()) {
+			Sheet sheet = wb.getSheetAt(s.ordinal());
+			assertEquals(s.getTitle(), sheet.getSheetName());
+			assertEquals(s.getHeaders()[0], sheet.getRow(0).getCell(0).getStringCellValue());
+		}
+
+		Row row = wb.getSheetAt(ReportSheet.CONTENT.ordinal()).getRow(1);
+		assertEquals("Item <1> & \"quotes\"", row.getCell(0).getStringCellValue());
+		assertEquals(" leading and trailing spaces ", row.getCell(1).getStringCellValue());
+		assertEquals(Cell.CELL_TYPE_BLANK, row.getCell(2).getCellType());
+		assertEquals("résumé ✓", row.getCell(3).getStringCellValue());
+	}
+
+	/**
+	 * Writes the same made-up rows to every sheet, with the given number of threads.
+	 */
+	private static byte[] write(int threads) throws IOException {
+		XlsxReportWriter writer = new XlsxReportWriter(threads);
+		try {
+			writer.addRow(ReportSheet.CONTENT, "Item <1> & \"quotes\"", " leading and trailing spaces ", null,
+					"résumé ✓", "Content Area 1/Week 1");
+
+			Random random = new Random(42);
+			for (ReportSheet sheet : ReportSheet.values()) {
+				// different sizes, so the sheets finish in a different order from one run to the next
+				int rows = 10 + random.nextInt(2000);
+				for (int r = 0; r < rows; r++) {
+					String[] cells = new String[sheet.getHeaders().length];
+					for (int c = 0; c < cells.length; c++) {
+						cells[c] = random.nextInt(20) == 0 ? null
+								: sheet.getTitle() + " " + r + "/" + c + " https://bblearn.nau.edu/courses/"
+								+ Long.toHexString(random.nextLong());
+					}
+					writer.addRow(sheet, cells);
+				}
+			}
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			writer.save(out);
+			return out.toByteArray();
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package edu.nau.elc.hardlinks.rules;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the default rule table sorts links exactly the way the if/else chain it replaced did. The chain is kept
+ * here, as it was in CourseItem, to check against.
+ */
+public class LinkClassifierTest {
+
+	private static final String POOLS = "Tests, Surveys & Pools";
+	private static final String AREA = "Course Content/Week 1";
+
+	private final LinkClassifier classifier = LinkRules.getDefault().compile();
+
+	/**
+	 * One URL per row: the URL, the content area its item is in, and the category it should get.
+	 */
+	private static final Object[][] GOLDEN = {
+			// OWA redirect links, which beat every other rule
+			{"https://iris.nau.edu/owa/redir.aspx?c=abc&url=http://www.example.com", AREA, LinkCategory.HARD},
+			{"https://iris.nau.edu/owa/redir.aspx?url=ppg/test.gif", POOLS, LinkCategory.HARD},
+			{"https://iris.nau.edu/owa/redir.aspx?url=about:blank", AREA, LinkCategory.HARD},
+
+			// Pearson test images, only in tests and pools, where they're ignored even though they'd be hard links
+			{"https://bblearn.nau.edu/courses/1/eng105/ppg/image.gif", POOLS, LinkCategory.IGNORED},
+			{"https://bblearn.nau.edu/courses/1/eng105/ppg/image.gif", AREA, LinkCategory.HARD},
+			{"ppg/image.gif", POOLS, LinkCategory.IGNORED},
+			{"ppg/image.gif", AREA, LinkCategory.HARD},
+			{"http://www.pearson.com/ppg/image.gif", "tests, surveys & pools", LinkCategory.DISCARDED},
+
+			// blank pages, in any case, but only the whole URL
+			{"about:blank", AREA, LinkCategory.IGNORED},
+			{"ABOUT:BLANK", AREA, LinkCategory.IGNORED},
+			{"About:Blank", AREA, LinkCategory.IGNORED},
+			{"about:blank#top", AREA, LinkCategory.HARD},
+
+			// embedded files: the pattern has capitals and URLs are lower-cased before they're classified, so this
+			// rule never matches a real link; the lower-cased stub falls through to the relative link rule
+			{"@X@EmbeddedFile.location@X@image.png", AREA, LinkCategory.IGNORED},
+			{"@x@embeddedfile.location@x@image.png", AREA, LinkCategory.HARD},
+
+			// WebDAV links that use an xid
+			{"https://bblearn.nau.edu/bbcswebdav/xid-1234567_1", AREA, LinkCategory.XID},
+			{"bbcswebdav/xid-1234567_1", AREA, LinkCategory.XID},
+			{"http://www.example.com/bbcswebdav/xid-1234567_1", AREA, LinkCategory.XID},
+			{"https://bblearn.nau.edu/bbcswebdav/courses/eng105/syllabus.pdf", AREA, LinkCategory.HARD},
+			{"https://www.example.com/xid-1234567_1", AREA, LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/BBCSWEBDAV/XID-1234567_1", AREA, LinkCategory.DISCARDED},
+
+			// links outside of Bb Learn
+			{"http://www.example.com/page.html", AREA, LinkCategory.DISCARDED},
+			{"https://www.example.com/courses/", AREA, LinkCategory.DISCARDED},
+			{"www.google.com", AREA, LinkCategory.DISCARDED},
+			// only lower case matches, so a URL that somehow kept its capitals looks relative
+			{"HTTP://WWW.EXAMPLE.COM/", AREA, LinkCategory.HARD},
+			{"https://vista.nau.edu/webct/course.html", AREA, LinkCategory.HARD},
+			{"https://bblearn.nau.edu/", AREA, LinkCategory.DISCARDED},
+
+			// content editor images
+			{"/images/ci/icons/x.gif", AREA, LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/courses/images/ci/x.gif", AREA, LinkCategory.DISCARDED},
+
+			// links copied out of Bb Learn
+			{"https://bblearn.nau.edu/webapps/blackboard/content/listcontent.jsp?course_id=_1_1", AREA,
+					LinkCategory.HARD},
+			{"https://bblearn.nau.edu/courses/1/eng105/content/_123_1/notes.docx", AREA, LinkCategory.HARD},
+			{"https://bblearn.nau.edu/webct/urw/lc5116011.tp0/cobaltmainframe.dowebct", AREA, LinkCategory.HARD},
+			{"/courses/1/eng105/content/_123_1/syllabus.pdf", AREA, LinkCategory.HARD},
+			{"https://bblearn.nau.edu/bbcswebdav/institution/logo.png", AREA, LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/webapps/blackboard/execute/viewdocumentation?x=1", AREA,
+					LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/webapps/wvms-bb-bblearn/video", AREA, LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/webapps/bb-collaborate-bblearn/launch", AREA, LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/webapps/vtbe-tinymce/tiny_mce/plugins/x.html", AREA, LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/webapps/login/", AREA, LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/webapps/portal/frameset.jsp", AREA, LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/webapps/bbgs-nbc-content-integration-bblearn/x", AREA,
+					LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/webapps/bb-selfpear-bblearn/x", AREA, LinkCategory.DISCARDED},
+			{"/webapps/login/", AREA, LinkCategory.DISCARDED},
+			{"https://bblearn.nau.edu/Courses/1/eng105/x.pdf", AREA, LinkCategory.DISCARDED},
+
+			// relative links
+			{"images/banner.jpg", AREA, LinkCategory.HARD},
+			{"../week%201/reading.pdf", AREA, LinkCategory.HARD},
+			{"résumé.pdf", AREA, LinkCategory.HARD},
+			// what an href of only %20 or %0d comes out as; only blank hrefs are skipped before classifying
+			{"", AREA, LinkCategory.HARD},
+			{"javascript:void(0)", AREA, LinkCategory.DISCARDED},
+			{"mailto:instructor", AREA, LinkCategory.DISCARDED},
+			{"#top", AREA, LinkCategory.DISCARDED},
+			{"data:image/png;base64,iVBORw0KGgo=", AREA, LinkCategory.DISCARDED},
+			{"page.com.html", AREA, LinkCategory.DISCARDED},
+			{"notes.net", AREA, LinkCategory.DISCARDED},
+			{"nau.edu/home", AREA, LinkCategory.DISCARDED},
+			{"wikipedia.org/wiki/link", AREA, LinkCategory.DISCARDED},
+			{"//cdn.slidesharecdn.com/ss_thumbnails/x.jpg", AREA, LinkCategory.DISCARDED},
+
+			// everything else
+			{"ftp://files.nau.edu/pub/x.zip", AREA, LinkCategory.DISCARDED},
+	};
+
+	@Test
+	public void goldenCasesMatchTheTable() {
+		for (Object[] row : GOLDEN) {
+			String url = (String) row[0];
+			String area = (String) row[1];
+			assertEquals(url + " in " + area, row[2], classifier.classify(url, area));
+		}
+	}
+
+	@Test
+	public void goldenCasesMatchTheOldChain() {
+		for (Object[] row : GOLDEN) {
+			String url = (String) row[0];
+			String area = (String) row[1];
+			assertEquals(url + " in " + area, row[2], oldChain(url, area));
+		}
+	}
+
+	@Test
+	public void tableMatchesTheOldChainOnMadeUpUrls() {
+		// URLs stuck together out of the rules' patterns and bits of them, which is where the two could differ
+		String[] parts = {"iris.nau.edu/owa/redir.aspx", "ppg/", "about:blank", "@X@EmbeddedFile.location@X@", "xid",
+				"bbcswebdav", "http://", "https://", "www", "bblearn", "vista", "/images/ci/", "courses", "webapp",
+				"webct", "/institution/", "execute/viewdocumentation?", "wvms-bb-bblearn", "bb-collaborate-bblearn",
+				"webapps/vtbe-tinymce/tiny_mce", "webapps/login", "webapps/portal",
+				"bbgs-nbc-content-integration-bblearn", "bb-selfpear-bblearn", "javascript:", "mailto:", "#",
+				"data:image/", ".com", ".net", ".edu", ".org", "//cdn.slidesharecdn.com/", "/", "x", "é", "HTTP://",
+				"BBLEARN", "webap", "http:/", "ppg", ".co", "about:"};
+		String[] areas = {AREA, POOLS, ""};
+
+		Random random = new Random(20151024);
+		for (int i = 0; i < 200000; i++) {
+			StringBuilder url = new StringBuilder();
+			for (int n = random.nextInt(5); n >= 0; n--) {
+				url.append(parts[random.nextInt(parts.length)]);
+			}
+			String area = areas[random.nextInt(areas.length)];
+			assertEquals(url + " in " + area, oldChain(url.toString(), area),
+					classifier.classify(url.toString(), area));
+		}
+	}
+
+	/**
+	 * The chain from CourseItem.findHardLinks before the rules were a table, with each branch returning the category
+	 * of the list it added the link to.
+	 */
+	private static LinkCategory oldChain(String url, String contentPath) {
+		if (url.contains("iris.nau.edu/owa/redir.aspx")) {
+			return LinkCategory.HARD;
+
+		} else if ((url.contains("ppg/") && contentPath.equals("Tests, Surveys & Pools")) ||
+				url.equalsIgnoreCase("about:blank") ||
+				url.contains("@X@EmbeddedFile.location@X@")) {
+			return LinkCategory.IGNORED;
+
+		} else if (url.contains("xid") && url.contains("bbcswebdav")) {
+			return LinkCategory.XID;
+
+		} else if ((url.startsWith("http://") || url.startsWith("https://") || url.startsWith("www"))
+				&& !url.contains("bblearn") && !url.contains("vista")) {
+			return LinkCategory.DISCARDED;
+
+		} else if (url.contains("/images/ci/")) {
+			return LinkCategory.DISCARDED;
+
+		} else if (
+				(url.contains("courses") || url.contains("webapp") || url.contains("bbcswebdav") || url.contains("webct") || url.contains("vista"))
+						&& !url.contains("/institution/")
+						&& !url.contains("execute/viewdocumentation?")
+						&& !url.contains("wvms-bb-bblearn")
+						&& !url.contains("bb-collaborate-bblearn")
+						&& !url.contains("webapps/vtbe-tinymce/tiny_mce")
+						&& !url.contains("webapps/login")
+						&& !url.contains("webapps/portal")
+						&& !url.contains("bbgs-nbc-content-integration-bblearn")
+						&& !url.contains("bb-selfpear-bblearn")) {
+			return LinkCategory.HARD;
+
+		} else if (!url.startsWith("https://") && !url.startsWith("http://")
+				&& !url.startsWith("javascript:")
+				&& !url.startsWith("mailto:") && !url.startsWith("#")
+				&& !url.contains("webapp")
+				&& !url.startsWith("data:image/")
+				&& !url.contains(".com")
+				&& !url.contains(".net")
+				&& !url.contains(".edu")
+				&& !url.contains(".org")
+				&& !url.contains("//cdn.slidesharecdn.com/")) {
+			return LinkCategory.HARD;
+
+		} else {
+			return LinkCategory.DISCARDED;
+		}
+	}
+}